@@ -0,0 +1,241 @@
+package de.opengamebackend.quests.benchmarks;
+
+import de.opengamebackend.net.ApiException;
+import de.opengamebackend.quests.QuestsApplication;
+import de.opengamebackend.quests.config.ArchiveConfig;
+import de.opengamebackend.quests.controller.QuestService;
+import de.opengamebackend.quests.model.requests.IncreaseQuestProgressRequest;
+import de.opengamebackend.quests.model.responses.CreateQuestsResponse;
+import de.opengamebackend.quests.model.responses.FinishQuestResponse;
+import de.opengamebackend.quests.model.responses.GetPlayerQuestsResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the player-facing quest operations against an embedded H2 database, seeded with a configurable catalog
+ * and quest history. Past quests completed within the archive retention are kept with the active quests, and older
+ * ones are moved to the history, like the archiver does.
+ * <p>
+ * Run with <code>mvn -P benchmarks test-compile exec:exec</code>. Pass <code>-Djmh.args="..."</code> to select
+ * benchmarks or parameters, e.g. <code>-Djmh.args="QuestServiceBenchmark.finishQuest -p categories=3 -prof gc"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class QuestServiceBenchmark {
+    private static final int PLAYERS = 1000;
+    private static final int HISTORY_ID_OFFSET = 1000000000;
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"3", "10"})
+    public int categories;
+
+    @Param({"10", "100"})
+    public int definitionsPerCategory;
+
+    @Param({"0", "100"})
+    public int historicalQuestsPerPlayer;
+
+    private ConfigurableApplicationContext context;
+    private QuestService questService;
+    private JdbcTemplate jdbcTemplate;
+    private ArchiveConfig archiveConfig;
+
+    private String[] playerIds;
+
+    /**
+     * Definition of the active quest of each player in each category, by player index.
+     */
+    private String[][] activeQuestDefinitionIds;
+
+    private final AtomicInteger nextFinishingPlayer = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(QuestsApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                        "eureka.client.enabled=false",
+                        "logging.level.root=WARN",
+                        "de.opengamebackend.quests.archive.enabled=false",
+                        // Keep reward grants in the database, as there's no collection service to deliver them to.
+                        "de.opengamebackend.quests.reward-grants.poll-interval=1d",
+                        "de.opengamebackend.quests.reward-grants.batch-window=1d")
+                .run();
+
+        questService = context.getBean(QuestService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        archiveConfig = context.getBean(ArchiveConfig.class);
+
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CreateQuestsResponse createQuests() throws ApiException {
+        return questService.createQuests(playerIds[ThreadLocalRandom.current().nextInt(PLAYERS)]);
+    }
+
+    @Benchmark
+    public void increaseQuestProgress() throws ApiException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int player = random.nextInt(PLAYERS);
+        String questDefinitionId = activeQuestDefinitionIds[player][random.nextInt(categories)];
+
+        IncreaseQuestProgressRequest request = new IncreaseQuestProgressRequest();
+        request.setProgressMade(1);
+
+        questService.increaseQuestProgress(playerIds[player], questDefinitionId, request);
+    }
+
+    @Benchmark
+    public FinishQuestResponse finishQuest(FinishableQuest quest) throws ApiException {
+        return questService.finishQuest(quest.playerId, quest.questDefinitionId, null);
+    }
+
+    @Benchmark
+    public GetPlayerQuestsResponse getPlayerQuests() {
+        return questService.getPlayerQuests(playerIds[ThreadLocalRandom.current().nextInt(PLAYERS)]);
+    }
+
+    @Benchmark
+    public GetPlayerQuestsResponse getPlayerQuestsPage() {
+        return questService.getPlayerQuestsPage(playerIds[ThreadLocalRandom.current().nextInt(PLAYERS)], 0, 50);
+    }
+
+    /**
+     * Completable quest of an otherwise unused player, as every invocation of {@link #finishQuest} needs a fresh one.
+     * Inserted before each invocation, outside of the measured time.
+     */
+    @State(Scope.Thread)
+    public static class FinishableQuest {
+        private String playerId;
+        private String questDefinitionId;
+
+        @Setup(Level.Invocation)
+        public void setUp(QuestServiceBenchmark benchmark) {
+            playerId = "finishingPlayer" + benchmark.nextFinishingPlayer.incrementAndGet();
+            questDefinitionId = getDefinitionId(0, 0);
+
+            benchmark.jdbcTemplate.update("INSERT INTO quests_playerquest " +
+                            "(definition_id, player_id, current_progress, generated_at) VALUES (?, ?, ?, ?)",
+                    questDefinitionId, playerId, Integer.MAX_VALUE, Timestamp.from(Instant.now().minusSeconds(60)));
+        }
+    }
+
+    private void seed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Timestamp now = Timestamp.from(Instant.now().minusSeconds(60));
+
+        // Catalog.
+        ArrayList<Object[]> categoryArgs = new ArrayList<>();
+        ArrayList<Object[]> definitionArgs = new ArrayList<>();
+
+        for (int c = 0; c < categories; ++c) {
+            categoryArgs.add(new Object[] { getCategoryId(c) });
+
+            for (int d = 0; d < definitionsPerCategory; ++d) {
+                definitionArgs.add(new Object[] { getDefinitionId(c, d), getCategoryId(c), 10, "testItem", 1 });
+            }
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO quests_questcategory (id) VALUES (?)", categoryArgs);
+        jdbcTemplate.batchUpdate("INSERT INTO quests_questdefinition " +
+                "(id, category_id, required_progress, reward_item_definition_id, reward_item_count) " +
+                "VALUES (?, ?, ?, ?, ?)", definitionArgs);
+
+        // Active quests, and past quests moved to the history.
+        playerIds = new String[PLAYERS];
+        activeQuestDefinitionIds = new String[PLAYERS][categories];
+
+        ArrayList<Object[]> questArgs = new ArrayList<>();
+        ArrayList<Object[]> generationArgs = new ArrayList<>();
+        ArrayList<Object[]> completedQuestArgs = new ArrayList<>();
+        ArrayList<Object[]> historyArgs = new ArrayList<>();
+        int historyId = HISTORY_ID_OFFSET;
+        Instant archiveCutoff = now.toInstant().minus(archiveConfig.getRetention());
+
+        for (int p = 0; p < PLAYERS; ++p) {
+            playerIds[p] = "player" + p;
+
+            for (int c = 0; c < categories; ++c) {
+                String definitionId = getDefinitionId(c, random.nextInt(definitionsPerCategory));
+                activeQuestDefinitionIds[p][c] = definitionId;
+
+                questArgs.add(new Object[] { definitionId, playerIds[p], 0, now });
+                generationArgs.add(new Object[] { playerIds[p], getCategoryId(c), now, now });
+            }
+
+            for (int h = 0; h < historicalQuestsPerPlayer; ++h) {
+                Timestamp generatedAt = Timestamp.from(now.toInstant().minus(h + 1, ChronoUnit.DAYS));
+                String definitionId = getDefinitionId(h % categories, random.nextInt(definitionsPerCategory));
+
+                if (generatedAt.toInstant().isAfter(archiveCutoff)) {
+                    completedQuestArgs.add(new Object[] { definitionId, playerIds[p], 10, generatedAt, generatedAt });
+                } else {
+                    historyArgs.add(new Object[] {
+                            historyId++, definitionId, playerIds[p], 10, generatedAt, generatedAt, now });
+                }
+            }
+
+            if (completedQuestArgs.size() >= BATCH_SIZE) {
+                insertCompletedQuests(completedQuestArgs);
+            }
+
+            if (historyArgs.size() >= BATCH_SIZE) {
+                insertHistory(historyArgs);
+            }
+        }
+
+        insertCompletedQuests(completedQuestArgs);
+        insertHistory(historyArgs);
+
+        jdbcTemplate.batchUpdate("INSERT INTO quests_playerquest " +
+                "(definition_id, player_id, current_progress, generated_at) VALUES (?, ?, ?, ?)", questArgs);
+        jdbcTemplate.batchUpdate("INSERT INTO quests_playerquestgeneration " +
+                "(player_id, category_id, generated_at, last_seen_at) VALUES (?, ?, ?, ?)", generationArgs);
+    }
+
+    private void insertCompletedQuests(List<Object[]> completedQuestArgs) {
+        jdbcTemplate.batchUpdate("INSERT INTO quests_playerquest " +
+                "(definition_id, player_id, current_progress, generated_at, completed_at) VALUES (?, ?, ?, ?, ?)",
+                completedQuestArgs);
+        completedQuestArgs.clear();
+    }
+
+    private void insertHistory(List<Object[]> historyArgs) {
+        jdbcTemplate.batchUpdate("INSERT INTO quests_playerquesthistory " +
+                "(id, definition_id, player_id, current_progress, generated_at, completed_at, archived_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", historyArgs);
+        historyArgs.clear();
+    }
+
+    private static String getCategoryId(int category) {
+        return "category" + category;
+    }
+
+    private static String getDefinitionId(int category, int definition) {
+        return "category" + category + "definition" + definition;
+    }
+}
@@ -0,0 +1,352 @@
+package de.opengamebackend.quests.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.opengamebackend.net.HttpHeader;
+import de.opengamebackend.quests.QuestsApplication;
+import de.opengamebackend.quests.model.requests.*;
+import de.opengamebackend.quests.model.responses.CreateQuestsResponse;
+import de.opengamebackend.quests.model.responses.CreateQuestsResponseItem;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts the quests service against H2 or a local MariaDB, with a local stub in place of the collection service,
+ * and drives its REST endpoints with typical peak load patterns:
+ * <ul>
+ *     <li><b>login-storm</b>: Many players log in at once, each generating their quests.</li>
+ *     <li><b>match-end-burst</b>: Matches end at once, each reporting progress for all quests of its players.</li>
+ *     <li><b>reset-claim-rush</b>: Right after the daily reset, players claim the rewards of yesterday's quests
+ *     and get their new ones.</li>
+ * </ul>
+ * Run with <code>mvn -P load-test test-compile exec:exec</code>. Writes throughput, latency percentiles, database
+ * queries per request and error rates of each scenario to a JSON report.
+ */
+public class LoadTest {
+    private static final int PLAYERS = Integer.getInteger("loadtest.players", 2000);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 50);
+    private static final int CATEGORIES = Integer.getInteger("loadtest.categories", 3);
+    private static final int DEFINITIONS_PER_CATEGORY = Integer.getInteger("loadtest.definitionsPerCategory", 20);
+    private static final int REQUIRED_PROGRESS = Integer.getInteger("loadtest.requiredProgress", 10);
+    private static final int PLAYERS_PER_MATCH = Integer.getInteger("loadtest.playersPerMatch", 10);
+    private static final long COLLECTION_LATENCY_MILLIS = Long.getLong("loadtest.collectionLatencyMillis", 20);
+
+    private static final String DATASOURCE_URL = System.getProperty("loadtest.datasource.url",
+            "jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    private static final String DATASOURCE_USERNAME = System.getProperty("loadtest.datasource.username", "sa");
+    private static final String DATASOURCE_PASSWORD = System.getProperty("loadtest.datasource.password", "");
+
+    private static final String REPORT = System.getProperty("loadtest.report", "target/load-test-report.json");
+
+    private final RestTemplate restTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryCounter queryCounter;
+
+    private final ConcurrentLinkedQueue<Long> latencyNanos = new ConcurrentLinkedQueue<>();
+    private final AtomicLong errors = new AtomicLong();
+
+    public LoadTest(RestTemplate restTemplate, JdbcTemplate jdbcTemplate, QueryCounter queryCounter) {
+        this.restTemplate = restTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.queryCounter = queryCounter;
+    }
+
+    public static void main(String[] args) throws Exception {
+        QueryCounter queryCounter = new QueryCounter();
+
+        try (StubCollectionService collectionService = new StubCollectionService(COLLECTION_LATENCY_MILLIS)) {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(QuestsApplication.class)
+                    .properties(
+                            "server.port=0",
+                            "spring.datasource.url=" + DATASOURCE_URL,
+                            "spring.datasource.username=" + DATASOURCE_USERNAME,
+                            "spring.datasource.password=" + DATASOURCE_PASSWORD,
+                            "spring.datasource.hikari.maximum-pool-size=" + CONCURRENCY,
+                            "eureka.client.enabled=false",
+                            "spring.cloud.discovery.client.simple.instances.open-game-backend-collection[0].uri="
+                                    + collectionService.getUri(),
+                            "logging.level.root=WARN",
+                            "logging.level.org.zalando.logbook=OFF")
+                    .initializers(c -> c.getBeanFactory().addBeanPostProcessor(queryCounter))
+                    .run();
+
+            try {
+                int port = ((WebServerApplicationContext)context).getWebServer().getPort();
+
+                RestTemplate restTemplate = new RestTemplateBuilder()
+                        .rootUri("http://localhost:" + port)
+                        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(HttpClients.custom()
+                                .setMaxConnPerRoute(CONCURRENCY)
+                                .setMaxConnTotal(CONCURRENCY)
+                                .build()))
+                        .errorHandler(new ResponseErrorHandler() {
+                            @Override
+                            public boolean hasError(ClientHttpResponse response) {
+                                // Count errors instead of failing.
+                                return false;
+                            }
+
+                            @Override
+                            public void handleError(ClientHttpResponse response) {
+                            }
+                        })
+                        .build();
+
+                LoadTest loadTest = new LoadTest(restTemplate, context.getBean(JdbcTemplate.class), queryCounter);
+                List<ScenarioResult> results = loadTest.run();
+
+                writeReport(results, collectionService.getReceivedRequests());
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    public List<ScenarioResult> run() throws InterruptedException {
+        putCatalog();
+
+        ArrayList<ScenarioResult> results = new ArrayList<>();
+
+        // Login storm.
+        ConcurrentHashMap<String, List<String>> playerQuests = new ConcurrentHashMap<>();
+        ArrayList<Runnable> logins = new ArrayList<>();
+
+        for (int i = 0; i < PLAYERS; ++i) {
+            String playerId = "player" + i;
+            logins.add(() -> {
+                CreateQuestsResponse response = post("/client/createquests", playerId, null,
+                        CreateQuestsResponse.class);
+
+                if (response != null) {
+                    ArrayList<String> questDefinitionIds = new ArrayList<>();
+
+                    for (CreateQuestsResponseItem quest : response.getQuests()) {
+                        questDefinitionIds.add(quest.getQuestDefinitionId());
+                    }
+
+                    playerQuests.put(playerId, questDefinitionIds);
+                }
+            });
+        }
+
+        results.add(runScenario("login-storm", logins));
+
+        // Match end burst.
+        ArrayList<Runnable> matchEnds = new ArrayList<>();
+        ArrayList<String> playerIds = new ArrayList<>(playerQuests.keySet());
+
+        for (int i = 0; i < playerIds.size(); i += PLAYERS_PER_MATCH) {
+            List<String> matchPlayerIds = playerIds.subList(i, Math.min(i + PLAYERS_PER_MATCH, playerIds.size()));
+            IncreaseQuestProgressBatchRequest request = new IncreaseQuestProgressBatchRequest();
+            ArrayList<IncreaseQuestProgressBatchRequestItem> items = new ArrayList<>();
+
+            for (String playerId : matchPlayerIds) {
+                for (String questDefinitionId : playerQuests.get(playerId)) {
+                    IncreaseQuestProgressBatchRequestItem item = new IncreaseQuestProgressBatchRequestItem();
+                    item.setPlayerId(playerId);
+                    item.setQuestDefinitionId(questDefinitionId);
+                    item.setProgressMade(REQUIRED_PROGRESS);
+                    items.add(item);
+                }
+            }
+
+            request.setItems(items);
+            matchEnds.add(() -> post("/server/increasequestprogress", null, request, Void.class));
+        }
+
+        results.add(runScenario("match-end-burst", matchEnds));
+
+        // Reset claim rush.
+        List<String> rushPlayerIds = seedQuestsOfYesterday();
+        ArrayList<Runnable> claims = new ArrayList<>();
+
+        for (String playerId : rushPlayerIds) {
+            claims.add(() -> {
+                for (int c = 0; c < CATEGORIES; ++c) {
+                    post("/client/finishquest/" + getDefinitionId(c, 0), playerId, null, Void.class);
+                }
+
+                post("/client/createquests", playerId, null, CreateQuestsResponse.class);
+            });
+        }
+
+        results.add(runScenario("reset-claim-rush", claims));
+
+        return results;
+    }
+
+    private void putCatalog() {
+        PutQuestCategoriesRequest categoriesRequest = new PutQuestCategoriesRequest();
+        PutQuestDefinitionsRequest definitionsRequest = new PutQuestDefinitionsRequest();
+
+        ArrayList<PutQuestCategoriesRequestItem> categories = new ArrayList<>();
+        ArrayList<PutQuestDefinitionsRequestItem> definitions = new ArrayList<>();
+
+        for (int c = 0; c < CATEGORIES; ++c) {
+            PutQuestCategoriesRequestItem category = new PutQuestCategoriesRequestItem();
+            category.setId(getCategoryId(c));
+            categories.add(category);
+
+            for (int d = 0; d < DEFINITIONS_PER_CATEGORY; ++d) {
+                PutQuestDefinitionsRequestItem definition = new PutQuestDefinitionsRequestItem();
+                definition.setId(getDefinitionId(c, d));
+                definition.setCategory(getCategoryId(c));
+                definition.setRequiredProgress(REQUIRED_PROGRESS);
+                definition.setRewardItemDefinitionId("loadTestItem");
+                definition.setRewardItemCount(1);
+                definitions.add(definition);
+            }
+        }
+
+        categoriesRequest.setCategories(categories);
+        definitionsRequest.setQuestDefinitions(definitions);
+
+        restTemplate.put("/admin/questcategories", categoriesRequest);
+        restTemplate.put("/admin/questdefinitions", definitionsRequest);
+    }
+
+    /**
+     * Creates players whose completed quests have been generated before the last reset.
+     */
+    private List<String> seedQuestsOfYesterday() {
+        Timestamp yesterday = Timestamp.from(Instant.now().minus(1, ChronoUnit.DAYS));
+
+        ArrayList<String> playerIds = new ArrayList<>();
+        ArrayList<Object[]> questArgs = new ArrayList<>();
+        ArrayList<Object[]> generationArgs = new ArrayList<>();
+
+        for (int i = 0; i < PLAYERS; ++i) {
+            String playerId = "rushPlayer" + i;
+            playerIds.add(playerId);
+
+            for (int c = 0; c < CATEGORIES; ++c) {
+                questArgs.add(new Object[] { getDefinitionId(c, 0), playerId, REQUIRED_PROGRESS, yesterday });
+                generationArgs.add(new Object[] { playerId, getCategoryId(c), yesterday, yesterday });
+            }
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO quests_playerquest " +
+                "(definition_id, player_id, current_progress, generated_at) VALUES (?, ?, ?, ?)", questArgs);
+        jdbcTemplate.batchUpdate("INSERT INTO quests_playerquestgeneration " +
+                "(player_id, category_id, generated_at, last_seen_at) VALUES (?, ?, ?, ?)", generationArgs);
+
+        return playerIds;
+    }
+
+    private ScenarioResult runScenario(String scenario, List<Runnable> tasks) throws InterruptedException {
+        latencyNanos.clear();
+        errors.set(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        long queriesBefore = queryCounter.getQueries();
+        long start = System.nanoTime();
+
+        for (Runnable task : tasks) {
+            executor.execute(task);
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+
+        long durationNanos = System.nanoTime() - start;
+        long queries = queryCounter.getQueries() - queriesBefore;
+
+        long[] latencies = latencyNanos.stream().mapToLong(Long::longValue).toArray();
+        ScenarioResult result = new ScenarioResult(scenario, latencies, errors.get(), durationNanos, queries);
+
+        System.out.printf("%s: %d requests, %.1f/s, p50 %.1f ms, p99 %.1f ms, p999 %.1f ms, " +
+                        "%.2f queries/request, %.2f%% errors%n",
+                scenario, result.getRequests(), result.getThroughputPerSecond(), result.getP50Millis(),
+                result.getP99Millis(), result.getP999Millis(), result.getQueriesPerRequest(),
+                result.getErrorRate() * 100);
+
+        return result;
+    }
+
+    private <T> T post(String uri, String playerId, Object body, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        if (playerId != null) {
+            headers.set(HttpHeader.PLAYER_ID, playerId);
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            ResponseEntity<T> response = restTemplate.exchange(uri, HttpMethod.POST,
+                    new HttpEntity<>(body, headers), responseType);
+
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                errors.incrementAndGet();
+                return null;
+            }
+
+            return response.getBody();
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            return null;
+        } finally {
+            latencyNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private static void writeReport(List<ScenarioResult> results, long collectionRequests) throws IOException {
+        LinkedHashMap<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("players", PLAYERS);
+        configuration.put("concurrency", CONCURRENCY);
+        configuration.put("categories", CATEGORIES);
+        configuration.put("definitionsPerCategory", DEFINITIONS_PER_CATEGORY);
+        configuration.put("playersPerMatch", PLAYERS_PER_MATCH);
+        configuration.put("collectionLatencyMillis", COLLECTION_LATENCY_MILLIS);
+        configuration.put("datasourceUrl", DATASOURCE_URL);
+
+        LinkedHashMap<String, Object> report = new LinkedHashMap<>();
+        report.put("finishedAt", OffsetDateTime.now());
+        report.put("configuration", configuration);
+        report.put("scenarios", results);
+        report.put("collectionRequests", collectionRequests);
+
+        File reportFile = new File(REPORT);
+
+        if (reportFile.getParentFile() != null) {
+            reportFile.getParentFile().mkdirs();
+        }
+
+        new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .writerWithDefaultPrettyPrinter()
+                .writeValue(reportFile, report);
+
+        System.out.println("Report written to " + reportFile.getAbsolutePath());
+    }
+
+    private static String getCategoryId(int category) {
+        return "category" + category;
+    }
+
+    private static String getDefinitionId(int category, int definition) {
+        return "category" + category + "definition" + definition;
+    }
+}
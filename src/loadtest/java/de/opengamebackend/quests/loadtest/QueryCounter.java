@@ -0,0 +1,60 @@
+package de.opengamebackend.quests.loadtest;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts all SQL statements prepared through the application data source, including both JPA and plain JDBC
+ * access. JDBC batches count as a single statement.
+ */
+public class QueryCounter implements BeanPostProcessor {
+    private final AtomicLong queries = new AtomicLong();
+
+    public long getQueries() {
+        return queries.get();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource)) {
+            return bean;
+        }
+
+        DataSource dataSource = (DataSource)bean;
+
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DataSource.class },
+                (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    return result instanceof Connection ? countQueries((Connection)result) : result;
+                });
+    }
+
+    private Connection countQueries(Connection connection) {
+        return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                        case "prepareCall":
+                        case "createStatement":
+                            queries.incrementAndGet();
+                            break;
+                    }
+
+                    return invoke(connection, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.opengamebackend.quests.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a single load test scenario, as written to the report.
+ */
+public class ScenarioResult {
+    private final String scenario;
+    private final long requests;
+    private final long errors;
+    private final double durationSeconds;
+    private final double throughputPerSecond;
+    private final double errorRate;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double maxMillis;
+    private final double queriesPerRequest;
+
+    public ScenarioResult(String scenario, long[] latencyNanos, long errors, long durationNanos, long queries) {
+        long[] sortedLatencyNanos = latencyNanos.clone();
+        Arrays.sort(sortedLatencyNanos);
+
+        this.scenario = scenario;
+        this.requests = sortedLatencyNanos.length;
+        this.errors = errors;
+        this.durationSeconds = durationNanos / (double)TimeUnit.SECONDS.toNanos(1);
+        this.throughputPerSecond = requests / durationSeconds;
+        this.errorRate = requests > 0 ? errors / (double)requests : 0;
+        this.p50Millis = getPercentileMillis(sortedLatencyNanos, 0.5);
+        this.p99Millis = getPercentileMillis(sortedLatencyNanos, 0.99);
+        this.p999Millis = getPercentileMillis(sortedLatencyNanos, 0.999);
+        this.maxMillis = getPercentileMillis(sortedLatencyNanos, 1.0);
+        this.queriesPerRequest = requests > 0 ? queries / (double)requests : 0;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public double getThroughputPerSecond() {
+        return throughputPerSecond;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getP999Millis() {
+        return p999Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public double getQueriesPerRequest() {
+        return queriesPerRequest;
+    }
+
+    private static double getPercentileMillis(long[] sortedLatencyNanos, double percentile) {
+        if (sortedLatencyNanos.length == 0) {
+            return 0;
+        }
+
+        int index = (int)Math.ceil(percentile * sortedLatencyNanos.length) - 1;
+        long nanos = sortedLatencyNanos[Math.max(0, Math.min(index, sortedLatencyNanos.length - 1))];
+        return nanos / (double)TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,63 @@
+package de.opengamebackend.quests.loadtest;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the collection service, accepting all reward deliveries after a configurable delay.
+ */
+public class StubCollectionService implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong receivedRequests = new AtomicLong();
+
+    public StubCollectionService(long latencyMillis) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newCachedThreadPool();
+
+        server.createContext("/admin/collection/", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                while (body.read() >= 0) {
+                    // Drain request.
+                }
+            }
+
+            receivedRequests.incrementAndGet();
+
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public URI getUri() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    public long getReceivedRequests() {
+        return receivedRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -4,6 +4,7 @@ import de.opengamebackend.net.ApiException;
 import de.opengamebackend.net.ErrorResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
@@ -12,6 +13,17 @@ public class GlobalControllerExceptionHandler {
     @ExceptionHandler(ApiException.class)
     public ResponseEntity<ErrorResponse> handleApiException(ApiException e) {
         ErrorResponse errorResponse = new ErrorResponse(e.getErrorCode(), e.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        HttpStatus status = e.getErrorCode() == QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE
+                ? HttpStatus.PRECONDITION_FAILED
+                : HttpStatus.BAD_REQUEST;
+        return new ResponseEntity<>(errorResponse, status);
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException e) {
+        // Another admin has changed the same catalog item between our version check and our commit.
+        ErrorResponse errorResponse = new ErrorResponse(QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE,
+                QuestsApiErrors.QUEST_CATALOG_CONCURRENT_WRITE_MESSAGE);
+        return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED);
     }
 }
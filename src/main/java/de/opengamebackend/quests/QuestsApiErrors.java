@@ -0,0 +1,29 @@
+package de.opengamebackend.quests;
+
+/**
+ * Errors specific to the quests service, in addition to the shared {@link de.opengamebackend.net.ApiErrors}.
+ */
+public class QuestsApiErrors {
+    public static final int QUEST_CATALOG_VERSION_MISMATCH_CODE = 1000;
+    public static final String QUEST_CATALOG_VERSION_MISMATCH_MESSAGE =
+            "The quest catalog item has been changed by someone else. Current version: ";
+    public static final String QUEST_CATALOG_CONCURRENT_WRITE_MESSAGE =
+            "The quest catalog item has been changed by someone else at the same time. Reload it and try again.";
+    public static final String QUEST_CATALOG_ITEM_NOT_FOUND_MESSAGE =
+            "The quest catalog item does not exist, so it can't have the expected version.";
+
+    public static final int QUEST_CATEGORY_IN_USE_CODE = 1001;
+    public static final String QUEST_CATEGORY_IN_USE_MESSAGE = "Quest category still has quest definitions: ";
+
+    public static final int QUEST_DEFINITION_IN_USE_CODE = 1002;
+    public static final String QUEST_DEFINITION_IN_USE_MESSAGE = "Quest definition is still referenced by player quests: ";
+
+    public static final int IDEMPOTENCY_KEY_TOO_LONG_CODE = 1003;
+    public static final String IDEMPOTENCY_KEY_TOO_LONG_MESSAGE = "Idempotency key must be at most 100 characters long.";
+
+    public static final int INVALID_SELECTION_WEIGHT_CODE = 1004;
+    public static final String INVALID_SELECTION_WEIGHT_MESSAGE = "Selection weight must not be negative: ";
+
+    public static final int INVALID_QUESTS_PER_GENERATION_CODE = 1005;
+    public static final String INVALID_QUESTS_PER_GENERATION_MESSAGE = "Quests per generation must be at least 1: ";
+}
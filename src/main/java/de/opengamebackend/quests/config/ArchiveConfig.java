@@ -0,0 +1,61 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.quests.archive")
+public class ArchiveConfig {
+    /**
+     * Whether to periodically move completed player quests to the quest history. Safe to enable on all service
+     * instances, which take turns moving batches.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Interval between two scheduled archival runs.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    /**
+     * Time after completion before a player quest is moved to the quest history.
+     */
+    private Duration retention = Duration.ofDays(30);
+
+    /**
+     * Maximum number of player quests to move in a single transaction.
+     */
+    private int batchSize = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+}
@@ -0,0 +1,35 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.quests.catalog")
+public class CatalogConfig {
+    /**
+     * Maximum age of the in-memory quest catalog before it is reloaded from the database. Picks up catalog changes
+     * made through other service instances.
+     */
+    private Duration refreshInterval = Duration.ofMinutes(1);
+
+    /**
+     * Maximum number of changed quest definitions to write in a single JDBC batch when importing quest definitions.
+     */
+    private int importBatchSize = 1000;
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public int getImportBatchSize() {
+        return importBatchSize;
+    }
+
+    public void setImportBatchSize(int importBatchSize) {
+        this.importBatchSize = importBatchSize;
+    }
+}
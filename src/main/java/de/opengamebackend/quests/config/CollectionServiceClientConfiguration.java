@@ -0,0 +1,90 @@
+package de.opengamebackend.quests.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * Provides the HTTP client for talking to the collection service, sharing pooled keep-alive connections across
+ * all requests, along with the bulkhead and circuit breaker that protect this service from slow or failing
+ * collection service instances.
+ */
+@Configuration
+public class CollectionServiceClientConfiguration {
+    public static final String COLLECTION_SERVICE_RESILIENCE_NAME = "collectionService";
+
+    @Bean
+    public CloseableHttpClient collectionHttpClient(CollectionServiceConfig collectionServiceConfig) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int)collectionServiceConfig.getConnectTimeout().toMillis())
+                .setConnectionRequestTimeout((int)collectionServiceConfig.getConnectTimeout().toMillis())
+                .setSocketTimeout((int)collectionServiceConfig.getReadTimeout().toMillis())
+                .build();
+
+        return HttpClients.custom()
+                .setMaxConnPerRoute(collectionServiceConfig.getMaxConnectionsPerInstance())
+                .setMaxConnTotal(collectionServiceConfig.getMaxConnections())
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .build();
+    }
+
+    @Bean
+    public RestTemplate collectionRestTemplate(RestTemplateBuilder restTemplateBuilder,
+                                               CloseableHttpClient collectionHttpClient) {
+        return restTemplateBuilder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(collectionHttpClient))
+                .build();
+    }
+
+    @Bean
+    public Bulkhead collectionBulkhead(CollectionServiceConfig collectionServiceConfig, MeterRegistry meterRegistry) {
+        BulkheadConfig bulkheadConfig = BulkheadConfig.custom()
+                .maxConcurrentCalls(collectionServiceConfig.getMaxConcurrentCalls())
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(bulkheadConfig);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+
+        return bulkheadRegistry.bulkhead(COLLECTION_SERVICE_RESILIENCE_NAME);
+    }
+
+    @Bean
+    public CircuitBreaker collectionCircuitBreaker(CollectionServiceConfig collectionServiceConfig,
+                                                   MeterRegistry meterRegistry) {
+        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .failureRateThreshold(collectionServiceConfig.getFailureRateThreshold())
+                .slowCallRateThreshold(collectionServiceConfig.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(collectionServiceConfig.getSlowCallDuration())
+                .slidingWindowSize(collectionServiceConfig.getSlidingWindowSize())
+                .minimumNumberOfCalls(collectionServiceConfig.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(collectionServiceConfig.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(collectionServiceConfig.getPermittedCallsInHalfOpenState())
+                // Rejected requests don't indicate that the collection service is unhealthy.
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build();
+
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+
+        return circuitBreakerRegistry.circuitBreaker(COLLECTION_SERVICE_RESILIENCE_NAME);
+    }
+}
@@ -0,0 +1,177 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.quests.collection-service")
+public class CollectionServiceConfig {
+    /**
+     * Maximum time to wait for establishing a connection to the collection service.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Maximum time to wait for a response of the collection service.
+     */
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Maximum number of pooled connections to each instance of the collection service.
+     */
+    private int maxConnectionsPerInstance = 50;
+
+    /**
+     * Maximum number of pooled connections to all instances of the collection service.
+     */
+    private int maxConnections = 200;
+
+    /**
+     * Interval between two refreshes of the locally cached collection service instances.
+     */
+    private Duration discoveryRefreshInterval = Duration.ofSeconds(10);
+
+    /**
+     * Maximum number of concurrent calls to the collection service. Further calls are rejected immediately.
+     */
+    private int maxConcurrentCalls = 20;
+
+    /**
+     * Percentage of failed calls at which the circuit breaker opens, and further calls are rejected immediately.
+     */
+    private float failureRateThreshold = 50;
+
+    /**
+     * Percentage of slow calls at which the circuit breaker opens, and further calls are rejected immediately.
+     */
+    private float slowCallRateThreshold = 50;
+
+    /**
+     * Duration after which a call to the collection service is considered slow.
+     */
+    private Duration slowCallDuration = Duration.ofSeconds(2);
+
+    /**
+     * Number of most recent calls to compute the failure and slow call rates from.
+     */
+    private int slidingWindowSize = 50;
+
+    /**
+     * Minimum number of calls before the circuit breaker computes failure and slow call rates.
+     */
+    private int minimumNumberOfCalls = 20;
+
+    /**
+     * Time to reject calls after the circuit breaker has opened, before permitting trial calls again.
+     */
+    private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+    /**
+     * Number of trial calls to decide whether to close the circuit breaker again, or keep it open.
+     */
+    private int permittedCallsInHalfOpenState = 5;
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getMaxConnectionsPerInstance() {
+        return maxConnectionsPerInstance;
+    }
+
+    public void setMaxConnectionsPerInstance(int maxConnectionsPerInstance) {
+        this.maxConnectionsPerInstance = maxConnectionsPerInstance;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public Duration getDiscoveryRefreshInterval() {
+        return discoveryRefreshInterval;
+    }
+
+    public void setDiscoveryRefreshInterval(Duration discoveryRefreshInterval) {
+        this.discoveryRefreshInterval = discoveryRefreshInterval;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public float getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(float failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public float getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public Duration getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    public void setSlowCallDuration(Duration slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+    }
+
+    public Duration getWaitDurationInOpenState() {
+        return waitDurationInOpenState;
+    }
+
+    public void setWaitDurationInOpenState(Duration waitDurationInOpenState) {
+        this.waitDurationInOpenState = waitDurationInOpenState;
+    }
+
+    public int getPermittedCallsInHalfOpenState() {
+        return permittedCallsInHalfOpenState;
+    }
+
+    public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+    }
+}
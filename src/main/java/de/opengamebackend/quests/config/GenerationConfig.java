@@ -0,0 +1,64 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.quests.generation")
+public class GenerationConfig {
+    /**
+     * Time zone to apply the generation hour of day and day of week of quest categories in.
+     */
+    private ZoneId timeZone = ZoneOffset.UTC;
+
+    /**
+     * Maximum number of players to keep the latest quest generation times of in memory.
+     */
+    private long cacheMaximumSize = 100000;
+
+    /**
+     * Time after the last login of a player before the latest quest generation times of that player are evicted
+     * from memory.
+     */
+    private Duration cacheExpireAfterAccess = Duration.ofHours(1);
+
+    /**
+     * Number of most recent quest generations of a category whose quests a player won't get again, as long as the
+     * category has other quests. At most 8 quests are remembered per player and category.
+     */
+    private int noRepeatWindow = 1;
+
+    public ZoneId getTimeZone() {
+        return timeZone;
+    }
+
+    public void setTimeZone(ZoneId timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    public long getCacheMaximumSize() {
+        return cacheMaximumSize;
+    }
+
+    public void setCacheMaximumSize(long cacheMaximumSize) {
+        this.cacheMaximumSize = cacheMaximumSize;
+    }
+
+    public Duration getCacheExpireAfterAccess() {
+        return cacheExpireAfterAccess;
+    }
+
+    public void setCacheExpireAfterAccess(Duration cacheExpireAfterAccess) {
+        this.cacheExpireAfterAccess = cacheExpireAfterAccess;
+    }
+
+    public int getNoRepeatWindow() {
+        return noRepeatWindow;
+    }
+
+    public void setNoRepeatWindow(int noRepeatWindow) {
+        this.noRepeatWindow = noRepeatWindow;
+    }
+}
@@ -0,0 +1,102 @@
+package de.opengamebackend.quests.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocationResult.State;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds the metrics on top of the request metrics provided by Spring Boot: timers of all methods annotated with
+ * {@link io.micrometer.core.annotation.Timed}, timers of all repository methods, and the number of SQL statements
+ * issued per request, counted at the data source.
+ */
+@Configuration
+public class MetricsConfiguration implements WebMvcConfigurer {
+    private final SqlStatementCounter sqlStatementCounter;
+
+    public MetricsConfiguration(MeterRegistry meterRegistry) {
+        this.sqlStatementCounter = new SqlStatementCounter(meterRegistry);
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoryMetricsBeanPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>)bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addInvocationListener(new RepositoryMetricsListener(meterRegistry)));
+                }
+
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor sqlStatementCounterBeanPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? SqlStatementCounter.countStatements((DataSource)bean) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlStatementCounter);
+    }
+
+    /**
+     * Times the invocations of the methods of a single repository.
+     */
+    private static class RepositoryMetricsListener implements RepositoryMethodInvocationListener {
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        /**
+         * Timers of the repository, by method and outcome. Registered on first invocation, instead of looking them
+         * up in the registry on every invocation.
+         */
+        private final Map<Method, Map<State, Timer>> timers = new ConcurrentHashMap<>();
+
+        RepositoryMetricsListener(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public void afterInvocation(RepositoryMethodInvocation invocation) {
+            timers.computeIfAbsent(invocation.getMethod(), method -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(invocation.getResult().getState(), state -> createTimer(invocation, state))
+                    .record(invocation.getDuration(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+
+        private Timer createTimer(RepositoryMethodInvocation invocation, State state) {
+            return Timer.builder("quests.repository.invocations")
+                    .description("Time taken by repository method invocations.")
+                    .tag("repository", invocation.getRepositoryInterface().getSimpleName())
+                    .tag("method", invocation.getMethod().getName())
+                    .tag("outcome", state.name())
+                    .register(meterRegistry.getObject());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.quests.player-affinity")
+public class PlayerAffinityConfig {
+    /**
+     * Whether to assign players to service instances with a consistent hash ring, and to route requests of players
+     * to the instances owning them.
+     */
+    private boolean enabled;
+
+    /**
+     * How to handle requests of players owned by other service instances.
+     */
+    private Mode mode = Mode.HINT;
+
+    /**
+     * Number of points on the hash ring per service instance. More points spread players more evenly.
+     */
+    private int virtualNodes = 128;
+
+    /**
+     * Interval between two refreshes of the hash ring from service discovery.
+     */
+    private Duration refreshInterval = Duration.ofSeconds(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public enum Mode {
+        /**
+         * Handles the request, and tells the caller about the owning instance in a response header.
+         */
+        HINT,
+
+        /**
+         * Redirects the caller to the owning instance, preserving method and body. Requests are redirected at most
+         * once, and handled like in {@link #HINT} mode otherwise.
+         */
+        REDIRECT
+    }
+}
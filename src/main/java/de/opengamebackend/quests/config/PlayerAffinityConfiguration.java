@@ -0,0 +1,30 @@
+package de.opengamebackend.quests.config;
+
+import de.opengamebackend.quests.controller.PlayerAffinityRing;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Routes player requests to the service instances owning the players, if player affinity is enabled.
+ */
+@Configuration
+public class PlayerAffinityConfiguration implements WebMvcConfigurer {
+    private final PlayerAffinityRing playerAffinityRing;
+    private final PlayerAffinityConfig playerAffinityConfig;
+
+    public PlayerAffinityConfiguration(PlayerAffinityRing playerAffinityRing,
+                                       PlayerAffinityConfig playerAffinityConfig) {
+        this.playerAffinityRing = playerAffinityRing;
+        this.playerAffinityConfig = playerAffinityConfig;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!playerAffinityConfig.isEnabled()) {
+            return;
+        }
+
+        registry.addInterceptor(new PlayerAffinityInterceptor(playerAffinityRing, playerAffinityConfig));
+    }
+}
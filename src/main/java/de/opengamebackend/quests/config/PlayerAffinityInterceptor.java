@@ -0,0 +1,84 @@
+package de.opengamebackend.quests.config;
+
+import com.google.common.base.Strings;
+import de.opengamebackend.net.HttpHeader;
+import de.opengamebackend.quests.controller.PlayerAffinityRing;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * Routes requests of players owned by other service instances, either by telling the caller about the owning
+ * instance, or by redirecting the caller there. Requests without player are always handled locally.
+ * <p>
+ * Redirected requests are marked with a query parameter, and always handled by the instance they have been
+ * redirected to. Instances with different views of the hash ring, e.g. while instances are starting or stopping,
+ * thus can't redirect requests back and forth.
+ */
+public class PlayerAffinityInterceptor implements HandlerInterceptor {
+    public static final String PLAYER_INSTANCE_HEADER = "Player-Instance";
+    public static final String REDIRECTED_PARAMETER = "playerAffinityRedirected";
+
+    private static final String PLAYER_ID_PATH_VARIABLE = "playerId";
+
+    private final PlayerAffinityRing playerAffinityRing;
+    private final PlayerAffinityConfig playerAffinityConfig;
+
+    public PlayerAffinityInterceptor(PlayerAffinityRing playerAffinityRing,
+                                     PlayerAffinityConfig playerAffinityConfig) {
+        this.playerAffinityRing = playerAffinityRing;
+        this.playerAffinityConfig = playerAffinityConfig;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String playerId = getPlayerId(request);
+
+        if (Strings.isNullOrEmpty(playerId)) {
+            return true;
+        }
+
+        ServiceInstance owner = playerAffinityRing.getOwner(playerId);
+
+        if (owner == null || playerAffinityRing.isLocal(owner)) {
+            return true;
+        }
+
+        if (playerAffinityConfig.getMode() == PlayerAffinityConfig.Mode.REDIRECT
+                && request.getParameter(REDIRECTED_PARAMETER) == null) {
+            String location = UriComponentsBuilder.fromUri(owner.getUri())
+                    .path(request.getRequestURI())
+                    .query(request.getQueryString())
+                    .queryParam(REDIRECTED_PARAMETER, true)
+                    .build(true)
+                    .toUriString();
+
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, location);
+            return false;
+        }
+
+        response.setHeader(PLAYER_INSTANCE_HEADER, owner.getUri().toString());
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String getPlayerId(HttpServletRequest request) {
+        String playerId = request.getHeader(HttpHeader.PLAYER_ID);
+
+        if (playerId != null) {
+            return playerId;
+        }
+
+        Map<String, String> pathVariables =
+                (Map<String, String>)request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return pathVariables != null ? pathVariables.get(PLAYER_ID_PATH_VARIABLE) : null;
+    }
+}
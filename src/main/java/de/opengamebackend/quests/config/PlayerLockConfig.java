@@ -0,0 +1,20 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.quests.player-locks")
+public class PlayerLockConfig {
+    /**
+     * Number of independently locked stripes that players are spread across. Mutations of quests of players in the
+     * same stripe are serialized within this service instance.
+     */
+    private int stripes = 1024;
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+}
@@ -0,0 +1,74 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.quests.pre-generation")
+public class PreGenerationConfig {
+    /**
+     * Whether to generate the quests of the next period for recently active players ahead of each reset, instead of
+     * when they log in after the reset.
+     */
+    private boolean enabled;
+
+    /**
+     * Time before each reset to start generating the quests of the next period.
+     */
+    private Duration leadTime = Duration.ofMinutes(5);
+
+    /**
+     * Interval between two checks for upcoming resets.
+     */
+    private Duration checkInterval = Duration.ofMinutes(1);
+
+    /**
+     * Maximum number of players to generate quests for in a single transaction.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Maximum number of transactions to generate quests in at the same time.
+     */
+    private int threads = 4;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getLeadTime() {
+        return leadTime;
+    }
+
+    public void setLeadTime(Duration leadTime) {
+        this.leadTime = leadTime;
+    }
+
+    public Duration getCheckInterval() {
+        return checkInterval;
+    }
+
+    public void setCheckInterval(Duration checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+}
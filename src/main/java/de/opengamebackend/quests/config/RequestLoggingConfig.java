@@ -0,0 +1,79 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.quests.request-logging")
+public class RequestLoggingConfig {
+    /**
+     * Fraction of successful requests to log, without bodies.
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * Fraction of successful requests to log per endpoint, by path prefix. Overrides the default sample rate for
+     * all paths starting with that prefix.
+     */
+    private Map<String, Double> endpointSampleRates = new HashMap<>();
+
+    /**
+     * Duration after which requests are considered slow, and always logged with bodies.
+     */
+    private Duration slowThreshold = Duration.ofSeconds(1);
+
+    /**
+     * Response status from which requests are considered failed, and always logged with bodies.
+     */
+    private int failureStatus = 400;
+
+    /**
+     * Path prefixes of endpoints whose request bodies are never buffered nor logged, e.g. because they may be very
+     * large.
+     */
+    private Set<String> unbufferedPaths = new HashSet<>();
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public Map<String, Double> getEndpointSampleRates() {
+        return endpointSampleRates;
+    }
+
+    public void setEndpointSampleRates(Map<String, Double> endpointSampleRates) {
+        this.endpointSampleRates = endpointSampleRates;
+    }
+
+    public Duration getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(Duration slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
+
+    public int getFailureStatus() {
+        return failureStatus;
+    }
+
+    public void setFailureStatus(int failureStatus) {
+        this.failureStatus = failureStatus;
+    }
+
+    public Set<String> getUnbufferedPaths() {
+        return unbufferedPaths;
+    }
+
+    public void setUnbufferedPaths(Set<String> unbufferedPaths) {
+        this.unbufferedPaths = unbufferedPaths;
+    }
+}
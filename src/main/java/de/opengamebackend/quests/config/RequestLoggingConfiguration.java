@@ -0,0 +1,16 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.Strategy;
+
+/**
+ * Replaces the default Logbook strategy of logging every request with its body.
+ */
+@Configuration
+public class RequestLoggingConfiguration {
+    @Bean
+    public Strategy sampledRequestLogStrategy(RequestLoggingConfig requestLoggingConfig) {
+        return new SampledRequestLogStrategy(requestLoggingConfig);
+    }
+}
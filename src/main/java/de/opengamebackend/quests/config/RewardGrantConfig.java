@@ -0,0 +1,128 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.quests.reward-grants")
+public class RewardGrantConfig {
+    /**
+     * Interval between two checks for reward grants to deliver.
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /**
+     * Maximum number of reward grants to deliver per check.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Time to wait after a quest has been finished before delivering its reward, to allow rewards of further quests
+     * to be delivered together with it. Bounds the additional delivery latency of each reward grant.
+     */
+    private Duration batchWindow = Duration.ofMillis(100);
+
+    /**
+     * Maximum number of reward grants of the same player and item to deliver with a single call to the collection
+     * service.
+     */
+    private int maxGrantsPerDelivery = 50;
+
+    /**
+     * Number of calls to the collection service to make concurrently while delivering reward grants.
+     */
+    private int deliveryThreads = 4;
+
+    /**
+     * Time to wait before retrying to deliver a reward grant for the first time. Doubled for every further attempt.
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Maximum time to wait before retrying to deliver a reward grant.
+     */
+    private Duration maxBackoff = Duration.ofMinutes(10);
+
+    /**
+     * Number of failed attempts after which a reward grant is given up, and needs to be delivered manually.
+     */
+    private int maxAttempts = 20;
+
+    /**
+     * Time after which a reward grant claimed by a delivery attempt is retried if that attempt didn't report back,
+     * e.g. because the service instance stopped.
+     */
+    private Duration leaseTimeout = Duration.ofMinutes(1);
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getBatchWindow() {
+        return batchWindow;
+    }
+
+    public void setBatchWindow(Duration batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    public int getMaxGrantsPerDelivery() {
+        return maxGrantsPerDelivery;
+    }
+
+    public void setMaxGrantsPerDelivery(int maxGrantsPerDelivery) {
+        this.maxGrantsPerDelivery = maxGrantsPerDelivery;
+    }
+
+    public int getDeliveryThreads() {
+        return deliveryThreads;
+    }
+
+    public void setDeliveryThreads(int deliveryThreads) {
+        this.deliveryThreads = deliveryThreads;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getLeaseTimeout() {
+        return leaseTimeout;
+    }
+
+    public void setLeaseTimeout(Duration leaseTimeout) {
+        this.leaseTimeout = leaseTimeout;
+    }
+}
@@ -0,0 +1,75 @@
+package de.opengamebackend.quests.config;
+
+import org.zalando.logbook.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logs failed and slow requests with their bodies, and only a sample of all other requests without bodies.
+ * Requests and responses are logged together after the response is known.
+ * <p>
+ * Bodies are still buffered for every request except for configured unbuffered paths, as it's not known beforehand
+ * whether it will fail. Serializing and writing the log entries, which make up most of the cost of request logging,
+ * is skipped for requests that are not logged.
+ */
+public class SampledRequestLogStrategy implements Strategy {
+    private final RequestLoggingConfig requestLoggingConfig;
+
+    /**
+     * Path prefixes with their sample rates, longest prefixes first.
+     */
+    private final List<Map.Entry<String, Double>> endpointSampleRates;
+
+    public SampledRequestLogStrategy(RequestLoggingConfig requestLoggingConfig) {
+        this.requestLoggingConfig = requestLoggingConfig;
+
+        this.endpointSampleRates = new ArrayList<>(requestLoggingConfig.getEndpointSampleRates().entrySet());
+        this.endpointSampleRates.sort(Comparator.comparingInt(
+                (Map.Entry<String, Double> e) -> e.getKey().length()).reversed());
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        for (String unbufferedPath : requestLoggingConfig.getUnbufferedPaths()) {
+            if (request.getPath().startsWith(unbufferedPath)) {
+                return request.withoutBody();
+            }
+        }
+
+        return request.withBody();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+        // Wait for the response to decide whether to log the request.
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        if (response.getStatus() >= requestLoggingConfig.getFailureStatus()
+                || correlation.getDuration().compareTo(requestLoggingConfig.getSlowThreshold()) >= 0) {
+            sink.writeBoth(correlation, request, response);
+            return;
+        }
+
+        if (ThreadLocalRandom.current().nextDouble() < getSampleRate(request.getPath())) {
+            sink.writeBoth(correlation, request.withoutBody(), response.withoutBody());
+        }
+    }
+
+    double getSampleRate(String path) {
+        for (Map.Entry<String, Double> endpointSampleRate : endpointSampleRates) {
+            if (path.startsWith(endpointSampleRate.getKey())) {
+                return endpointSampleRate.getValue();
+            }
+        }
+
+        return requestLoggingConfig.getSampleRate();
+    }
+}
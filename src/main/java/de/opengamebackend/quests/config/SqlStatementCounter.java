@@ -0,0 +1,79 @@
+package de.opengamebackend.quests.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the SQL statements prepared through the application data source while handling each request, and records
+ * them per endpoint. Includes both JPA and plain JDBC access. JDBC batches count as a single statement.
+ */
+public class SqlStatementCounter implements HandlerInterceptor {
+    private static final ThreadLocal<int[]> REQUEST_STATEMENTS = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Statement summaries by endpoint. Registered on first request, instead of looking them up in the registry on
+     * every request.
+     */
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public SqlStatementCounter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Wraps the passed data source, counting the statements prepared on its connections for the current request.
+     * Closing the returned data source closes the passed one.
+     */
+    public static DataSource countStatements(DataSource dataSource) {
+        return new StatementCountingDataSource(dataSource);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        REQUEST_STATEMENTS.set(new int[1]);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        int[] statements = REQUEST_STATEMENTS.get();
+        REQUEST_STATEMENTS.remove();
+
+        if (statements == null) {
+            return;
+        }
+
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+        summaries.computeIfAbsent(uri != null ? uri.toString() : "UNKNOWN", this::createSummary)
+                .record(statements[0]);
+    }
+
+    static void countStatement() {
+        int[] statements = REQUEST_STATEMENTS.get();
+
+        if (statements != null) {
+            ++statements[0];
+        }
+    }
+
+    private DistributionSummary createSummary(String uri) {
+        return DistributionSummary.builder("quests.http.server.statements")
+                .description("Number of SQL statements issued per request.")
+                .baseUnit("statements")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,40 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hands out connections that count the statements prepared on them for {@link SqlStatementCounter}.
+ * <p>
+ * Closing this data source closes the target data source, so that replacing a pooled data source bean with this one
+ * still shuts down the pool with the application context.
+ */
+class StatementCountingDataSource extends DelegatingDataSource implements Closeable {
+    StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new StatementCountingConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return new StatementCountingConnection(super.getConnection(username, password));
+    }
+
+    @Override
+    public void close() throws IOException {
+        DataSource targetDataSource = obtainTargetDataSource();
+
+        if (targetDataSource instanceof Closeable) {
+            ((Closeable)targetDataSource).close();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package de.opengamebackend.quests.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.quests.progress.write-behind")
+public class WriteBehindConfig {
+    /**
+     * Whether to buffer quest progress in memory and write it to the database periodically, instead of updating
+     * the database for every progress increase.
+     */
+    private boolean enabled;
+
+    /**
+     * Interval between two scheduled flushes of buffered quest progress.
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * Number of buffered quests that triggers a flush before the next scheduled one.
+     */
+    private int flushThreshold = 10000;
+
+    /**
+     * Maximum number of buffered quests to write in a single transaction.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Number of independently locked stripes of the progress buffer.
+     */
+    private int stripes = 64;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    public void setFlushThreshold(int flushThreshold) {
+        this.flushThreshold = flushThreshold;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+}
@@ -3,7 +3,15 @@ package de.opengamebackend.quests.controller;
 import de.opengamebackend.collection.model.requests.AddCollectionItemsRequest;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
+import de.opengamebackend.quests.config.CollectionServiceConfig;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.http.HttpEntity;
@@ -12,37 +20,205 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class CollectionService {
-    private DiscoveryClient discoveryClient;
+    private static final Logger logger = LoggerFactory.getLogger(CollectionService.class);
+
+    static final String SERVICE_ID = "open-game-backend-collection";
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final DiscoveryClient discoveryClient;
+    private final RestTemplate restTemplate;
+    private final CollectionServiceConfig collectionServiceConfig;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+
+    private final Timer successfulCallTimer;
+    private final Timer failedCallTimer;
+
+    /**
+     * Locally cached collection service instances, refreshed in the background.
+     */
+    private volatile List<ServiceInstance> instances;
+
+    /**
+     * Number of requests currently waiting for a response, by instance URI.
+     */
+    private final ConcurrentHashMap<URI, AtomicInteger> outstandingRequests = new ConcurrentHashMap<>();
+    private final AtomicInteger nextInstance = new AtomicInteger();
+
+    private ScheduledExecutorService scheduler;
 
     @Autowired
-    public CollectionService(DiscoveryClient discoveryClient) {
+    public CollectionService(DiscoveryClient discoveryClient,
+                             @Qualifier("collectionRestTemplate") RestTemplate restTemplate,
+                             CollectionServiceConfig collectionServiceConfig,
+                             @Qualifier("collectionBulkhead") Bulkhead bulkhead,
+                             @Qualifier("collectionCircuitBreaker") CircuitBreaker circuitBreaker,
+                             MeterRegistry meterRegistry) {
         this.discoveryClient = discoveryClient;
+        this.restTemplate = restTemplate;
+        this.collectionServiceConfig = collectionServiceConfig;
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+
+        this.successfulCallTimer = createCallTimer(meterRegistry, "success");
+        this.failedCallTimer = createCallTimer(meterRegistry, "failure");
+
+        this.circuitBreaker.getEventPublisher().onStateTransition(event ->
+                logger.warn("Collection service circuit breaker changed from {} to {}.",
+                        event.getStateTransition().getFromState(), event.getStateTransition().getToState()));
     }
 
-    public void addCollectionItems(String playerId, AddCollectionItemsRequest request) throws ApiException {
-        // Locate service.
-        List<ServiceInstance> instances = this.discoveryClient.getInstances("open-game-backend-collection");
+    @PostConstruct
+    public void start() {
+        long refreshIntervalMillis = collectionServiceConfig.getDiscoveryRefreshInterval().toMillis();
 
-        if (instances.isEmpty()) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "collection-service-discovery"));
+        scheduler.scheduleWithFixedDelay(this::refreshInstancesQuietly, refreshIntervalMillis, refreshIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Adds the specified items to the collection of the passed player. Fails fast without calling the collection
+     * service if too many calls are in progress already, or if recent calls have mostly failed or been slow.
+     *
+     * @throws ApiException With {@link ApiErrors#COLLECTION_SERVICE_UNAVAILABLE_CODE} if the collection service has
+     *                      not been called.
+     */
+    public void addCollectionItems(String playerId, AddCollectionItemsRequest request, String idempotencyKey)
+            throws ApiException {
+        // Limit concurrent calls, and stop calling the service while it's unhealthy.
+        if (!bulkhead.tryAcquirePermission()) {
             throw new ApiException(ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_CODE,
                     ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_MESSAGE);
         }
 
-        ServiceInstance instance = instances.get(0);
-        URI serviceUri = instance.getUri();
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                throw new ApiException(ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_CODE,
+                        ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_MESSAGE);
+            }
+
+            long start = System.nanoTime();
+
+            try {
+                send(playerId, request, idempotencyKey);
+            } catch (ApiException | RuntimeException e) {
+                long duration = System.nanoTime() - start;
+                failedCallTimer.record(duration, TimeUnit.NANOSECONDS);
+                circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, e);
+                throw e;
+            }
+
+            long duration = System.nanoTime() - start;
+            successfulCallTimer.record(duration, TimeUnit.NANOSECONDS);
+            circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+        } finally {
+            bulkhead.onComplete();
+        }
+    }
+
+    private void send(String playerId, AddCollectionItemsRequest request, String idempotencyKey)
+            throws ApiException {
+        // Locate service.
+        URI serviceUri = selectInstance();
 
         // Send request.
-        String relativeUri = "/admin/collection/" + playerId + "/items";
+        // Keep the player out of the URI template, so that client metrics aren't tagged per player.
+        String relativeUri = "/admin/collection/{playerId}/items";
         HttpHeaders httpHeaders = new HttpHeaders();
         httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        httpHeaders.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
 
         HttpEntity<AddCollectionItemsRequest> httpEntity = new HttpEntity<>(request, httpHeaders);
-        RestTemplate restTemplate = new RestTemplate();
-        restTemplate.postForLocation(serviceUri + relativeUri, httpEntity);
+        AtomicInteger instanceOutstandingRequests =
+                outstandingRequests.computeIfAbsent(serviceUri, uri -> new AtomicInteger());
+
+        instanceOutstandingRequests.incrementAndGet();
+
+        try {
+            restTemplate.postForLocation(serviceUri + relativeUri, httpEntity, playerId);
+        } finally {
+            instanceOutstandingRequests.decrementAndGet();
+        }
+    }
+
+    /**
+     * Picks the instance with the fewest outstanding requests, going round-robin among instances that are equally
+     * busy.
+     */
+    URI selectInstance() throws ApiException {
+        List<ServiceInstance> currentInstances = instances;
+
+        if (currentInstances == null) {
+            currentInstances = refreshInstances();
+        }
+
+        if (currentInstances.isEmpty()) {
+            throw new ApiException(ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_CODE,
+                    ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_MESSAGE);
+        }
+
+        int instanceCount = currentInstances.size();
+        int start = Math.floorMod(nextInstance.getAndIncrement(), instanceCount);
+
+        URI selectedUri = null;
+        int selectedOutstandingRequests = Integer.MAX_VALUE;
+
+        for (int i = 0; i < instanceCount; ++i) {
+            URI uri = currentInstances.get((start + i) % instanceCount).getUri();
+            AtomicInteger instanceOutstandingRequests = outstandingRequests.get(uri);
+            int requests = instanceOutstandingRequests != null ? instanceOutstandingRequests.get() : 0;
+
+            if (requests < selectedOutstandingRequests) {
+                selectedUri = uri;
+                selectedOutstandingRequests = requests;
+            }
+        }
+
+        return selectedUri;
+    }
+
+    private static Timer createCallTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("quests.collection.calls")
+                .description("Time taken by calls to the collection service.")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private List<ServiceInstance> refreshInstances() {
+        List<ServiceInstance> newInstances = new ArrayList<>(discoveryClient.getInstances(SERVICE_ID));
+        instances = newInstances;
+
+        // Forget about instances that are gone.
+        outstandingRequests.keySet().removeIf(uri -> newInstances.stream().noneMatch(i -> i.getUri().equals(uri)));
+
+        return newInstances;
+    }
+
+    private void refreshInstancesQuietly() {
+        try {
+            refreshInstances();
+        } catch (RuntimeException e) {
+            // Keep using the known instances until discovery is available again.
+            logger.warn("Failed to refresh collection service instances.", e);
+        }
     }
 }
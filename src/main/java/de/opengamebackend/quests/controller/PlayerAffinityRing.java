@@ -0,0 +1,145 @@
+package de.opengamebackend.quests.controller;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import de.opengamebackend.quests.config.PlayerAffinityConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assigns players to the registered instances of this service with a consistent hash ring, so that adding or
+ * removing an instance only moves the players of a single arc of the ring.
+ */
+@Service
+public class PlayerAffinityRing {
+    private static final Logger logger = LoggerFactory.getLogger(PlayerAffinityRing.class);
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final DiscoveryClient discoveryClient;
+    private final PlayerAffinityConfig playerAffinityConfig;
+    private final String serviceId;
+    private final String localInstanceKey;
+
+    /**
+     * Instances by positions of their virtual nodes on the ring. Empty if this instance isn't registered (yet).
+     */
+    private volatile NavigableMap<Long, ServiceInstance> ring = Collections.emptyNavigableMap();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public PlayerAffinityRing(DiscoveryClient discoveryClient, PlayerAffinityConfig playerAffinityConfig,
+                              @Value("${spring.application.name}") String serviceId,
+                              ObjectProvider<Registration> registration) {
+        this.discoveryClient = discoveryClient;
+        this.playerAffinityConfig = playerAffinityConfig;
+        this.serviceId = serviceId;
+
+        Registration localInstance = registration.getIfAvailable();
+        this.localInstanceKey = localInstance != null ? getInstanceKey(localInstance) : null;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        long refreshIntervalMillis = playerAffinityConfig.getRefreshInterval().toMillis();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "player-affinity-discovery"));
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return playerAffinityConfig.isEnabled();
+    }
+
+    /**
+     * Gets the service instance owning the specified player, or null if players aren't assigned to instances
+     * currently.
+     */
+    public ServiceInstance getOwner(String playerId) {
+        NavigableMap<Long, ServiceInstance> currentRing = ring;
+
+        if (currentRing.isEmpty()) {
+            return null;
+        }
+
+        Map.Entry<Long, ServiceInstance> node = currentRing.ceilingEntry(hash(playerId));
+        return node != null ? node.getValue() : currentRing.firstEntry().getValue();
+    }
+
+    public boolean isLocal(ServiceInstance instance) {
+        return getInstanceKey(instance).equals(localInstanceKey);
+    }
+
+    void refresh() {
+        List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+
+        // Serve all players locally until this instance has been registered, instead of routing them all elsewhere.
+        if (localInstanceKey == null || instances.stream().noneMatch(this::isLocal)) {
+            ring = Collections.emptyNavigableMap();
+            return;
+        }
+
+        TreeMap<Long, ServiceInstance> newRing = new TreeMap<>();
+
+        for (ServiceInstance instance : instances) {
+            String instanceKey = getInstanceKey(instance);
+
+            for (int i = 0; i < playerAffinityConfig.getVirtualNodes(); ++i) {
+                newRing.put(hash(instanceKey + "#" + i), instance);
+            }
+        }
+
+        ring = newRing;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // Keep using the known instances until discovery is available again.
+            logger.warn("Failed to refresh player affinity ring.", e);
+        }
+    }
+
+    private static String getInstanceKey(ServiceInstance instance) {
+        return instance.getInstanceId() != null
+                ? instance.getInstanceId()
+                : instance.getHost() + ":" + instance.getPort();
+    }
+
+    private static long hash(String key) {
+        return HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+}
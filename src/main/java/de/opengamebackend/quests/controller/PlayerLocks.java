@@ -0,0 +1,51 @@
+package de.opengamebackend.quests.controller;
+
+import com.google.common.util.concurrent.Striped;
+import de.opengamebackend.quests.config.PlayerLockConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Serializes concurrent quest mutations of the same player within this service instance, without serializing
+ * mutations of different players. Players are spread across a fixed number of lock stripes.
+ */
+@Service
+public class PlayerLocks {
+    private final Striped<Lock> locks;
+
+    @Autowired
+    public PlayerLocks(PlayerLockConfig playerLockConfig) {
+        this.locks = Striped.lock(playerLockConfig.getStripes());
+    }
+
+    /**
+     * Locks the specified player until the current transaction has been completed, so that concurrent transactions
+     * of the same player see its changes after they have been committed.
+     *
+     * @throws IllegalStateException If there is no active transaction.
+     */
+    public void lockUntilCompletion(String playerId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Players can only be locked within a transaction.");
+        }
+
+        Lock lock = locks.get(playerId);
+        lock.lock();
+
+        try {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lock.unlock();
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+    }
+}
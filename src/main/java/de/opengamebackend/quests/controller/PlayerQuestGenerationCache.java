@@ -0,0 +1,106 @@
+package de.opengamebackend.quests.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.opengamebackend.quests.config.GenerationConfig;
+import de.opengamebackend.quests.model.entities.PlayerQuestGeneration;
+import de.opengamebackend.quests.model.repositories.PlayerQuestGenerationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the times the latest quests of each category have been generated for recently active players in memory,
+ * along with the times these players have last seen them, for telling whether any quests are due without accessing
+ * the database.
+ * <p>
+ * Cached times may be older than the persisted ones if quests have been generated through another service instance,
+ * which can only cause generation to appear due. Callers need to verify against the database before generating.
+ */
+@Service
+public class PlayerQuestGenerationCache {
+    private final PlayerQuestGenerationRepository playerQuestGenerationRepository;
+
+    /**
+     * Latest generations by player and category. Values are never modified, but replaced as a whole.
+     */
+    private final Cache<String, Map<String, CachedGeneration>> generations;
+
+    @Autowired
+    public PlayerQuestGenerationCache(GenerationConfig generationConfig,
+                                      PlayerQuestGenerationRepository playerQuestGenerationRepository) {
+        this.playerQuestGenerationRepository = playerQuestGenerationRepository;
+
+        this.generations = Caffeine.newBuilder()
+                .maximumSize(generationConfig.getCacheMaximumSize())
+                .expireAfterAccess(generationConfig.getCacheExpireAfterAccess())
+                .build();
+    }
+
+    /**
+     * Gets the latest generations of each category of the specified player, loading them from the database if
+     * necessary.
+     */
+    public Map<String, CachedGeneration> getGenerations(String playerId) {
+        return generations.get(playerId, this::load);
+    }
+
+    /**
+     * Replaces the cached generation times of the specified player after the current transaction has been
+     * committed, if any.
+     */
+    public void putAfterCommit(String playerId, Iterable<PlayerQuestGeneration> playerGenerations) {
+        Map<String, CachedGeneration> playerCachedGenerations = toMap(playerGenerations);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            generations.put(playerId, playerCachedGenerations);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                generations.put(playerId, playerCachedGenerations);
+            }
+        });
+    }
+
+    private Map<String, CachedGeneration> load(String playerId) {
+        return toMap(playerQuestGenerationRepository.findByPlayerId(playerId));
+    }
+
+    private static Map<String, CachedGeneration> toMap(Iterable<PlayerQuestGeneration> playerGenerations) {
+        HashMap<String, CachedGeneration> cachedGenerations = new HashMap<>();
+
+        for (PlayerQuestGeneration generation : playerGenerations) {
+            cachedGenerations.put(generation.getCategoryId(),
+                    new CachedGeneration(generation.getGeneratedAt(), generation.getLastSeenAt()));
+        }
+
+        return Collections.unmodifiableMap(cachedGenerations);
+    }
+
+    public static class CachedGeneration {
+        private final OffsetDateTime generatedAt;
+        private final OffsetDateTime lastSeenAt;
+
+        public CachedGeneration(OffsetDateTime generatedAt, OffsetDateTime lastSeenAt) {
+            this.generatedAt = generatedAt;
+            this.lastSeenAt = lastSeenAt;
+        }
+
+        public OffsetDateTime getGeneratedAt() {
+            return generatedAt;
+        }
+
+        public OffsetDateTime getLastSeenAt() {
+            return lastSeenAt;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package de.opengamebackend.quests.controller;
+
+import java.util.Objects;
+
+/**
+ * Identifies the active quest of a player for a specific quest definition.
+ */
+public final class PlayerQuestKey {
+    private final String playerId;
+    private final String questDefinitionId;
+
+    public PlayerQuestKey(String playerId, String questDefinitionId) {
+        this.playerId = playerId;
+        this.questDefinitionId = questDefinitionId;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public String getQuestDefinitionId() {
+        return questDefinitionId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        PlayerQuestKey that = (PlayerQuestKey) o;
+        return playerId.equals(that.playerId) && questDefinitionId.equals(that.questDefinitionId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(playerId, questDefinitionId);
+    }
+}
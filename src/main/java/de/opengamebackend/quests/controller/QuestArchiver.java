@@ -0,0 +1,133 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.ArchiveConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically moves player quests that have been completed a while ago to the quest history, keeping the table of
+ * active quests small. Quests are moved in small batches, each in its own short transaction that only locks the
+ * moved rows. All progress is kept in the database, so interrupted runs just continue with the next one.
+ * <p>
+ * Each batch locks its quests before moving them. Service instances archiving at the same time wait for each other's
+ * batches, and then continue with the quests that are left, instead of moving the same quests twice.
+ */
+@Service
+public class QuestArchiver {
+    private static final Logger logger = LoggerFactory.getLogger(QuestArchiver.class);
+
+    static final String FIND_ARCHIVABLE_QUESTS_SQL = "SELECT id FROM quests_playerquest " +
+            "WHERE completed_at < :cutoff ORDER BY completed_at, id LIMIT :batchSize FOR UPDATE";
+    static final String COPY_QUESTS_SQL = "INSERT INTO quests_playerquesthistory " +
+            "(id, definition_id, player_id, current_progress, generated_at, completed_at, archived_at) " +
+            "SELECT id, definition_id, player_id, current_progress, generated_at, completed_at, :archivedAt " +
+            "FROM quests_playerquest WHERE id IN (:ids) AND completed_at IS NOT NULL";
+    static final String DELETE_QUESTS_SQL = "DELETE FROM quests_playerquest " +
+            "WHERE id IN (:ids) AND completed_at IS NOT NULL";
+
+    private final ArchiveConfig archiveConfig;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public QuestArchiver(ArchiveConfig archiveConfig, NamedParameterJdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager) {
+        this.archiveConfig = archiveConfig;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!archiveConfig.isEnabled()) {
+            return;
+        }
+
+        long intervalMillis = archiveConfig.getInterval().toMillis();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "quest-archiver"));
+        scheduler.scheduleWithFixedDelay(this::archiveQuietly, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Moves all player quests completed before the configured retention period to the quest history.
+     *
+     * @return Number of player quests moved.
+     */
+    public int archive() {
+        Instant now = Instant.now();
+        Timestamp cutoff = Timestamp.from(now.minus(archiveConfig.getRetention()));
+        Timestamp archivedAt = Timestamp.from(now);
+
+        int archivedQuests = 0;
+        int batchArchivedQuests;
+
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
+            batchArchivedQuests = transactionTemplate.execute(status -> archiveBatch(cutoff, archivedAt));
+            archivedQuests += batchArchivedQuests;
+        } while (batchArchivedQuests >= archiveConfig.getBatchSize());
+
+        return archivedQuests;
+    }
+
+    private int archiveBatch(Timestamp cutoff, Timestamp archivedAt) {
+        MapSqlParameterSource findParameters = new MapSqlParameterSource()
+                .addValue("cutoff", cutoff)
+                .addValue("batchSize", archiveConfig.getBatchSize());
+        List<Long> ids = jdbcTemplate.queryForList(FIND_ARCHIVABLE_QUESTS_SQL, findParameters, Long.class);
+
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        MapSqlParameterSource moveParameters = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("archivedAt", archivedAt);
+        jdbcTemplate.update(COPY_QUESTS_SQL, moveParameters);
+        jdbcTemplate.update(DELETE_QUESTS_SQL, moveParameters);
+
+        // Count found rather than moved quests, so that rows deleted concurrently don't end the run early.
+        return ids.size();
+    }
+
+    private void archiveQuietly() {
+        try {
+            int archivedQuests = archive();
+
+            if (archivedQuests > 0) {
+                logger.info("Archived {} completed player quests.", archivedQuests);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to archive completed player quests.", e);
+        }
+    }
+}
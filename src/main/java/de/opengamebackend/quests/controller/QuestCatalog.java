@@ -0,0 +1,188 @@
+package de.opengamebackend.quests.controller;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import de.opengamebackend.quests.model.entities.QuestCategory;
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Read-only snapshot of all quest categories and definitions, indexed for the lookups of the player-facing quest
+ * operations. Snapshots are never modified after construction, but replaced as a whole whenever the catalog changes.
+ */
+public class QuestCatalog {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final QuestDefinitionSampler EMPTY_SAMPLER = new QuestDefinitionSampler(Collections.emptyList());
+
+    private final long version;
+    private final String hash;
+    private final long loadedAtNanos;
+
+    private final List<QuestCategory> categories;
+    private final Map<String, QuestCategory> categoriesById;
+    private final List<QuestDefinition> definitions;
+    private final Map<String, List<QuestDefinition>> definitionsByCategory;
+    private final Map<String, QuestDefinitionSampler> samplersByCategory;
+    private final Map<String, QuestDefinition> definitionsById;
+
+    public QuestCatalog(long version, long loadedAtNanos,
+                        Iterable<QuestCategory> categories, Iterable<QuestDefinition> definitions) {
+        this.version = version;
+        this.loadedAtNanos = loadedAtNanos;
+
+        // Sum up item hashes, so that the catalog hash doesn't depend on the order of the items.
+        long hash = 0;
+
+        ArrayList<QuestCategory> categoryList = new ArrayList<>();
+        HashMap<String, QuestCategory> categoriesById = new HashMap<>();
+
+        for (QuestCategory category : categories) {
+            categoryList.add(category);
+            categoriesById.put(category.getId(), category);
+            hash += hash(category);
+        }
+
+        ArrayList<QuestDefinition> definitionList = new ArrayList<>();
+        HashMap<String, List<QuestDefinition>> definitionsByCategory = new HashMap<>();
+        HashMap<String, QuestDefinition> definitionsById = new HashMap<>();
+
+        for (QuestDefinition definition : definitions) {
+            definitionList.add(definition);
+            hash += hash(definition);
+            definitionsByCategory.computeIfAbsent(definition.getCategory().getId(), c -> new ArrayList<>())
+                    .add(definition);
+            definitionsById.put(definition.getId(), definition);
+        }
+
+        HashMap<String, QuestDefinitionSampler> samplersByCategory = new HashMap<>();
+
+        for (Map.Entry<String, List<QuestDefinition>> entry : definitionsByCategory.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            samplersByCategory.put(entry.getKey(), new QuestDefinitionSampler(entry.getValue()));
+        }
+
+        this.hash = Long.toHexString(hash);
+        this.categories = Collections.unmodifiableList(categoryList);
+        this.categoriesById = Collections.unmodifiableMap(categoriesById);
+        this.definitions = Collections.unmodifiableList(definitionList);
+        this.definitionsByCategory = Collections.unmodifiableMap(definitionsByCategory);
+        this.samplersByCategory = Collections.unmodifiableMap(samplersByCategory);
+        this.definitionsById = Collections.unmodifiableMap(definitionsById);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets a hash of the contents of all categories and definitions of this snapshot. Other than the version, the
+     * hash only changes if the catalog does, and is the same for all service instances.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    public long getLoadedAtNanos() {
+        return loadedAtNanos;
+    }
+
+    public List<QuestCategory> getCategories() {
+        return categories;
+    }
+
+    public QuestCategory getCategory(String categoryId) {
+        return categoriesById.get(categoryId);
+    }
+
+    public List<QuestDefinition> getDefinitions() {
+        return definitions;
+    }
+
+    public List<QuestDefinition> getDefinitions(String categoryId) {
+        return definitionsByCategory.getOrDefault(categoryId, Collections.emptyList());
+    }
+
+    /**
+     * Gets the sampler for picking random definitions of the specified category.
+     */
+    public QuestDefinitionSampler getSampler(String categoryId) {
+        return samplersByCategory.getOrDefault(categoryId, EMPTY_SAMPLER);
+    }
+
+    public QuestDefinition getDefinition(String definitionId) {
+        return definitionsById.get(definitionId);
+    }
+
+    /**
+     * Creates a new snapshot with the passed category added or replaced, without querying the database again.
+     */
+    public QuestCatalog withCategory(long version, QuestCategory category) {
+        ArrayList<QuestCategory> newCategories = new ArrayList<>(categories.size() + 1);
+
+        for (QuestCategory existingCategory : categories) {
+            if (!existingCategory.getId().equals(category.getId())) {
+                newCategories.add(existingCategory);
+            }
+        }
+
+        newCategories.add(category);
+
+        return new QuestCatalog(version, loadedAtNanos, newCategories, definitions);
+    }
+
+    /**
+     * Creates a new snapshot with the specified category removed, without querying the database again.
+     */
+    public QuestCatalog withoutCategory(long version, String categoryId) {
+        ArrayList<QuestCategory> newCategories = new ArrayList<>(categories);
+        newCategories.removeIf(category -> category.getId().equals(categoryId));
+
+        ArrayList<QuestDefinition> newDefinitions = new ArrayList<>(definitions);
+        newDefinitions.removeIf(definition -> definition.getCategory().getId().equals(categoryId));
+
+        return new QuestCatalog(version, loadedAtNanos, newCategories, newDefinitions);
+    }
+
+    /**
+     * Creates a new snapshot with the passed definition added or replaced, without querying the database again.
+     */
+    public QuestCatalog withDefinition(long version, QuestDefinition definition) {
+        ArrayList<QuestDefinition> newDefinitions = new ArrayList<>(definitions);
+        newDefinitions.removeIf(existingDefinition -> existingDefinition.getId().equals(definition.getId()));
+        newDefinitions.add(definition);
+        return new QuestCatalog(version, loadedAtNanos, categories, newDefinitions);
+    }
+
+    /**
+     * Creates a new snapshot with the specified definition removed, without querying the database again.
+     */
+    public QuestCatalog withoutDefinition(long version, String definitionId) {
+        ArrayList<QuestDefinition> newDefinitions = new ArrayList<>(definitions);
+        newDefinitions.removeIf(definition -> definition.getId().equals(definitionId));
+        return new QuestCatalog(version, loadedAtNanos, categories, newDefinitions);
+    }
+
+    private static long hash(QuestCategory category) {
+        return HASH_FUNCTION.newHasher()
+                .putString(category.getId(), StandardCharsets.UTF_8)
+                .putInt(category.getGenerationHourOfDay() != null ? category.getGenerationHourOfDay() : -1)
+                .putInt(category.getGenerationDayOfWeek() != null ? category.getGenerationDayOfWeek() : -1)
+                .putInt(category.getQuestsPerGeneration())
+                .hash()
+                .asLong();
+    }
+
+    private static long hash(QuestDefinition definition) {
+        return HASH_FUNCTION.newHasher()
+                .putString(definition.getId(), StandardCharsets.UTF_8)
+                .putString(definition.getCategory().getId(), StandardCharsets.UTF_8)
+                .putInt(definition.getRequiredProgress())
+                .putString(String.valueOf(definition.getRewardItemDefinitionId()), StandardCharsets.UTF_8)
+                .putInt(definition.getRewardItemCount())
+                .putInt(definition.getSelectionWeight())
+                .hash()
+                .asLong();
+    }
+}
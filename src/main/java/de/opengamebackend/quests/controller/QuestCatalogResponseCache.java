@@ -0,0 +1,73 @@
+package de.opengamebackend.quests.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Caches the serialized responses of the admin catalog endpoints per catalog hash, so that polling an unchanged
+ * catalog neither queries the database nor serializes the catalog again.
+ */
+@Service
+public class QuestCatalogResponseCache {
+    private final QuestService questService;
+    private final QuestCatalogService questCatalogService;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicReference<CachedResponse> questCategories = new AtomicReference<>();
+    private final AtomicReference<CachedResponse> questDefinitions = new AtomicReference<>();
+
+    @Autowired
+    public QuestCatalogResponseCache(QuestService questService, QuestCatalogService questCatalogService,
+                                     ObjectMapper objectMapper) {
+        this.questService = questService;
+        this.questCatalogService = questCatalogService;
+        this.objectMapper = objectMapper;
+    }
+
+    public CachedResponse getQuestCategories() throws JsonProcessingException {
+        return get(questCategories, questService::getQuestCategories);
+    }
+
+    public CachedResponse getQuestDefinitions() throws JsonProcessingException {
+        return get(questDefinitions, questService::getQuestDefinitions);
+    }
+
+    private CachedResponse get(AtomicReference<CachedResponse> cache, Function<QuestCatalog, Object> createResponse)
+            throws JsonProcessingException {
+        QuestCatalog catalog = questCatalogService.getCatalog();
+        CachedResponse cachedResponse = cache.get();
+
+        if (cachedResponse != null && cachedResponse.getHash().equals(catalog.getHash())) {
+            return cachedResponse;
+        }
+
+        // Concurrent misses might serialize the same catalog twice, which is cheaper than making them wait.
+        cachedResponse = new CachedResponse(catalog.getHash(),
+                objectMapper.writeValueAsBytes(createResponse.apply(catalog)));
+        cache.set(cachedResponse);
+        return cachedResponse;
+    }
+
+    public static class CachedResponse {
+        private final String hash;
+        private final byte[] body;
+
+        public CachedResponse(String hash, byte[] body) {
+            this.hash = hash;
+            this.body = body;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
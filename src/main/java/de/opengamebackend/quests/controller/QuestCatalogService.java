@@ -0,0 +1,157 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.CatalogConfig;
+import de.opengamebackend.quests.model.repositories.QuestCategoryRepository;
+import de.opengamebackend.quests.model.repositories.QuestDefinitionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Holds the current {@link QuestCatalog} snapshot. Snapshots are loaded lazily, swapped atomically after catalog
+ * changes have been committed, and refreshed periodically to pick up changes made through other service instances.
+ */
+@Service
+public class QuestCatalogService {
+    private final QuestCategoryRepository questCategoryRepository;
+    private final QuestDefinitionRepository questDefinitionRepository;
+    private final CatalogConfig catalogConfig;
+
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final AtomicLong lastVersion = new AtomicLong();
+
+    private volatile QuestCatalog catalog;
+
+    @Autowired
+    public QuestCatalogService(QuestCategoryRepository questCategoryRepository,
+                               QuestDefinitionRepository questDefinitionRepository,
+                               CatalogConfig catalogConfig,
+                               PlatformTransactionManager transactionManager) {
+        this.questCategoryRepository = questCategoryRepository;
+        this.questDefinitionRepository = questDefinitionRepository;
+        this.catalogConfig = catalogConfig;
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        // Reloads after commit must not join the transaction that has just been completed.
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setReadOnly(true);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public QuestCatalog getCatalog() {
+        QuestCatalog currentCatalog = catalog;
+
+        if (currentCatalog == null) {
+            // Nobody can be served without a catalog, so wait for the initial load.
+            reloadLock.lock();
+
+            try {
+                if (catalog == null) {
+                    catalog = load(transactionTemplate);
+                }
+
+                return catalog;
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+
+        if (isExpired(currentCatalog) && reloadLock.tryLock()) {
+            // Refresh in this thread, while all others keep using the current snapshot.
+            try {
+                if (catalog == currentCatalog) {
+                    catalog = load(transactionTemplate);
+                }
+
+                return catalog;
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+
+        return currentCatalog;
+    }
+
+    public void reload() {
+        reload(transactionTemplate);
+    }
+
+    public void reloadAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reload(newTransactionTemplate);
+            }
+        });
+    }
+
+    /**
+     * Applies a single catalog change to the current snapshot after the current transaction has been committed,
+     * instead of reloading the whole catalog.
+     *
+     * @param change Creates the new snapshot from the current one and the new snapshot version.
+     */
+    public void updateAfterCommit(BiFunction<QuestCatalog, Long, QuestCatalog> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(change);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update(change);
+            }
+        });
+    }
+
+    private void update(BiFunction<QuestCatalog, Long, QuestCatalog> change) {
+        reloadLock.lock();
+
+        try {
+            // The next read loads the whole catalog anyway, including this change.
+            if (catalog != null) {
+                catalog = change.apply(catalog, lastVersion.incrementAndGet());
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void reload(TransactionTemplate template) {
+        reloadLock.lock();
+
+        try {
+            catalog = load(template);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private QuestCatalog load(TransactionTemplate template) {
+        return template.execute(status -> new QuestCatalog(lastVersion.incrementAndGet(), System.nanoTime(),
+                questCategoryRepository.findAll(), questDefinitionRepository.findAll()));
+    }
+
+    private boolean isExpired(QuestCatalog catalog) {
+        return System.nanoTime() - catalog.getLoadedAtNanos() > catalogConfig.getRefreshInterval().toNanos();
+    }
+}
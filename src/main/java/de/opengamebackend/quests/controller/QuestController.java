@@ -1,38 +1,76 @@
 package de.opengamebackend.quests.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
 import de.opengamebackend.net.HttpHeader;
+import de.opengamebackend.quests.QuestsApiErrors;
+import de.opengamebackend.quests.model.requests.IncreaseQuestProgressBatchRequest;
 import de.opengamebackend.quests.model.requests.IncreaseQuestProgressRequest;
 import de.opengamebackend.quests.model.requests.PutQuestCategoriesRequest;
+import de.opengamebackend.quests.model.requests.PutQuestCategoryRequest;
+import de.opengamebackend.quests.model.requests.PutQuestDefinitionRequest;
 import de.opengamebackend.quests.model.requests.PutQuestDefinitionsRequest;
 import de.opengamebackend.quests.model.responses.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 
 @RestController
 public class QuestController {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final int DEFAULT_PLAYER_QUESTS_PAGE_SIZE = 50;
+
     private final QuestService questService;
+    private final QuestDefinitionImporter questDefinitionImporter;
+    private final QuestCatalogResponseCache questCatalogResponseCache;
 
-    public QuestController(QuestService questService) {
+    public QuestController(QuestService questService, QuestDefinitionImporter questDefinitionImporter,
+                           QuestCatalogResponseCache questCatalogResponseCache) {
         this.questService = questService;
+        this.questDefinitionImporter = questDefinitionImporter;
+        this.questCatalogResponseCache = questCatalogResponseCache;
     }
 
     @GetMapping("/admin/questcategories")
-    @Operation(summary = "Gets all available quest categories.")
+    @Operation(summary = "Gets all available quest categories. Returns a hash of the whole quest catalog as ETag.")
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
-                    description = "Quest categories fetched.")
+                    description = "Quest categories fetched.",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = GetQuestCategoriesResponse.class))),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Quest categories unchanged since the passed " + HttpHeaders.IF_NONE_MATCH + ".",
+                    content = { @Content })
     })
-    public ResponseEntity<GetQuestCategoriesResponse> getQuestCategories() {
-        GetQuestCategoriesResponse response = questService.getQuestCategories();
-        return new ResponseEntity<>(response, HttpStatus.OK);
+    public ResponseEntity<byte[]> getQuestCategories(WebRequest webRequest) throws JsonProcessingException {
+        QuestCatalogResponseCache.CachedResponse response = questCatalogResponseCache.getQuestCategories();
+
+        if (webRequest.checkNotModified(response.getHash())) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(response.getHash())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.getBody());
     }
 
     @PutMapping("/admin/questcategories")
@@ -47,16 +85,105 @@ public class QuestController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    @GetMapping("/admin/questcategories/{categoryId}")
+    @Operation(summary = "Gets the specified quest category. Returns its version as ETag.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Quest category fetched."),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Error " + ApiErrors.UNKNOWN_QUEST_CATEGORY_CODE + ": " + ApiErrors.UNKNOWN_QUEST_CATEGORY_MESSAGE,
+                    content = { @Content })
+    })
+    public ResponseEntity<GetQuestCategoryResponse> getQuestCategory(@PathVariable String categoryId)
+            throws ApiException {
+        GetQuestCategoryResponse response = questService.getQuestCategory(categoryId);
+        return ResponseEntity.ok().eTag(Long.toString(response.getVersion())).body(response);
+    }
+
+    @PutMapping("/admin/questcategories/{categoryId}")
+    @Operation(summary = "Adds or replaces the specified quest category, leaving all other categories untouched. "
+            + "Each generation creates as many distinct quests of the category as passed in questsPerGeneration, "
+            + "which is kept as it is if not passed. "
+            + "Fails if an " + HttpHeaders.IF_MATCH + " header is passed that doesn't match the current version.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Quest category updated."),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Error " + QuestsApiErrors.INVALID_QUESTS_PER_GENERATION_CODE + ": " + QuestsApiErrors.INVALID_QUESTS_PER_GENERATION_MESSAGE,
+                    content = { @Content }),
+            @ApiResponse(
+                    responseCode = "412",
+                    description =
+                            "Error " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE + ": " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE + ": " + QuestsApiErrors.QUEST_CATALOG_CONCURRENT_WRITE_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE + ": " + QuestsApiErrors.QUEST_CATALOG_ITEM_NOT_FOUND_MESSAGE,
+                    content = { @Content })
+    })
+    public ResponseEntity<GetQuestCategoryResponse> putQuestCategory(
+            @PathVariable String categoryId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody PutQuestCategoryRequest request) throws ApiException {
+        GetQuestCategoryResponse response =
+                questService.putQuestCategory(categoryId, request, parseExpectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(Long.toString(response.getVersion())).body(response);
+    }
+
+    @DeleteMapping("/admin/questcategories/{categoryId}")
+    @Operation(summary = "Removes the specified quest category, if it has no quest definitions. "
+            + "Fails if an " + HttpHeaders.IF_MATCH + " header is passed that doesn't match the current version.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Quest category removed."),
+            @ApiResponse(
+                    responseCode = "400",
+                    description =
+                            "Error " + ApiErrors.UNKNOWN_QUEST_CATEGORY_CODE + ": " + ApiErrors.UNKNOWN_QUEST_CATEGORY_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.QUEST_CATEGORY_IN_USE_CODE + ": " + QuestsApiErrors.QUEST_CATEGORY_IN_USE_MESSAGE,
+                    content = { @Content }),
+            @ApiResponse(
+                    responseCode = "412",
+                    description =
+                            "Error " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE + ": " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE + ": " + QuestsApiErrors.QUEST_CATALOG_CONCURRENT_WRITE_MESSAGE,
+                    content = { @Content })
+    })
+    public ResponseEntity<Void> deleteQuestCategory(
+            @PathVariable String categoryId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws ApiException {
+        questService.deleteQuestCategory(categoryId, parseExpectedVersion(ifMatch));
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
     @GetMapping("/admin/questdefinitions")
-    @Operation(summary = "Gets all available quest definitions.")
+    @Operation(summary = "Gets all available quest definitions. Returns a hash of the whole quest catalog as ETag.")
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
-                    description = "Quest definitions fetched.")
+                    description = "Quest definitions fetched.",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = GetQuestDefinitionsResponse.class))),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Quest definitions unchanged since the passed " + HttpHeaders.IF_NONE_MATCH + ".",
+                    content = { @Content })
     })
-    public ResponseEntity<GetQuestDefinitionsResponse> getQuestDefinitions() {
-        GetQuestDefinitionsResponse response = questService.getQuestDefinitions();
-        return new ResponseEntity<>(response, HttpStatus.OK);
+    public ResponseEntity<byte[]> getQuestDefinitions(WebRequest webRequest) throws JsonProcessingException {
+        QuestCatalogResponseCache.CachedResponse response = questCatalogResponseCache.getQuestDefinitions();
+
+        if (webRequest.checkNotModified(response.getHash())) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(response.getHash())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.getBody());
     }
 
     @PutMapping("/admin/questdefinitions")
@@ -75,6 +202,112 @@ public class QuestController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    @PutMapping(value = "/admin/questdefinitions/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Sets the definitions of all quests, like PUT /admin/questdefinitions, but reads the request "
+            + "while importing, and only writes changed definitions. Meant for large quest catalogs.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = PutQuestDefinitionsRequest.class))))
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Quest definitions imported."),
+            @ApiResponse(
+                    responseCode = "400",
+                    description =
+                            "Error " + ApiErrors.UNKNOWN_QUEST_CATEGORY_CODE + ": " + ApiErrors.UNKNOWN_QUEST_CATEGORY_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.QUEST_DEFINITION_IN_USE_CODE + ": " + QuestsApiErrors.QUEST_DEFINITION_IN_USE_MESSAGE,
+                    content = { @Content })
+    })
+    public ResponseEntity<ImportQuestDefinitionsResponse> importQuestDefinitions(HttpServletRequest request)
+            throws ApiException, IOException {
+        ImportQuestDefinitionsResponse response;
+
+        try {
+            response = questDefinitionImporter.importQuestDefinitions(request.getInputStream());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("Invalid quest definitions: " + e.getOriginalMessage(), e,
+                    new ServletServerHttpRequest(request));
+        }
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @GetMapping("/admin/questdefinitions/{questDefinitionId}")
+    @Operation(summary = "Gets the specified quest definition. Returns its version as ETag.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Quest definition fetched."),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Error " + ApiErrors.UNKNOWN_QUEST_DEFINITION_CODE + ": " + ApiErrors.UNKNOWN_QUEST_DEFINITION_MESSAGE,
+                    content = { @Content })
+    })
+    public ResponseEntity<GetQuestDefinitionResponse> getQuestDefinition(@PathVariable String questDefinitionId)
+            throws ApiException {
+        GetQuestDefinitionResponse response = questService.getQuestDefinition(questDefinitionId);
+        return ResponseEntity.ok().eTag(Long.toString(response.getVersion())).body(response);
+    }
+
+    @PutMapping("/admin/questdefinitions/{questDefinitionId}")
+    @Operation(summary = "Adds or replaces the specified quest definition, leaving all other definitions untouched. "
+            + "Quests are picked in proportion to their selection weight, which is kept as it is if not passed. "
+            + "Fails if an " + HttpHeaders.IF_MATCH + " header is passed that doesn't match the current version.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Quest definition updated."),
+            @ApiResponse(
+                    responseCode = "400",
+                    description =
+                            "Error " + ApiErrors.UNKNOWN_QUEST_CATEGORY_CODE + ": " + ApiErrors.UNKNOWN_QUEST_CATEGORY_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.INVALID_SELECTION_WEIGHT_CODE + ": " + QuestsApiErrors.INVALID_SELECTION_WEIGHT_MESSAGE,
+                    content = { @Content }),
+            @ApiResponse(
+                    responseCode = "412",
+                    description =
+                            "Error " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE + ": " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE + ": " + QuestsApiErrors.QUEST_CATALOG_CONCURRENT_WRITE_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE + ": " + QuestsApiErrors.QUEST_CATALOG_ITEM_NOT_FOUND_MESSAGE,
+                    content = { @Content })
+    })
+    public ResponseEntity<GetQuestDefinitionResponse> putQuestDefinition(
+            @PathVariable String questDefinitionId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody PutQuestDefinitionRequest request) throws ApiException {
+        GetQuestDefinitionResponse response =
+                questService.putQuestDefinition(questDefinitionId, request, parseExpectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(Long.toString(response.getVersion())).body(response);
+    }
+
+    @DeleteMapping("/admin/questdefinitions/{questDefinitionId}")
+    @Operation(summary = "Removes the specified quest definition, if no player quests refer to it. "
+            + "Fails if an " + HttpHeaders.IF_MATCH + " header is passed that doesn't match the current version.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Quest definition removed."),
+            @ApiResponse(
+                    responseCode = "400",
+                    description =
+                            "Error " + ApiErrors.UNKNOWN_QUEST_DEFINITION_CODE + ": " + ApiErrors.UNKNOWN_QUEST_DEFINITION_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.QUEST_DEFINITION_IN_USE_CODE + ": " + QuestsApiErrors.QUEST_DEFINITION_IN_USE_MESSAGE,
+                    content = { @Content }),
+            @ApiResponse(
+                    responseCode = "412",
+                    description =
+                            "Error " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE + ": " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE + ": " + QuestsApiErrors.QUEST_CATALOG_CONCURRENT_WRITE_MESSAGE,
+                    content = { @Content })
+    })
+    public ResponseEntity<Void> deleteQuestDefinition(
+            @PathVariable String questDefinitionId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws ApiException {
+        questService.deleteQuestDefinition(questDefinitionId, parseExpectedVersion(ifMatch));
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
     @PostMapping("/client/createquests")
     @Operation(summary = "Generates new daily or weekly quests, if possible, then returns all available quests.")
     @ApiResponses(value = {
@@ -94,14 +327,20 @@ public class QuestController {
     }
 
     @GetMapping("/admin/playerquests/{playerId}")
-    @Operation(summary = "Gets all quests of the specified player, both finished and unfinished.")
+    @Operation(summary = "Gets all quests of the specified player, both finished and unfinished. "
+            + "Returns the latest quests first, one page at a time, if a page or page size is passed.")
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
                     description = "Player quests fetched.")
     })
-    public ResponseEntity<GetPlayerQuestsResponse> getPlayerQuests(@PathVariable String playerId) {
-        GetPlayerQuestsResponse response = questService.getPlayerQuests(playerId);
+    public ResponseEntity<GetPlayerQuestsResponse> getPlayerQuests(@PathVariable String playerId,
+                                                                   @RequestParam(required = false) Integer page,
+                                                                   @RequestParam(required = false) Integer size) {
+        GetPlayerQuestsResponse response = page == null && size == null
+                ? questService.getPlayerQuests(playerId)
+                : questService.getPlayerQuestsPage(playerId, page != null ? page : 0,
+                        size != null ? size : DEFAULT_PLAYER_QUESTS_PAGE_SIZE);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -126,8 +365,23 @@ public class QuestController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    @PostMapping("/server/increasequestprogress")
+    @Operation(summary = "Increases the progress of the active quests of the specified definitions for the passed players, merging multiple increases of the same quest.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Quest progress increased. Reports the result for each item.")
+    })
+    public ResponseEntity<IncreaseQuestProgressBatchResponse> increaseQuestProgressBatch(
+            @RequestBody IncreaseQuestProgressBatchRequest request) {
+        IncreaseQuestProgressBatchResponse response = questService.increaseQuestProgressBatch(request);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @PostMapping("/client/finishquest/{questDefinitionId}")
-    @Operation(summary = "Finishes the active quest of the specified definition and claims its rewards.")
+    @Operation(summary = "Finishes the active quest of the specified definition and claims its rewards. "
+            + "Retries passing the same " + IDEMPOTENCY_KEY_HEADER + " header (at most 100 characters) return the "
+            + "original response without claiming the rewards again.")
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
@@ -138,13 +392,36 @@ public class QuestController {
                             "Error " + ApiErrors.MISSING_PLAYER_ID_CODE + ": " + ApiErrors.MISSING_PLAYER_ID_MESSAGE + "<br />" +
                             "Error " + ApiErrors.UNKNOWN_QUEST_DEFINITION_CODE + ": " + ApiErrors.UNKNOWN_QUEST_DEFINITION_MESSAGE + "<br />" +
                             "Error " + ApiErrors.QUEST_NOT_FOUND_CODE + ": " + ApiErrors.QUEST_NOT_FOUND_MESSAGE  + "<br />" +
-                            "Error " + ApiErrors.INSUFFICIENT_QUEST_PROGRESS_CODE + ": " + ApiErrors.INSUFFICIENT_QUEST_PROGRESS_MESSAGE,
+                            "Error " + ApiErrors.INSUFFICIENT_QUEST_PROGRESS_CODE + ": " + ApiErrors.INSUFFICIENT_QUEST_PROGRESS_MESSAGE + "<br />" +
+                            "Error " + QuestsApiErrors.IDEMPOTENCY_KEY_TOO_LONG_CODE + ": " + QuestsApiErrors.IDEMPOTENCY_KEY_TOO_LONG_MESSAGE,
                     content = { @Content })
     })
     public ResponseEntity<FinishQuestResponse> finishQuest(@RequestHeader(HttpHeader.PLAYER_ID) String playerId,
-                                                           @PathVariable String questDefinitionId)
+                                                           @PathVariable String questDefinitionId,
+                                                           @RequestHeader(value = IDEMPOTENCY_KEY_HEADER,
+                                                                   required = false) String idempotencyKey)
             throws ApiException {
-        FinishQuestResponse response = questService.finishQuest(playerId, questDefinitionId);
+        FinishQuestResponse response = questService.finishQuest(playerId, questDefinitionId, idempotencyKey);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
+
+    private Long parseExpectedVersion(String ifMatch) throws ApiException {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String version = ifMatch.trim();
+
+        if (version.startsWith("W/")) {
+            version = version.substring(2);
+        }
+
+        try {
+            return Long.parseLong(version.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            // Not one of our ETags, so it can't match the current version of anything.
+            throw new ApiException(QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE,
+                    "Invalid " + HttpHeaders.IF_MATCH + " header: " + ifMatch);
+        }
+    }
 }
@@ -0,0 +1,242 @@
+package de.opengamebackend.quests.controller;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import de.opengamebackend.net.ApiErrors;
+import de.opengamebackend.net.ApiException;
+import de.opengamebackend.quests.QuestsApiErrors;
+import de.opengamebackend.quests.config.CatalogConfig;
+import de.opengamebackend.quests.model.repositories.PlayerQuestHistoryRepository;
+import de.opengamebackend.quests.model.repositories.PlayerQuestRepository;
+import de.opengamebackend.quests.model.requests.PutQuestDefinitionsRequestItem;
+import de.opengamebackend.quests.model.responses.ImportQuestDefinitionsResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces all quest definitions with the ones of a streamed {@code PutQuestDefinitionsRequest}, holding only one
+ * requested definition in memory at a time. Definitions are compared with the current ones by hash, and only
+ * inserted, changed and removed definitions are written, in JDBC batches.
+ */
+@Service
+public class QuestDefinitionImporter {
+    static final String FIND_DEFINITIONS_SQL = "SELECT id, category_id, required_progress, " +
+            "reward_item_definition_id, reward_item_count FROM quests_questdefinition";
+    static final String FIND_CATEGORY_IDS_SQL = "SELECT id FROM quests_questcategory";
+    static final String INSERT_DEFINITION_SQL = "INSERT INTO quests_questdefinition " +
+            "(category_id, required_progress, reward_item_definition_id, reward_item_count, id) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    static final String UPDATE_DEFINITION_SQL = "UPDATE quests_questdefinition " +
+            "SET category_id = ?, required_progress = ?, reward_item_definition_id = ?, reward_item_count = ?, " +
+            "version = version + 1 " +
+            "WHERE id = ?";
+    static final String DELETE_DEFINITION_SQL = "DELETE FROM quests_questdefinition WHERE id = ?";
+
+    private static final String QUEST_DEFINITIONS_FIELD = "questDefinitions";
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final QuestCatalogService questCatalogService;
+    private final CatalogConfig catalogConfig;
+    private final PlayerQuestRepository playerQuestRepository;
+    private final PlayerQuestHistoryRepository playerQuestHistoryRepository;
+
+    @Autowired
+    public QuestDefinitionImporter(ObjectMapper objectMapper, JdbcTemplate jdbcTemplate,
+                                   QuestCatalogService questCatalogService, CatalogConfig catalogConfig,
+                                   PlayerQuestRepository playerQuestRepository,
+                                   PlayerQuestHistoryRepository playerQuestHistoryRepository) {
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.questCatalogService = questCatalogService;
+        this.catalogConfig = catalogConfig;
+        this.playerQuestRepository = playerQuestRepository;
+        this.playerQuestHistoryRepository = playerQuestHistoryRepository;
+    }
+
+    /**
+     * Imports the quest definitions of the passed JSON request body. Rolls back all changes if the body is invalid,
+     * refers to unknown quest categories, or omits quest definitions that are still referenced by player quests.
+     *
+     * @throws JsonParseException If the body is not an object with exactly one array of quest definition objects.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public ImportQuestDefinitionsResponse importQuestDefinitions(InputStream body) throws IOException, ApiException {
+        // Query current state from database.
+        HashSet<String> categoryIds = new HashSet<>(jdbcTemplate.queryForList(FIND_CATEGORY_IDS_SQL, String.class));
+        HashMap<String, Long> currentHashes = new HashMap<>();
+
+        jdbcTemplate.query(FIND_DEFINITIONS_SQL, rs -> {
+            currentHashes.put(rs.getString("id"), hash(rs.getString("category_id"), rs.getInt("required_progress"),
+                    rs.getString("reward_item_definition_id"), rs.getInt("reward_item_count")));
+        });
+
+        // Write new and changed quest definitions while reading the request.
+        Batch batch = new Batch();
+        HashSet<String> requestedDefinitionIds = new HashSet<>();
+        ImportQuestDefinitionsResponse response = new ImportQuestDefinitionsResponse();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected request object.");
+            }
+
+            // Never treat a missing array as an empty catalog, which would remove all quest definitions.
+            boolean questDefinitionsRead = false;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+
+                if (!QUEST_DEFINITIONS_FIELD.equals(fieldName)) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                if (questDefinitionsRead) {
+                    throw new JsonParseException(parser, "Duplicate " + QUEST_DEFINITIONS_FIELD + " array.");
+                }
+
+                if (parser.currentToken() != JsonToken.START_ARRAY) {
+                    throw new JsonParseException(parser, "Expected " + QUEST_DEFINITIONS_FIELD + " array.");
+                }
+
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    PutQuestDefinitionsRequestItem questDefinition =
+                            objectMapper.readValue(parser, PutQuestDefinitionsRequestItem.class);
+
+                    if (!categoryIds.contains(questDefinition.getCategory())) {
+                        throw new ApiException(ApiErrors.UNKNOWN_QUEST_CATEGORY_CODE,
+                                ApiErrors.UNKNOWN_QUEST_CATEGORY_MESSAGE + questDefinition.getCategory());
+                    }
+
+                    requestedDefinitionIds.add(questDefinition.getId());
+
+                    long newHash = hash(questDefinition.getCategory(), questDefinition.getRequiredProgress(),
+                            questDefinition.getRewardItemDefinitionId(), questDefinition.getRewardItemCount());
+                    Long currentHash = currentHashes.put(questDefinition.getId(), newHash);
+
+                    if (currentHash == null) {
+                        batch.inserts.add(toRow(questDefinition));
+                        response.setInserted(response.getInserted() + 1);
+                    } else if (currentHash != newHash) {
+                        batch.updates.add(toRow(questDefinition));
+                        response.setUpdated(response.getUpdated() + 1);
+                    } else {
+                        response.setUnchanged(response.getUnchanged() + 1);
+                    }
+
+                    if (batch.size() >= catalogConfig.getImportBatchSize()) {
+                        batch.flush();
+                    }
+                }
+
+                if (parser.currentToken() != JsonToken.END_ARRAY) {
+                    throw new JsonParseException(parser, "Expected quest definition object.");
+                }
+
+                questDefinitionsRead = true;
+            }
+
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new JsonParseException(parser, "Expected end of request object.");
+            }
+
+            if (!questDefinitionsRead) {
+                throw new JsonParseException(parser, "Missing " + QUEST_DEFINITIONS_FIELD + " array.");
+            }
+        }
+
+        // Remove definitions missing in the request.
+        for (String definitionId : currentHashes.keySet()) {
+            if (requestedDefinitionIds.contains(definitionId)) {
+                continue;
+            }
+
+            if (playerQuestRepository.existsByDefinitionId(definitionId)
+                    || playerQuestHistoryRepository.existsByDefinitionId(definitionId)) {
+                throw new ApiException(QuestsApiErrors.QUEST_DEFINITION_IN_USE_CODE,
+                        QuestsApiErrors.QUEST_DEFINITION_IN_USE_MESSAGE + definitionId);
+            }
+
+            batch.deletes.add(new Object[] { definitionId });
+            response.setDeleted(response.getDeleted() + 1);
+
+            if (batch.size() >= catalogConfig.getImportBatchSize()) {
+                batch.flush();
+            }
+        }
+
+        batch.flush();
+
+        questCatalogService.reloadAfterCommit();
+
+        return response;
+    }
+
+    private static Object[] toRow(PutQuestDefinitionsRequestItem questDefinition) {
+        return new Object[] {
+                questDefinition.getCategory(),
+                questDefinition.getRequiredProgress(),
+                questDefinition.getRewardItemDefinitionId(),
+                questDefinition.getRewardItemCount(),
+                questDefinition.getId()
+        };
+    }
+
+    private static long hash(String categoryId, int requiredProgress, String rewardItemDefinitionId,
+                             int rewardItemCount) {
+        return HASH_FUNCTION.newHasher()
+                .putString(String.valueOf(categoryId), StandardCharsets.UTF_8)
+                .putInt(requiredProgress)
+                .putString(String.valueOf(rewardItemDefinitionId), StandardCharsets.UTF_8)
+                .putInt(rewardItemCount)
+                .hash()
+                .asLong();
+    }
+
+    private class Batch {
+        private final List<Object[]> inserts = new ArrayList<>();
+        private final List<Object[]> updates = new ArrayList<>();
+        private final List<Object[]> deletes = new ArrayList<>();
+
+        int size() {
+            return inserts.size() + updates.size() + deletes.size();
+        }
+
+        /**
+         * Writes all collected changes. Inserts go first, so that later updates of definitions requested twice
+         * find their rows.
+         */
+        void flush() {
+            flush(INSERT_DEFINITION_SQL, inserts);
+            flush(UPDATE_DEFINITION_SQL, updates);
+            flush(DELETE_DEFINITION_SQL, deletes);
+        }
+
+        private void flush(String sql, List<Object[]> batchArgs) {
+            if (batchArgs.isEmpty()) {
+                return;
+            }
+
+            jdbcTemplate.batchUpdate(sql, batchArgs);
+            batchArgs.clear();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Picks quest definitions of a category at random, in proportion to their selection weights. Uses Vose's alias
+ * method, so that each pick takes constant time regardless of the number of definitions.
+ * <p>
+ * Samplers are immutable and built along with each {@link QuestCatalog} snapshot. Definitions with a weight of zero
+ * are never picked, so setting all weights of a category to zero stops generating its quests.
+ */
+public class QuestDefinitionSampler {
+    /**
+     * Number of picks to try before choosing among the definitions that haven't been picked or generated recently
+     * directly.
+     */
+    private static final int MAX_REJECTED_PICKS = 8;
+
+    private final List<QuestDefinition> definitions;
+    private final double[] weights;
+    private final double[] probabilities;
+    private final int[] aliases;
+    private final int[] slots;
+    private final int selectableCount;
+
+    public QuestDefinitionSampler(List<QuestDefinition> definitions) {
+        int size = definitions.size();
+
+        this.definitions = definitions;
+        this.weights = new double[size];
+        this.probabilities = new double[size];
+        this.aliases = new int[size];
+        this.slots = new int[size];
+
+        double totalWeight = 0;
+        int positiveWeights = 0;
+
+        for (int i = 0; i < size; ++i) {
+            weights[i] = Math.max(definitions.get(i).getSelectionWeight(), 0);
+            slots[i] = RecentQuestHistory.getSlot(definitions.get(i).getId());
+            totalWeight += weights[i];
+
+            if (weights[i] > 0) {
+                ++positiveWeights;
+            }
+        }
+
+        this.selectableCount = positiveWeights;
+
+        if (totalWeight <= 0) {
+            return;
+        }
+
+        // Split the scaled weights into columns of height one, each filled up by at most one other definition.
+        double[] scaledWeights = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < size; ++i) {
+            scaledWeights[i] = weights[i] * size / totalWeight;
+
+            if (scaledWeights[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            probabilities[less] = scaledWeights[less];
+            aliases[less] = more;
+
+            scaledWeights[more] = scaledWeights[more] + scaledWeights[less] - 1;
+
+            if (scaledWeights[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Remaining columns are full, apart from rounding errors.
+        while (largeCount > 0) {
+            probabilities[large[--largeCount]] = 1;
+        }
+
+        while (smallCount > 0) {
+            probabilities[small[--smallCount]] = 1;
+        }
+    }
+
+    /**
+     * Whether the category has no definitions with a positive weight, so that no quests can be picked.
+     */
+    public boolean isEmpty() {
+        return selectableCount == 0;
+    }
+
+    /**
+     * Picks the specified number of distinct random quest definitions, avoiding the ones in the passed history if
+     * the category has enough others. Returns fewer definitions if the category doesn't have enough definitions with
+     * a positive weight.
+     *
+     * @param recentDefinitions {@link RecentQuestHistory} of the player to pick quests for.
+     */
+    public List<QuestDefinition> sample(Random random, long recentDefinitions, int count) {
+        int pickCount = Math.min(count, selectableCount);
+        ArrayList<QuestDefinition> picked = new ArrayList<>(pickCount);
+
+        if (pickCount <= 0) {
+            return picked;
+        }
+
+        long recentSlots = RecentQuestHistory.getSlots(recentDefinitions);
+        BitSet pickedIndices = new BitSet(definitions.size());
+
+        while (picked.size() < pickCount) {
+            int index = pick(random, recentSlots, pickedIndices);
+
+            if (index < 0) {
+                // Not enough definitions that haven't been generated recently, so allow these again.
+                index = pick(random, 0, pickedIndices);
+            }
+
+            pickedIndices.set(index);
+            picked.add(definitions.get(index));
+        }
+
+        return picked;
+    }
+
+    private int pick(Random random, long recentSlots, BitSet pickedIndices) {
+        for (int i = 0; i < MAX_REJECTED_PICKS; ++i) {
+            int index = pick(random);
+
+            if (isAllowed(index, recentSlots, pickedIndices)) {
+                return index;
+            }
+        }
+
+        // Most of the weight is on excluded definitions, so choose among the others directly.
+        double allowedWeight = 0;
+
+        for (int i = 0; i < definitions.size(); ++i) {
+            if (isAllowed(i, recentSlots, pickedIndices)) {
+                allowedWeight += weights[i];
+            }
+        }
+
+        if (allowedWeight <= 0) {
+            return -1;
+        }
+
+        double target = random.nextDouble() * allowedWeight;
+        int index = -1;
+
+        for (int i = 0; i < definitions.size() && target >= 0; ++i) {
+            if (isAllowed(i, recentSlots, pickedIndices) && weights[i] > 0) {
+                target -= weights[i];
+                index = i;
+            }
+        }
+
+        return index;
+    }
+
+    private int pick(Random random) {
+        int index = random.nextInt(definitions.size());
+        return random.nextDouble() < probabilities[index] ? index : aliases[index];
+    }
+
+    private boolean isAllowed(int index, long recentSlots, BitSet pickedIndices) {
+        return (recentSlots & (1L << slots[index])) == 0 && !pickedIndices.get(index);
+    }
+}
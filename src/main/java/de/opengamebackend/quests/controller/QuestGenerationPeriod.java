@@ -0,0 +1,57 @@
+package de.opengamebackend.quests.controller;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+/**
+ * Period between two quest generation resets of a quest category. Players get the configured number of new quests of
+ * the category per period.
+ */
+public class QuestGenerationPeriod {
+    private final Instant start;
+    private final Instant end;
+
+    private final Integer generationHourOfDay;
+    private final Integer generationDayOfWeek;
+
+    public QuestGenerationPeriod(Instant start, Instant end, Integer generationHourOfDay,
+                                 Integer generationDayOfWeek) {
+        this.start = start;
+        this.end = end;
+        this.generationHourOfDay = generationHourOfDay;
+        this.generationDayOfWeek = generationDayOfWeek;
+    }
+
+    /**
+     * Gets the time of the reset that started this period.
+     */
+    public Instant getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the time of the next reset, which ends this period.
+     */
+    public Instant getEnd() {
+        return end;
+    }
+
+    public Integer getGenerationHourOfDay() {
+        return generationHourOfDay;
+    }
+
+    public Integer getGenerationDayOfWeek() {
+        return generationDayOfWeek;
+    }
+
+    public boolean contains(Instant instant) {
+        return !instant.isBefore(start) && instant.isBefore(end);
+    }
+
+    /**
+     * Checks whether a quest generated at the passed time has been generated before this period, if at all.
+     */
+    public boolean isGenerationDue(OffsetDateTime lastGeneratedAt) {
+        return lastGeneratedAt == null || lastGeneratedAt.toInstant().isBefore(start);
+    }
+}
@@ -0,0 +1,78 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.GenerationConfig;
+import de.opengamebackend.quests.model.entities.QuestCategory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.*;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes when quests of each category are reset, based on the generation hour of day and day of week of the
+ * category in the configured time zone. Categories without day of week are reset daily, all others weekly.
+ * <p>
+ * Periods are computed once and reused until they end or the category changes, so generation checks boil down to
+ * comparing two instants.
+ */
+@Service
+public class QuestGenerationSchedule {
+    private final ZoneId timeZone;
+    private final ConcurrentHashMap<String, QuestGenerationPeriod> currentPeriods = new ConcurrentHashMap<>();
+
+    @Autowired
+    public QuestGenerationSchedule(GenerationConfig generationConfig) {
+        this.timeZone = generationConfig.getTimeZone();
+    }
+
+    /**
+     * Gets the generation period of the specified category that contains the passed time.
+     */
+    public QuestGenerationPeriod getPeriod(QuestCategory questCategory, OffsetDateTime now) {
+        Instant instant = now.toInstant();
+        QuestGenerationPeriod period = currentPeriods.get(questCategory.getId());
+
+        if (period == null
+                || !period.contains(instant)
+                || !Objects.equals(period.getGenerationHourOfDay(), questCategory.getGenerationHourOfDay())
+                || !Objects.equals(period.getGenerationDayOfWeek(), questCategory.getGenerationDayOfWeek())) {
+            period = computePeriod(questCategory, instant);
+            currentPeriods.put(questCategory.getId(), period);
+        }
+
+        return period;
+    }
+
+    private QuestGenerationPeriod computePeriod(QuestCategory questCategory, Instant instant) {
+        Integer generationHourOfDay = questCategory.getGenerationHourOfDay();
+        Integer generationDayOfWeek = questCategory.getGenerationDayOfWeek();
+
+        boolean isDailyQuest = generationDayOfWeek == null;
+        LocalTime resetTime = LocalTime.of(generationHourOfDay != null ? Math.floorMod(generationHourOfDay, 24) : 0, 0);
+
+        // Find latest reset at or before the passed time.
+        ZonedDateTime now = instant.atZone(timeZone);
+        LocalDate startDate = isDailyQuest
+                ? now.toLocalDate()
+                : now.toLocalDate().with(TemporalAdjusters.previousOrSame(toDayOfWeek(generationDayOfWeek)));
+
+        if (startDate.atTime(resetTime).atZone(timeZone).isAfter(now)) {
+            startDate = isDailyQuest ? startDate.minusDays(1) : startDate.minusWeeks(1);
+        }
+
+        LocalDate endDate = isDailyQuest ? startDate.plusDays(1) : startDate.plusWeeks(1);
+
+        return new QuestGenerationPeriod(
+                startDate.atTime(resetTime).atZone(timeZone).toInstant(),
+                endDate.atTime(resetTime).atZone(timeZone).toInstant(),
+                generationHourOfDay,
+                generationDayOfWeek);
+    }
+
+    private static DayOfWeek toDayOfWeek(int generationDayOfWeek) {
+        // Accept both 0 and 7 for Sunday.
+        return DayOfWeek.of(Math.floorMod(generationDayOfWeek - 1, 7) + 1);
+    }
+}
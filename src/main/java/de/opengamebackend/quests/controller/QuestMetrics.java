@@ -0,0 +1,44 @@
+package de.opengamebackend.quests.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts domain events of the quest operations that aren't covered by the request and method timers.
+ */
+@Service
+public class QuestMetrics {
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, Counter> questsGeneratedByCategory = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Counter> finishRejectionsByErrorCode = new ConcurrentHashMap<>();
+
+    @Autowired
+    public QuestMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void questsGenerated(String categoryId, int count) {
+        if (count <= 0) {
+            return;
+        }
+
+        questsGeneratedByCategory.computeIfAbsent(categoryId, c -> Counter.builder("quests.generated")
+                .description("Number of quests generated for players.")
+                .tag("category", c)
+                .register(meterRegistry))
+                .increment(count);
+    }
+
+    public void finishRejected(int errorCode) {
+        finishRejectionsByErrorCode.computeIfAbsent(errorCode, c -> Counter.builder("quests.finish.rejected")
+                .description("Number of requests to finish a quest that have been rejected.")
+                .tag("code", Integer.toString(c))
+                .register(meterRegistry))
+                .increment();
+    }
+}
@@ -0,0 +1,267 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.GenerationConfig;
+import de.opengamebackend.quests.config.PreGenerationConfig;
+import de.opengamebackend.quests.model.entities.QuestCategory;
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the quests of the next period for recently active players shortly before each reset, spreading the
+ * load that would otherwise hit the database when all of them log in right after the reset.
+ * <p>
+ * Pre-generated quests are generated at the time of the reset, and are ignored by all player operations until then.
+ * Players count as recently active if they have requested quests of the category in the current period. Pre-generating
+ * quests doesn't count, so players that don't log in again get their quests pre-generated for one period only.
+ */
+@Service
+public class QuestPreGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(QuestPreGenerator.class);
+
+    static final String FIND_ACTIVE_PLAYERS_SQL = "SELECT id FROM quests_playerquestgeneration " +
+            "WHERE category_id = :categoryId AND last_seen_at >= :periodStart AND generated_at < :periodEnd " +
+            "AND id > :lastId ORDER BY id LIMIT :batchSize";
+    static final String LOCK_GENERATIONS_SQL = "SELECT id, player_id, recent_definitions " +
+            "FROM quests_playerquestgeneration " +
+            "WHERE id IN (:ids) AND generated_at < :periodEnd FOR UPDATE";
+    static final String UPDATE_GENERATION_SQL = "UPDATE quests_playerquestgeneration " +
+            "SET generated_at = ?, recent_definitions = ? WHERE id = ?";
+    static final String INSERT_QUEST_SQL = "INSERT INTO quests_playerquest " +
+            "(definition_id, player_id, current_progress, generated_at) VALUES (?, ?, 0, ?)";
+
+    private final PreGenerationConfig preGenerationConfig;
+    private final GenerationConfig generationConfig;
+    private final QuestCatalogService questCatalogService;
+    private final QuestGenerationSchedule questGenerationSchedule;
+    private final QuestMetrics questMetrics;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private ExecutorService executor;
+
+    /**
+     * End of the latest period quests have been pre-generated for, by category.
+     */
+    private final ConcurrentHashMap<String, Instant> preGeneratedPeriods = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public QuestPreGenerator(PreGenerationConfig preGenerationConfig, GenerationConfig generationConfig,
+                             QuestCatalogService questCatalogService, QuestGenerationSchedule questGenerationSchedule,
+                             QuestMetrics questMetrics, NamedParameterJdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager) {
+        this.preGenerationConfig = preGenerationConfig;
+        this.generationConfig = generationConfig;
+        this.questCatalogService = questCatalogService;
+        this.questGenerationSchedule = questGenerationSchedule;
+        this.questMetrics = questMetrics;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!preGenerationConfig.isEnabled()) {
+            return;
+        }
+
+        executor = createExecutor();
+
+        long checkIntervalMillis = preGenerationConfig.getCheckInterval().toMillis();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "quest-pre-generation"));
+        scheduler.scheduleWithFixedDelay(this::preGenerateQuietly, checkIntervalMillis, checkIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates the quests of the next period of all categories that are reset within the configured lead time.
+     *
+     * @return Number of quests generated.
+     */
+    public synchronized int preGenerate(OffsetDateTime now) {
+        if (executor == null) {
+            executor = createExecutor();
+        }
+
+        QuestCatalog catalog = questCatalogService.getCatalog();
+        int generatedQuests = 0;
+
+        for (QuestCategory questCategory : catalog.getCategories()) {
+            QuestDefinitionSampler sampler = catalog.getSampler(questCategory.getId());
+
+            if (sampler.isEmpty()) {
+                continue;
+            }
+
+            QuestGenerationPeriod period = questGenerationSchedule.getPeriod(questCategory, now);
+
+            if (now.toInstant().isBefore(period.getEnd().minus(preGenerationConfig.getLeadTime()))
+                    || period.getEnd().equals(preGeneratedPeriods.get(questCategory.getId()))) {
+                continue;
+            }
+
+            int categoryQuests = preGenerate(questCategory, sampler, period);
+            preGeneratedPeriods.put(questCategory.getId(), period.getEnd());
+
+            questMetrics.questsGenerated(questCategory.getId(), categoryQuests);
+            generatedQuests += categoryQuests;
+        }
+
+        return generatedQuests;
+    }
+
+    private int preGenerate(QuestCategory questCategory, QuestDefinitionSampler sampler,
+                            QuestGenerationPeriod period) {
+        Timestamp periodStart = Timestamp.from(period.getStart());
+        Timestamp periodEnd = Timestamp.from(period.getEnd());
+
+        // Page through active players by id, handing each page to the workers.
+        ArrayList<Future<Integer>> batches = new ArrayList<>();
+        long lastId = 0;
+        List<Long> ids;
+
+        do {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("categoryId", questCategory.getId())
+                    .addValue("periodStart", periodStart)
+                    .addValue("periodEnd", periodEnd)
+                    .addValue("lastId", lastId)
+                    .addValue("batchSize", preGenerationConfig.getBatchSize());
+            ids = jdbcTemplate.queryForList(FIND_ACTIVE_PLAYERS_SQL, parameters, Long.class);
+
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            lastId = ids.get(ids.size() - 1);
+
+            List<Long> batchIds = ids;
+            batches.add(executor.submit(() -> transactionTemplate.execute(status ->
+                    generateBatch(batchIds, sampler, questCategory.getQuestsPerGeneration(), periodEnd))));
+        } while (ids.size() >= preGenerationConfig.getBatchSize());
+
+        // Wait for all batches.
+        int generatedQuests = 0;
+
+        for (Future<Integer> batch : batches) {
+            try {
+                generatedQuests += batch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while pre-generating quests.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to pre-generate quests.", e.getCause());
+            }
+        }
+
+        return generatedQuests;
+    }
+
+    private int generateBatch(List<Long> ids, QuestDefinitionSampler sampler, int questsPerGeneration,
+                              Timestamp periodEnd) {
+        // Lock generations, skipping players that already got their quests through another service instance.
+        MapSqlParameterSource lockParameters = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("periodEnd", periodEnd);
+        ArrayList<LockedGeneration> generations = new ArrayList<>();
+
+        jdbcTemplate.query(LOCK_GENERATIONS_SQL, lockParameters, rs -> {
+            generations.add(new LockedGeneration(rs.getLong("id"), rs.getString("player_id"),
+                    rs.getLong("recent_definitions")));
+        });
+
+        if (generations.isEmpty()) {
+            return 0;
+        }
+
+        // Generate quests, avoiding the ones each player got recently.
+        ArrayList<Object[]> questBatchArgs = new ArrayList<>(generations.size());
+        ArrayList<Object[]> generationBatchArgs = new ArrayList<>(generations.size());
+
+        for (LockedGeneration generation : generations) {
+            List<QuestDefinition> questDefinitions = sampler.sample(ThreadLocalRandom.current(),
+                    generation.recentDefinitions, Math.max(questsPerGeneration, 1));
+
+            for (QuestDefinition questDefinition : questDefinitions) {
+                questBatchArgs.add(new Object[] { questDefinition.getId(), generation.playerId, periodEnd });
+            }
+
+            // Remember generation.
+            generationBatchArgs.add(new Object[] {
+                    periodEnd,
+                    RecentQuestHistory.addGeneration(generation.recentDefinitions, questDefinitions,
+                            generationConfig.getNoRepeatWindow()),
+                    generation.id
+            });
+        }
+
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_QUEST_SQL, questBatchArgs);
+        jdbcTemplate.getJdbcTemplate().batchUpdate(UPDATE_GENERATION_SQL, generationBatchArgs);
+
+        return questBatchArgs.size();
+    }
+
+    private ExecutorService createExecutor() {
+        // Run batches on the calling thread if all workers are busy, to keep the number of batches in memory bounded.
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(preGenerationConfig.getThreads(), preGenerationConfig.getThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(preGenerationConfig.getThreads()),
+                r -> new Thread(r, "quest-pre-generation-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void preGenerateQuietly() {
+        try {
+            int generatedQuests = preGenerate(OffsetDateTime.now());
+
+            if (generatedQuests > 0) {
+                logger.info("Pre-generated {} quests.", generatedQuests);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to pre-generate quests.", e);
+        }
+    }
+
+    private static class LockedGeneration {
+        private final long id;
+        private final String playerId;
+        private final long recentDefinitions;
+
+        private LockedGeneration(long id, String playerId, long recentDefinitions) {
+            this.id = id;
+            this.playerId = playerId;
+            this.recentDefinitions = recentDefinitions;
+        }
+    }
+}
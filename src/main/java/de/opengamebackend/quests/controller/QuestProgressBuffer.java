@@ -0,0 +1,287 @@
+package de.opengamebackend.quests.controller;
+
+import com.google.common.collect.Lists;
+import de.opengamebackend.quests.config.WriteBehindConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffers quest progress in memory if write-behind is enabled, and periodically writes the accumulated progress
+ * to the database in batches.
+ */
+@Service
+public class QuestProgressBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(QuestProgressBuffer.class);
+
+    private final WriteBehindConfig writeBehindConfig;
+    private final QuestProgressWriter questProgressWriter;
+
+    private final Timer flushTimer;
+
+    /**
+     * Buffered progress, by player and quest definition. Players are spread across stripes so that concurrent
+     * progress increases for different players rarely contend for the same lock.
+     */
+    private final List<Map<String, Map<String, Integer>>> stripes;
+
+    /**
+     * Players whose progress is currently being written by {@link #flush()}, by stripe. Guarded by the monitor of the
+     * respective stripe. Flushes of single players wait until that progress has been committed.
+     */
+    private final List<Set<String>> flushingPlayers;
+
+    private final AtomicInteger pendingQuests = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public QuestProgressBuffer(WriteBehindConfig writeBehindConfig, QuestProgressWriter questProgressWriter,
+                               MeterRegistry meterRegistry) {
+        this.writeBehindConfig = writeBehindConfig;
+        this.questProgressWriter = questProgressWriter;
+
+        this.flushTimer = Timer.builder("quests.progress.flush")
+                .description("Time taken to write buffered quest progress to the database.")
+                .register(meterRegistry);
+        Gauge.builder("quests.progress.pending", pendingQuests, AtomicInteger::get)
+                .description("Number of quests with buffered progress that has not been written yet.")
+                .register(meterRegistry);
+
+        this.stripes = new ArrayList<>(writeBehindConfig.getStripes());
+        this.flushingPlayers = new ArrayList<>(writeBehindConfig.getStripes());
+
+        for (int i = 0; i < writeBehindConfig.getStripes(); ++i) {
+            this.stripes.add(new HashMap<>());
+            this.flushingPlayers.add(new HashSet<>());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        long flushIntervalMillis = writeBehindConfig.getFlushInterval().toMillis();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "quest-progress-flush"));
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdown();
+        scheduler.awaitTermination(writeBehindConfig.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+
+        flushQuietly();
+    }
+
+    public boolean isEnabled() {
+        return writeBehindConfig.isEnabled();
+    }
+
+    public int getPendingQuests() {
+        return pendingQuests.get();
+    }
+
+    public void add(String playerId, String questDefinitionId, int progressMade) {
+        Map<String, Map<String, Integer>> stripe = getStripe(playerId);
+
+        synchronized (stripe) {
+            Map<String, Integer> playerProgress = stripe.computeIfAbsent(playerId, p -> new HashMap<>());
+            Integer oldProgress = playerProgress.get(questDefinitionId);
+
+            if (oldProgress == null) {
+                playerProgress.put(questDefinitionId, progressMade);
+                pendingQuests.incrementAndGet();
+            } else {
+                playerProgress.put(questDefinitionId, oldProgress + progressMade);
+            }
+        }
+
+        // Don't wait for the next scheduled flush if the buffer grows too large.
+        if (scheduler != null
+                && pendingQuests.get() >= writeBehindConfig.getFlushThreshold()
+                && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * Writes all buffered progress to the database. Progress that can't be written is kept for the next flush.
+     */
+    public synchronized void flush() {
+        HashMap<PlayerQuestKey, Integer> progressMade = new HashMap<>();
+
+        for (int i = 0; i < stripes.size(); ++i) {
+            Map<String, Map<String, Integer>> stripe = stripes.get(i);
+
+            synchronized (stripe) {
+                for (Map.Entry<String, Map<String, Integer>> playerProgress : stripe.entrySet()) {
+                    drain(playerProgress.getKey(), playerProgress.getValue(), progressMade);
+                    flushingPlayers.get(i).add(playerProgress.getKey());
+                }
+
+                stripe.clear();
+            }
+        }
+
+        try {
+            List<List<Map.Entry<PlayerQuestKey, Integer>>> batches =
+                    Lists.partition(new ArrayList<>(progressMade.entrySet()), writeBehindConfig.getBatchSize());
+
+            for (int i = 0; i < batches.size(); ++i) {
+                try {
+                    write(toMap(batches.get(i)));
+                } catch (RuntimeException e) {
+                    // The failed batch has been restored already, but the remaining ones haven't been written yet.
+                    for (List<Map.Entry<PlayerQuestKey, Integer>> remainingBatch :
+                            batches.subList(i + 1, batches.size())) {
+                        restore(toMap(remainingBatch));
+                    }
+
+                    throw e;
+                }
+            }
+        } finally {
+            for (int i = 0; i < stripes.size(); ++i) {
+                Map<String, Map<String, Integer>> stripe = stripes.get(i);
+
+                synchronized (stripe) {
+                    flushingPlayers.get(i).clear();
+                    stripe.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered progress of the specified player to the database. Joins the current transaction, if any,
+     * so that subsequent reads in that transaction see the progress. Waits for {@link #flush()} to commit progress
+     * of the player it is currently writing.
+     */
+    public void flush(String playerId) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        HashMap<PlayerQuestKey, Integer> progressMade = new HashMap<>();
+        int stripeIndex = getStripeIndex(playerId);
+        Map<String, Map<String, Integer>> stripe = stripes.get(stripeIndex);
+
+        synchronized (stripe) {
+            while (flushingPlayers.get(stripeIndex).contains(playerId)) {
+                try {
+                    stripe.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for quest progress to be written.", e);
+                }
+            }
+
+            Map<String, Integer> playerProgress = stripe.remove(playerId);
+
+            if (playerProgress != null) {
+                drain(playerId, playerProgress, progressMade);
+            }
+        }
+
+        write(progressMade);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Failed to write buffered quest progress.", e);
+        }
+    }
+
+    private void drain(String playerId, Map<String, Integer> playerProgress,
+                       Map<PlayerQuestKey, Integer> progressMade) {
+        for (Map.Entry<String, Integer> questProgress : playerProgress.entrySet()) {
+            progressMade.put(new PlayerQuestKey(playerId, questProgress.getKey()), questProgress.getValue());
+        }
+
+        pendingQuests.addAndGet(-playerProgress.size());
+    }
+
+    private void write(Map<PlayerQuestKey, Integer> progressMade) {
+        if (progressMade.isEmpty()) {
+            return;
+        }
+
+        // Put progress back into the buffer if it can't be written, to retry with the next flush.
+        boolean restoreOnRollback = TransactionSynchronizationManager.isSynchronizationActive();
+
+        if (restoreOnRollback) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        restore(progressMade);
+                    }
+                }
+            });
+        }
+
+        try {
+            flushTimer.record(() -> questProgressWriter.increaseQuestProgress(progressMade));
+        } catch (RuntimeException e) {
+            if (!restoreOnRollback) {
+                restore(progressMade);
+            }
+
+            throw e;
+        }
+    }
+
+    private void restore(Map<PlayerQuestKey, Integer> progressMade) {
+        for (Map.Entry<PlayerQuestKey, Integer> entry : progressMade.entrySet()) {
+            add(entry.getKey().getPlayerId(), entry.getKey().getQuestDefinitionId(), entry.getValue());
+        }
+    }
+
+    private Map<String, Map<String, Integer>> getStripe(String playerId) {
+        return stripes.get(getStripeIndex(playerId));
+    }
+
+    private int getStripeIndex(String playerId) {
+        return Math.floorMod(playerId.hashCode(), stripes.size());
+    }
+
+    private static Map<PlayerQuestKey, Integer> toMap(List<Map.Entry<PlayerQuestKey, Integer>> batch) {
+        HashMap<PlayerQuestKey, Integer> batchProgress = new HashMap<>();
+
+        for (Map.Entry<PlayerQuestKey, Integer> entry : batch) {
+            batchProgress.put(entry.getKey(), entry.getValue());
+        }
+
+        return batchProgress;
+    }
+}
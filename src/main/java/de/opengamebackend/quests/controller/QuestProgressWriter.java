@@ -0,0 +1,66 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Applies merged quest progress for many players at once, using a single JDBC batch of capped in-place updates.
+ */
+@Service
+@Transactional
+public class QuestProgressWriter {
+    static final String INCREASE_PROGRESS_SQL = "UPDATE quests_playerquest " +
+            "SET current_progress = LEAST(current_progress + ?, ?) " +
+            "WHERE player_id = ? AND definition_id = ? AND completed_at IS NULL AND generated_at <= ?";
+
+    private JdbcTemplate jdbcTemplate;
+    private QuestCatalogService questCatalogService;
+
+    @Autowired
+    public QuestProgressWriter(JdbcTemplate jdbcTemplate, QuestCatalogService questCatalogService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.questCatalogService = questCatalogService;
+    }
+
+    /**
+     * Increases the progress of the active quests of the passed players and quest definitions. Players without
+     * active quest of a definition are skipped.
+     *
+     * @param progressMade Progress to add, per player and quest definition.
+     */
+    public void increaseQuestProgress(Map<PlayerQuestKey, Integer> progressMade) {
+        QuestCatalog catalog = questCatalogService.getCatalog();
+        Timestamp now = Timestamp.from(Instant.now());
+        ArrayList<Object[]> batchArgs = new ArrayList<>(progressMade.size());
+
+        for (Map.Entry<PlayerQuestKey, Integer> entry : progressMade.entrySet()) {
+            QuestDefinition questDefinition = catalog.getDefinition(entry.getKey().getQuestDefinitionId());
+
+            if (questDefinition == null) {
+                continue;
+            }
+
+            batchArgs.add(new Object[] {
+                    entry.getValue(),
+                    questDefinition.getRequiredProgress(),
+                    entry.getKey().getPlayerId(),
+                    entry.getKey().getQuestDefinitionId(),
+                    now
+            });
+        }
+
+        if (batchArgs.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INCREASE_PROGRESS_SQL, batchArgs);
+    }
+}
@@ -1,55 +1,115 @@
 package de.opengamebackend.quests.controller;
 
 import com.google.common.base.Strings;
-import de.opengamebackend.collection.model.requests.AddCollectionItemsRequest;
+import com.google.common.collect.Iterables;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
+import de.opengamebackend.quests.QuestsApiErrors;
+import de.opengamebackend.quests.config.GenerationConfig;
 import de.opengamebackend.quests.model.entities.PlayerQuest;
+import de.opengamebackend.quests.model.entities.PlayerQuestGeneration;
+import de.opengamebackend.quests.model.entities.PlayerQuestHistory;
 import de.opengamebackend.quests.model.entities.QuestCategory;
 import de.opengamebackend.quests.model.entities.QuestDefinition;
+import de.opengamebackend.quests.model.entities.RewardGrant;
+import de.opengamebackend.quests.model.repositories.PlayerQuestGenerationRepository;
+import de.opengamebackend.quests.model.repositories.PlayerQuestHistoryRepository;
 import de.opengamebackend.quests.model.repositories.PlayerQuestRepository;
 import de.opengamebackend.quests.model.repositories.QuestCategoryRepository;
 import de.opengamebackend.quests.model.repositories.QuestDefinitionRepository;
+import de.opengamebackend.quests.model.repositories.RewardGrantRepository;
 import de.opengamebackend.quests.model.requests.*;
 import de.opengamebackend.quests.model.responses.*;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.transaction.Transactional;
 import java.time.OffsetDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class QuestService {
+    private static final int MAX_PLAYERS_PER_QUERY = 500;
+    private static final int MAX_PLAYER_QUESTS_PAGE_SIZE = 1000;
+    private static final String REWARD_GRANT_IDEMPOTENCY_KEY_PREFIX = "quests-playerquest-";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+
+    private GenerationConfig generationConfig;
+
     private QuestCategoryRepository questCategoryRepository;
     private QuestDefinitionRepository questDefinitionRepository;
     private PlayerQuestRepository playerQuestRepository;
-
-    private CollectionService collectionService;
+    private PlayerQuestGenerationRepository playerQuestGenerationRepository;
+    private PlayerQuestHistoryRepository playerQuestHistoryRepository;
+    private RewardGrantRepository rewardGrantRepository;
+
+    private QuestCatalogService questCatalogService;
+    private PlayerQuestGenerationCache playerQuestGenerationCache;
+    private PlayerLocks playerLocks;
+    private QuestGenerationSchedule questGenerationSchedule;
+    private QuestProgressWriter questProgressWriter;
+    private QuestProgressBuffer questProgressBuffer;
+    private RewardGrantDispatcher rewardGrantDispatcher;
+    private QuestMetrics questMetrics;
 
     @Autowired
-    public QuestService(QuestCategoryRepository questCategoryRepository,
+    public QuestService(GenerationConfig generationConfig,
+                        QuestCategoryRepository questCategoryRepository,
                         QuestDefinitionRepository questDefinitionRepository,
                         PlayerQuestRepository playerQuestRepository,
-                        CollectionService collectionService) {
+                        PlayerQuestGenerationRepository playerQuestGenerationRepository,
+                        PlayerQuestHistoryRepository playerQuestHistoryRepository,
+                        RewardGrantRepository rewardGrantRepository,
+                        QuestCatalogService questCatalogService,
+                        PlayerQuestGenerationCache playerQuestGenerationCache,
+                        PlayerLocks playerLocks,
+                        QuestGenerationSchedule questGenerationSchedule,
+                        QuestProgressWriter questProgressWriter,
+                        QuestProgressBuffer questProgressBuffer,
+                        RewardGrantDispatcher rewardGrantDispatcher,
+                        QuestMetrics questMetrics) {
+        this.generationConfig = generationConfig;
+
         this.questCategoryRepository = questCategoryRepository;
         this.questDefinitionRepository = questDefinitionRepository;
         this.playerQuestRepository = playerQuestRepository;
-
-        this.collectionService = collectionService;
+        this.playerQuestGenerationRepository = playerQuestGenerationRepository;
+        this.playerQuestHistoryRepository = playerQuestHistoryRepository;
+        this.rewardGrantRepository = rewardGrantRepository;
+
+        this.questCatalogService = questCatalogService;
+        this.playerQuestGenerationCache = playerQuestGenerationCache;
+        this.playerLocks = playerLocks;
+        this.questGenerationSchedule = questGenerationSchedule;
+        this.questProgressWriter = questProgressWriter;
+        this.questProgressBuffer = questProgressBuffer;
+        this.rewardGrantDispatcher = rewardGrantDispatcher;
+        this.questMetrics = questMetrics;
     }
 
+    @Timed("quests.service")
     public GetQuestCategoriesResponse getQuestCategories() {
+        return getQuestCategories(questCatalogService.getCatalog());
+    }
+
+    GetQuestCategoriesResponse getQuestCategories(QuestCatalog catalog) {
         ArrayList<GetQuestCategoriesResponseItem> categories = new ArrayList<>();
 
-        for (QuestCategory questCategoryEntity : questCategoryRepository.findAll()) {
-            GetQuestCategoriesResponseItem questCategory = new GetQuestCategoriesResponseItem();
+        for (QuestCategory questCategoryEntity : catalog.getCategories()) {
+            QuestCategoriesResponseItem questCategory = new QuestCategoriesResponseItem();
             questCategory.setId(questCategoryEntity.getId());
             questCategory.setGenerationHourOfDay(questCategoryEntity.getGenerationHourOfDay());
             questCategory.setGenerationDayOfWeek(questCategoryEntity.getGenerationDayOfWeek());
+            questCategory.setQuestsPerGeneration(questCategoryEntity.getQuestsPerGeneration());
             categories.add(questCategory);
         }
 
@@ -58,9 +118,11 @@ public class QuestService {
         return response;
     }
 
+    @Timed("quests.service")
     public void putQuestCategories(PutQuestCategoriesRequest request) {
         // Prepare collections.
         HashMap<String, QuestCategory> categories = new HashMap<>();
+        HashSet<String> requestedCategoryIds = new HashSet<>();
 
         ArrayList<QuestCategory> categoriesToSave = new ArrayList<>();
         ArrayList<QuestCategory> categoriesToDelete = new ArrayList<>();
@@ -70,14 +132,18 @@ public class QuestService {
             categories.put(category.getId(), category);
         }
 
-        // Collect requested quest categories.
+        // Collect new and changed quest categories.
         for (PutQuestCategoriesRequestItem category : request.getCategories()) {
+            requestedCategoryIds.add(category.getId());
             QuestCategory categoryEntity = categories.get(category.getId());
 
             if (categoryEntity == null) {
                 categoryEntity = new QuestCategory();
                 categoryEntity.setId(category.getId());
                 categories.put(category.getId(), categoryEntity);
+            } else if (Objects.equals(categoryEntity.getGenerationHourOfDay(), category.getGenerationHourOfDay())
+                    && Objects.equals(categoryEntity.getGenerationDayOfWeek(), category.getGenerationDayOfWeek())) {
+                continue;
             }
 
             categoryEntity.setGenerationHourOfDay(category.getGenerationHourOfDay());
@@ -88,7 +154,7 @@ public class QuestService {
 
         // Find categories to remove.
         for (Map.Entry<String, QuestCategory> category : categories.entrySet()) {
-            if (request.getCategories().stream().noneMatch(c -> c.getId().equals(category.getKey()))) {
+            if (!requestedCategoryIds.contains(category.getKey())) {
                 categoriesToDelete.add(category.getValue());
             }
         }
@@ -96,18 +162,100 @@ public class QuestService {
         // Apply changes.
         questCategoryRepository.saveAll(categoriesToSave);
         questCategoryRepository.deleteAll(categoriesToDelete);
+
+        questCatalogService.reloadAfterCommit();
+    }
+
+    @Timed("quests.service")
+    public GetQuestCategoryResponse getQuestCategory(String categoryId) throws ApiException {
+        return mapToGetQuestCategoryResponse(findQuestCategory(categoryId));
+    }
+
+    /**
+     * Adds or replaces a single quest category, touching only that category instead of the whole catalog.
+     *
+     * @param expectedVersion Version the caller has based its change on, or null to overwrite unconditionally.
+     */
+    @Timed("quests.service")
+    public GetQuestCategoryResponse putQuestCategory(String categoryId, PutQuestCategoryRequest request,
+                                                     Long expectedVersion) throws ApiException {
+        if (request.getQuestsPerGeneration() != null && request.getQuestsPerGeneration() < 1) {
+            throw new ApiException(QuestsApiErrors.INVALID_QUESTS_PER_GENERATION_CODE,
+                    QuestsApiErrors.INVALID_QUESTS_PER_GENERATION_MESSAGE + request.getQuestsPerGeneration());
+        }
+
+        QuestCategory category = questCategoryRepository.findById(categoryId).orElse(null);
+
+        if (category == null) {
+            checkVersion(null, expectedVersion);
+
+            category = new QuestCategory();
+            category.setId(categoryId);
+        } else {
+            checkVersion(category.getVersion(), expectedVersion);
+
+            if (Objects.equals(category.getGenerationHourOfDay(), request.getGenerationHourOfDay())
+                    && Objects.equals(category.getGenerationDayOfWeek(), request.getGenerationDayOfWeek())
+                    && (request.getQuestsPerGeneration() == null
+                        || category.getQuestsPerGeneration() == request.getQuestsPerGeneration())) {
+                return mapToGetQuestCategoryResponse(category);
+            }
+        }
+
+        category.setGenerationHourOfDay(request.getGenerationHourOfDay());
+        category.setGenerationDayOfWeek(request.getGenerationDayOfWeek());
+
+        if (request.getQuestsPerGeneration() != null) {
+            category.setQuestsPerGeneration(request.getQuestsPerGeneration());
+        }
+
+        // Flush to detect concurrent changes right away, and to get the new version.
+        QuestCategory savedCategory;
+
+        try {
+            savedCategory = questCategoryRepository.saveAndFlush(category);
+        } catch (DataIntegrityViolationException e) {
+            // Someone else has created the same category at the same time.
+            throw new ObjectOptimisticLockingFailureException(QuestCategory.class, categoryId, e.getMessage(), e);
+        }
+
+        questCatalogService.updateAfterCommit((catalog, version) -> catalog.withCategory(version, savedCategory));
+
+        return mapToGetQuestCategoryResponse(savedCategory);
+    }
+
+    @Timed("quests.service")
+    public void deleteQuestCategory(String categoryId, Long expectedVersion) throws ApiException {
+        QuestCategory category = findQuestCategory(categoryId);
+
+        checkVersion(category.getVersion(), expectedVersion);
+
+        if (questDefinitionRepository.existsByCategoryId(categoryId)) {
+            throw new ApiException(QuestsApiErrors.QUEST_CATEGORY_IN_USE_CODE,
+                    QuestsApiErrors.QUEST_CATEGORY_IN_USE_MESSAGE + categoryId);
+        }
+
+        questCategoryRepository.delete(category);
+
+        questCatalogService.updateAfterCommit((catalog, version) -> catalog.withoutCategory(version, categoryId));
     }
 
+    @Timed("quests.service")
     public GetQuestDefinitionsResponse getQuestDefinitions() {
+        return getQuestDefinitions(questCatalogService.getCatalog());
+    }
+
+    GetQuestDefinitionsResponse getQuestDefinitions(QuestCatalog catalog) {
         ArrayList<GetQuestDefinitionsResponseItem> questDefinitions = new ArrayList<>();
 
-        for (QuestDefinition questDefinitionEntity : questDefinitionRepository.findAll()) {
-            GetQuestDefinitionsResponseItem questDefinition = new GetQuestDefinitionsResponseItem();
+        for (QuestDefinition questDefinitionEntity : catalog.getDefinitions()) {
+            QuestDefinitionsResponseItem questDefinition = new QuestDefinitionsResponseItem();
             questDefinition.setId(questDefinitionEntity.getId());
             questDefinition.setCategory(questDefinitionEntity.getCategory().getId());
             questDefinition.setRequiredProgress(questDefinitionEntity.getRequiredProgress());
             questDefinition.setRewardItemDefinitionId(questDefinitionEntity.getRewardItemDefinitionId());
             questDefinition.setRewardItemCount(questDefinitionEntity.getRewardItemCount());
+            questDefinition.setSelectionWeight(questDefinitionEntity.getSelectionWeight());
             questDefinitions.add(questDefinition);
         }
 
@@ -116,10 +264,12 @@ public class QuestService {
         return response;
     }
 
+    @Timed("quests.service")
     public void putQuestDefinitions(PutQuestDefinitionsRequest request) throws ApiException {
         // Prepare collections.
         HashMap<String, QuestCategory> categories = new HashMap<>();
         HashMap<String, QuestDefinition> questDefinitions = new HashMap<>();
+        HashSet<String> requestedDefinitionIds = new HashSet<>();
 
         ArrayList<QuestDefinition> definitionsToSave = new ArrayList<>();
         ArrayList<QuestDefinition> definitionsToDelete = new ArrayList<>();
@@ -133,15 +283,9 @@ public class QuestService {
             questDefinitions.put(questDefinition.getId(), questDefinition);
         }
 
-        // Collect requested quest definitions.
+        // Collect new and changed quest definitions.
         for (PutQuestDefinitionsRequestItem questDefinition : request.getQuestDefinitions()) {
-            QuestDefinition questDefinitionEntity = questDefinitions.get(questDefinition.getId());
-
-            if (questDefinitionEntity == null) {
-                questDefinitionEntity = new QuestDefinition();
-                questDefinitionEntity.setId(questDefinition.getId());
-                questDefinitions.put(questDefinition.getId(), questDefinitionEntity);
-            }
+            requestedDefinitionIds.add(questDefinition.getId());
 
             QuestCategory category = categories.get(questDefinition.getCategory());
 
@@ -150,6 +294,16 @@ public class QuestService {
                         ApiErrors.UNKNOWN_QUEST_CATEGORY_MESSAGE + questDefinition.getCategory());
             }
 
+            QuestDefinition questDefinitionEntity = questDefinitions.get(questDefinition.getId());
+
+            if (questDefinitionEntity == null) {
+                questDefinitionEntity = new QuestDefinition();
+                questDefinitionEntity.setId(questDefinition.getId());
+                questDefinitions.put(questDefinition.getId(), questDefinitionEntity);
+            } else if (isUnchanged(questDefinitionEntity, questDefinition)) {
+                continue;
+            }
+
             questDefinitionEntity.setCategory(category);
             questDefinitionEntity.setRequiredProgress(questDefinition.getRequiredProgress());
             questDefinitionEntity.setRewardItemDefinitionId(questDefinition.getRewardItemDefinitionId());
@@ -160,7 +314,7 @@ public class QuestService {
 
         // Find definitions to remove.
         for (Map.Entry<String, QuestDefinition> questDefinition : questDefinitions.entrySet()) {
-            if (request.getQuestDefinitions().stream().noneMatch(q -> q.getId().equals(questDefinition.getKey()))) {
+            if (!requestedDefinitionIds.contains(questDefinition.getKey())) {
                 definitionsToDelete.add(questDefinition.getValue());
             }
         }
@@ -168,93 +322,278 @@ public class QuestService {
         // Apply changes.
         questDefinitionRepository.saveAll(definitionsToSave);
         questDefinitionRepository.deleteAll(definitionsToDelete);
+
+        questCatalogService.reloadAfterCommit();
     }
 
+    @Timed("quests.service")
+    public GetQuestDefinitionResponse getQuestDefinition(String questDefinitionId) throws ApiException {
+        return mapToGetQuestDefinitionResponse(findQuestDefinition(questDefinitionId));
+    }
+
+    /**
+     * Adds or replaces a single quest definition, touching only that definition instead of the whole catalog.
+     *
+     * @param expectedVersion Version the caller has based its change on, or null to overwrite unconditionally.
+     */
+    @Timed("quests.service")
+    public GetQuestDefinitionResponse putQuestDefinition(String questDefinitionId,
+                                                         PutQuestDefinitionRequest request,
+                                                         Long expectedVersion) throws ApiException {
+        if (request.getSelectionWeight() != null && request.getSelectionWeight() < 0) {
+            throw new ApiException(QuestsApiErrors.INVALID_SELECTION_WEIGHT_CODE,
+                    QuestsApiErrors.INVALID_SELECTION_WEIGHT_MESSAGE + request.getSelectionWeight());
+        }
+
+        QuestDefinition questDefinition = questDefinitionRepository.findById(questDefinitionId).orElse(null);
+
+        if (questDefinition == null) {
+            checkVersion(null, expectedVersion);
+
+            questDefinition = new QuestDefinition();
+            questDefinition.setId(questDefinitionId);
+        } else {
+            checkVersion(questDefinition.getVersion(), expectedVersion);
+
+            if (isUnchanged(questDefinition, request) && (request.getSelectionWeight() == null
+                    || questDefinition.getSelectionWeight() == request.getSelectionWeight())) {
+                return mapToGetQuestDefinitionResponse(questDefinition);
+            }
+        }
+
+        QuestCategory category = questCategoryRepository.findById(request.getCategory()).orElse(null);
+
+        if (category == null) {
+            throw new ApiException(ApiErrors.UNKNOWN_QUEST_CATEGORY_CODE,
+                    ApiErrors.UNKNOWN_QUEST_CATEGORY_MESSAGE + request.getCategory());
+        }
+
+        questDefinition.setCategory(category);
+        questDefinition.setRequiredProgress(request.getRequiredProgress());
+        questDefinition.setRewardItemDefinitionId(request.getRewardItemDefinitionId());
+        questDefinition.setRewardItemCount(request.getRewardItemCount());
+
+        if (request.getSelectionWeight() != null) {
+            questDefinition.setSelectionWeight(request.getSelectionWeight());
+        }
+
+        // Flush to detect concurrent changes right away, and to get the new version.
+        QuestDefinition savedDefinition;
+
+        try {
+            savedDefinition = questDefinitionRepository.saveAndFlush(questDefinition);
+        } catch (DataIntegrityViolationException e) {
+            // Someone else has created the same quest definition at the same time.
+            throw new ObjectOptimisticLockingFailureException(QuestDefinition.class, questDefinitionId,
+                    e.getMessage(), e);
+        }
+
+        questCatalogService.updateAfterCommit((catalog, version) -> catalog.withDefinition(version, savedDefinition));
+
+        return mapToGetQuestDefinitionResponse(savedDefinition);
+    }
+
+    @Timed("quests.service")
+    public void deleteQuestDefinition(String questDefinitionId, Long expectedVersion) throws ApiException {
+        QuestDefinition questDefinition = findQuestDefinition(questDefinitionId);
+
+        checkVersion(questDefinition.getVersion(), expectedVersion);
+
+        if (playerQuestRepository.existsByDefinitionId(questDefinitionId)
+                || playerQuestHistoryRepository.existsByDefinitionId(questDefinitionId)) {
+            throw new ApiException(QuestsApiErrors.QUEST_DEFINITION_IN_USE_CODE,
+                    QuestsApiErrors.QUEST_DEFINITION_IN_USE_MESSAGE + questDefinitionId);
+        }
+
+        questDefinitionRepository.delete(questDefinition);
+
+        questCatalogService.updateAfterCommit((catalog, version) ->
+                catalog.withoutDefinition(version, questDefinitionId));
+    }
+
+    @Timed("quests.service")
     public CreateQuestsResponse createQuests(String playerId) throws ApiException {
         if (Strings.isNullOrEmpty(playerId)) {
             throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
         }
 
-        CreateQuestsResponse response = new CreateQuestsResponse();
+        QuestCatalog catalog = questCatalogService.getCatalog();
+        OffsetDateTime now = OffsetDateTime.now();
+
+        // Check whether any quests are due, or pre-generated quests are requested for the first time, usually
+        // without accessing the database.
+        Map<String, PlayerQuestGenerationCache.CachedGeneration> cachedGenerations =
+                playerQuestGenerationCache.getGenerations(playerId);
+        boolean isAnyGenerationDue = false;
+
+        for (QuestCategory questCategory : catalog.getCategories()) {
+            QuestGenerationPeriod period = questGenerationSchedule.getPeriod(questCategory, now);
+            PlayerQuestGenerationCache.CachedGeneration cachedGeneration =
+                    cachedGenerations.get(questCategory.getId());
+
+            boolean isDue = cachedGeneration == null
+                    || period.isGenerationDue(cachedGeneration.getGeneratedAt())
+                    || isUnseen(cachedGeneration.getGeneratedAt(), cachedGeneration.getLastSeenAt(), now);
 
-        // Get player quests.
-        List<PlayerQuest> playerQuests = playerQuestRepository.findByPlayerId(playerId);
+            if (isDue && !catalog.getDefinitions(questCategory.getId()).isEmpty()) {
+                isAnyGenerationDue = true;
+                break;
+            }
+        }
+
+        // Prevent concurrent requests of the same player from generating quests twice.
+        if (isAnyGenerationDue) {
+            playerLocks.lockUntilCompletion(playerId);
+        }
 
         // Add incomplete quests to response.
-        List<PlayerQuest> incompleteQuests = playerQuests.stream()
-                .filter(q -> q.getCompletedAt() == null)
-                .collect(Collectors.toList());
+        CreateQuestsResponse response = new CreateQuestsResponse();
+
+        questProgressBuffer.flush(playerId);
+        List<PlayerQuest> incompleteQuests = playerQuestRepository.findByPlayerIdAndCompletedAtIsNull(playerId);
 
         for (PlayerQuest incompleteQuest : incompleteQuests) {
+            if (incompleteQuest.getGeneratedAt().isAfter(now)) {
+                // Pre-generated for the next period.
+                continue;
+            }
+
             CreateQuestsResponseItem responseItem = mapToCreateQuestsResponseItem(incompleteQuest, false);
             response.getQuests().add(responseItem);
         }
 
-        // For each quest category, check whether we need to generate a new quest.
-        OffsetDateTime now = OffsetDateTime.now();
+        if (!isAnyGenerationDue) {
+            return response;
+        }
 
-        for (QuestCategory questCategory : questCategoryRepository.findAll()) {
-            // Find latest generated quest.
-            PlayerQuest latestGeneratedQuest = playerQuests.stream()
-                    .filter(q -> q.getDefinition().getCategory().getId().equals(questCategory.getId()))
-                    .sorted(Comparator.comparing(PlayerQuest::getGeneratedAt))
-                    .reduce((first, second) -> second)
-                    .orElse(null);
+        // Get latest generated quests. Don't trust the cache here, as other service instances might have generated
+        // quests in the meantime. Lock generations until commit, so that other service instances wait for this one.
+        HashMap<String, PlayerQuestGeneration> generations = new HashMap<>();
 
-            boolean hasNoQuests = latestGeneratedQuest == null;
-            boolean isDailyQuest = questCategory.getGenerationDayOfWeek() == null;
-            boolean isWeeklyQuest = !isDailyQuest;
-            long daysSinceLastGeneration = hasNoQuests ? 0 : ChronoUnit.DAYS.between(latestGeneratedQuest.getGeneratedAt(), now);
-            long weeksSinceLastGeneration = hasNoQuests ? 0 : ChronoUnit.WEEKS.between(latestGeneratedQuest.getGeneratedAt(), now);
+        for (PlayerQuestGeneration generation : playerQuestGenerationRepository.findByPlayerIdForUpdate(playerId)) {
+            generations.put(generation.getCategoryId(), generation);
+        }
 
-            if (hasNoQuests
-                    || (isDailyQuest && daysSinceLastGeneration > 0)
-                    || (isWeeklyQuest && weeksSinceLastGeneration > 0)) {
+        // For each quest category, check whether we need to generate new quests.
+        ArrayList<PlayerQuest> newPlayerQuests = new ArrayList<>();
+        ArrayList<PlayerQuestGeneration> changedGenerations = new ArrayList<>();
 
-                // Get available quest definitions.
-                List<QuestDefinition> questDefinitions = questDefinitionRepository.findByCategory(questCategory);
+        for (QuestCategory questCategory : catalog.getCategories()) {
+            PlayerQuestGeneration generation = generations.get(questCategory.getId());
+            QuestGenerationPeriod period = questGenerationSchedule.getPeriod(questCategory, now);
 
-                if (questDefinitions.isEmpty()) {
-                    continue;
+            if (!period.isGenerationDue(generation != null ? generation.getGeneratedAt() : null)) {
+                // Remember that the player is active, if they're requesting pre-generated quests for the first time.
+                if (generation != null && isUnseen(generation.getGeneratedAt(), generation.getLastSeenAt(), now)) {
+                    generation.setLastSeenAt(now);
+                    changedGenerations.add(generation);
                 }
 
-                Random random = new Random();
-                QuestDefinition questDefinition = questDefinitions.get(random.nextInt(questDefinitions.size()));
+                continue;
+            }
+
+            // Pick distinct quest definitions, avoiding the ones the player got recently.
+            long recentDefinitions = generation != null ? generation.getRecentDefinitions() : 0;
+            List<QuestDefinition> questDefinitions = catalog.getSampler(questCategory.getId())
+                    .sample(ThreadLocalRandom.current(), recentDefinitions, questCategory.getQuestsPerGeneration());
+
+            if (questDefinitions.isEmpty()) {
+                continue;
+            }
 
-                // Generate new quest.
+            // Generate new quests.
+            for (QuestDefinition questDefinition : questDefinitions) {
                 PlayerQuest newPlayerQuest = new PlayerQuest();
                 newPlayerQuest.setDefinition(questDefinition);
                 newPlayerQuest.setPlayerId(playerId);
                 newPlayerQuest.setGeneratedAt(now);
+                newPlayerQuests.add(newPlayerQuest);
+            }
 
-                playerQuestRepository.save(newPlayerQuest);
+            questMetrics.questsGenerated(questCategory.getId(), questDefinitions.size());
 
-                // Add to response.
-                CreateQuestsResponseItem responseItem = mapToCreateQuestsResponseItem(newPlayerQuest, true);
-                response.getQuests().add(responseItem);
+            // Remember generation.
+            if (generation == null) {
+                generation = new PlayerQuestGeneration();
+                generation.setPlayerId(playerId);
+                generation.setCategoryId(questCategory.getId());
+                generations.put(questCategory.getId(), generation);
             }
+
+            generation.setGeneratedAt(now);
+            generation.setLastSeenAt(now);
+            generation.setRecentDefinitions(RecentQuestHistory.addGeneration(recentDefinitions, questDefinitions,
+                    generationConfig.getNoRepeatWindow()));
+            changedGenerations.add(generation);
+        }
+
+        // Save new quests of all categories at once.
+        if (!newPlayerQuests.isEmpty()) {
+            playerQuestRepository.saveAll(newPlayerQuests);
+
+            response.getQuests().addAll(newPlayerQuests.stream()
+                    .map(newPlayerQuest -> mapToCreateQuestsResponseItem(newPlayerQuest, true))
+                    .collect(Collectors.toList()));
+        }
+
+        if (!changedGenerations.isEmpty()) {
+            playerQuestGenerationRepository.saveAll(changedGenerations);
         }
 
+        playerQuestGenerationCache.putAfterCommit(playerId, generations.values());
+
         return response;
     }
 
+    @Timed("quests.service")
     public GetPlayerQuestsResponse getPlayerQuests(String playerId) {
+        questProgressBuffer.flush(playerId);
+
         ArrayList<GetPlayerQuestsResponseItem> playerQuests = new ArrayList<>();
 
         for (PlayerQuest playerQuestEntity : playerQuestRepository.findByPlayerId(playerId)) {
-            GetPlayerQuestsResponseItem playerQuest = new GetPlayerQuestsResponseItem();
+            playerQuests.add(mapToGetPlayerQuestsResponseItem(playerQuestEntity));
+        }
+
+        for (PlayerQuestHistory playerQuestEntity : playerQuestHistoryRepository.findByPlayerId(playerId)) {
+            playerQuests.add(mapToGetPlayerQuestsResponseItem(playerQuestEntity));
+        }
+
+        GetPlayerQuestsResponse response = new GetPlayerQuestsResponse();
+        response.setQuests(playerQuests);
+        return response;
+    }
+
+    @Timed("quests.service")
+    public GetPlayerQuestsResponse getPlayerQuestsPage(String playerId, int page, int size) {
+        questProgressBuffer.flush(playerId);
+
+        // Find page of active and archived quests.
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0),
+                Math.min(Math.max(size, 1), MAX_PLAYER_QUESTS_PAGE_SIZE));
+        List<Long> ids = playerQuestHistoryRepository.findAllQuestIdsByPlayerId(playerId, pageRequest).stream()
+                .map(Number::longValue)
+                .collect(Collectors.toList());
+
+        // Load quests. Check active quests first, for finding quests that are archived in the meantime.
+        HashMap<Long, GetPlayerQuestsResponseItem> playerQuestsById = new HashMap<>();
+
+        for (PlayerQuest playerQuestEntity : playerQuestRepository.findAllById(ids)) {
+            playerQuestsById.put(playerQuestEntity.getId(), mapToGetPlayerQuestsResponseItem(playerQuestEntity));
+        }
+
+        for (PlayerQuestHistory playerQuestEntity : playerQuestHistoryRepository.findAllById(ids)) {
+            playerQuestsById.putIfAbsent(playerQuestEntity.getId(), mapToGetPlayerQuestsResponseItem(playerQuestEntity));
+        }
+
+        ArrayList<GetPlayerQuestsResponseItem> playerQuests = new ArrayList<>();
 
-            playerQuest.setId(playerQuestEntity.getId());
-            playerQuest.setQuestCategoryId(playerQuestEntity.getDefinition().getCategory().getId());
-            playerQuest.setQuestDefinitionId(playerQuestEntity.getDefinition().getId());
-            playerQuest.setRequiredProgress(playerQuestEntity.getDefinition().getRequiredProgress());
-            playerQuest.setCurrentProgress(playerQuestEntity.getCurrentProgress());
-            playerQuest.setRewardItemDefinitionId(playerQuestEntity.getDefinition().getRewardItemDefinitionId());
-            playerQuest.setRewardItemCount(playerQuestEntity.getDefinition().getRewardItemCount());
-            playerQuest.setGeneratedAt(playerQuestEntity.getGeneratedAt());
-            playerQuest.setCompletedAt(playerQuestEntity.getCompletedAt());
+        for (Long id : ids) {
+            GetPlayerQuestsResponseItem playerQuest = playerQuestsById.get(id);
 
-            playerQuests.add(playerQuest);
+            if (playerQuest != null) {
+                playerQuests.add(playerQuest);
+            }
         }
 
         GetPlayerQuestsResponse response = new GetPlayerQuestsResponse();
@@ -262,6 +601,7 @@ public class QuestService {
         return response;
     }
 
+    @Timed("quests.service")
     public void increaseQuestProgress(String playerId, String questDefinitionId, IncreaseQuestProgressRequest request)
             throws ApiException {
         // Find quest.
@@ -269,47 +609,190 @@ public class QuestService {
             throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
         }
 
-        QuestDefinition questDefinition = questDefinitionRepository.findById(questDefinitionId).orElse(null);
+        QuestDefinition questDefinition = questCatalogService.getCatalog().getDefinition(questDefinitionId);
 
         if (questDefinition == null) {
             throw new ApiException(ApiErrors.UNKNOWN_QUEST_DEFINITION_CODE,
                     ApiErrors.UNKNOWN_QUEST_DEFINITION_MESSAGE + questDefinitionId);
         }
 
-        List<PlayerQuest> playerQuests = playerQuestRepository.findByPlayerIdAndDefinition(playerId, questDefinition);
-        PlayerQuest playerQuest = playerQuests.stream()
-                .filter(q -> q.getCompletedAt() == null)
-                .findFirst()
-                .orElse(null);
-
-        if (playerQuest == null) {
+        if (questProgressBuffer.isEnabled()) {
+            questProgressBuffer.add(playerId, questDefinitionId, request.getProgressMade());
             return;
         }
 
-        // Update progress.
-        int oldProgress = playerQuest.getCurrentProgress();
-        int newProgress = Math.min(oldProgress + request.getProgressMade(), questDefinition.getRequiredProgress());
+        // Update progress of active quest, if any.
+        playerQuestRepository.increaseProgress(playerId, questDefinitionId, request.getProgressMade(),
+                questDefinition.getRequiredProgress(), OffsetDateTime.now());
+    }
+
+    @Timed("quests.service")
+    public IncreaseQuestProgressBatchResponse increaseQuestProgressBatch(IncreaseQuestProgressBatchRequest request) {
+        QuestCatalog catalog = questCatalogService.getCatalog();
+
+        // Validate items and merge progress per player and quest definition.
+        ArrayList<IncreaseQuestProgressBatchResponseItem> responseItems = new ArrayList<>();
+        ArrayList<PlayerQuestKey> responseItemKeys = new ArrayList<>();
+        LinkedHashMap<PlayerQuestKey, Integer> progressMade = new LinkedHashMap<>();
+
+        List<IncreaseQuestProgressBatchRequestItem> items =
+                request.getItems() != null ? request.getItems() : Collections.emptyList();
+
+        for (IncreaseQuestProgressBatchRequestItem item : items) {
+            IncreaseQuestProgressBatchResponseItem responseItem = new IncreaseQuestProgressBatchResponseItem();
+            responseItem.setPlayerId(item.getPlayerId());
+            responseItem.setQuestDefinitionId(item.getQuestDefinitionId());
+            responseItems.add(responseItem);
+
+            if (Strings.isNullOrEmpty(item.getPlayerId())) {
+                responseItem.setResult(IncreaseQuestProgressResult.MISSING_PLAYER_ID);
+                responseItemKeys.add(null);
+                continue;
+            }
+
+            if (catalog.getDefinition(item.getQuestDefinitionId()) == null) {
+                responseItem.setResult(IncreaseQuestProgressResult.UNKNOWN_QUEST_DEFINITION);
+                responseItemKeys.add(null);
+                continue;
+            }
+
+            if (item.getProgressMade() <= 0) {
+                responseItem.setResult(IncreaseQuestProgressResult.INVALID_PROGRESS);
+                responseItemKeys.add(null);
+                continue;
+            }
+
+            // Saturate instead of overflowing into negative progress.
+            PlayerQuestKey key = new PlayerQuestKey(item.getPlayerId(), item.getQuestDefinitionId());
+            progressMade.merge(key, item.getProgressMade(),
+                    (progress1, progress2) -> (int)Math.min((long)progress1 + progress2, Integer.MAX_VALUE));
+            responseItemKeys.add(key);
+        }
+
+        // Find and lock active quests with one query per chunk of players, to know their progress before the update.
+        HashMap<PlayerQuestKey, PlayerQuest> playerQuests = new HashMap<>();
+        OffsetDateTime now = OffsetDateTime.now();
+
+        Set<String> playerIds = progressMade.keySet().stream()
+                .map(PlayerQuestKey::getPlayerId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<String> questDefinitionIds = progressMade.keySet().stream()
+                .map(PlayerQuestKey::getQuestDefinitionId)
+                .collect(Collectors.toSet());
+
+        for (List<String> playerIdChunk : Iterables.partition(playerIds, MAX_PLAYERS_PER_QUERY)) {
+            for (PlayerQuest playerQuest : playerQuestRepository
+                    .findLockedByPlayerIdInAndDefinitionIdInAndCompletedAtIsNull(playerIdChunk, questDefinitionIds)) {
+                if (playerQuest.getGeneratedAt().isAfter(now)) {
+                    continue;
+                }
+
+                PlayerQuestKey key = new PlayerQuestKey(playerQuest.getPlayerId(), playerQuest.getDefinition().getId());
+                playerQuests.putIfAbsent(key, playerQuest);
+            }
+        }
+
+        // Update progress of quests that can still make progress.
+        LinkedHashMap<PlayerQuestKey, Integer> progressToAdd = new LinkedHashMap<>();
+        HashMap<PlayerQuestKey, Integer> progressAfter = new HashMap<>();
+        HashSet<PlayerQuestKey> cappedQuests = new HashSet<>();
+
+        for (Map.Entry<PlayerQuestKey, Integer> entry : progressMade.entrySet()) {
+            PlayerQuest playerQuest = playerQuests.get(entry.getKey());
+
+            if (playerQuest == null) {
+                continue;
+            }
+
+            int requiredProgress = catalog.getDefinition(entry.getKey().getQuestDefinitionId()).getRequiredProgress();
+            long progress = (long)playerQuest.getCurrentProgress() + entry.getValue();
+
+            if (progress > requiredProgress) {
+                cappedQuests.add(entry.getKey());
+                progress = Math.max(requiredProgress, playerQuest.getCurrentProgress());
+            }
+
+            if (progress > playerQuest.getCurrentProgress()) {
+                progressToAdd.put(entry.getKey(), entry.getValue());
+            }
+
+            progressAfter.put(entry.getKey(), (int)progress);
+        }
+
+        questProgressWriter.increaseQuestProgress(progressToAdd);
+
+        // Report results.
+        for (int i = 0; i < responseItems.size(); ++i) {
+            PlayerQuestKey key = responseItemKeys.get(i);
+
+            if (key == null) {
+                continue;
+            }
+
+            IncreaseQuestProgressBatchResponseItem responseItem = responseItems.get(i);
+            Integer currentProgress = progressAfter.get(key);
+
+            if (currentProgress == null) {
+                responseItem.setResult(IncreaseQuestProgressResult.QUEST_NOT_FOUND);
+            } else {
+                responseItem.setResult(cappedQuests.contains(key)
+                        ? IncreaseQuestProgressResult.PROGRESS_CAPPED
+                        : IncreaseQuestProgressResult.PROGRESS_INCREASED);
+                responseItem.setCurrentProgress(currentProgress);
+            }
+        }
+
+        IncreaseQuestProgressBatchResponse response = new IncreaseQuestProgressBatchResponse();
+        response.setItems(responseItems);
+        return response;
+    }
 
-        playerQuest.setCurrentProgress(newProgress);
-        playerQuestRepository.save(playerQuest);
+    @Timed("quests.service")
+    public FinishQuestResponse finishQuest(String playerId, String questDefinitionId, String idempotencyKey)
+            throws ApiException {
+        try {
+            return completeQuest(playerId, questDefinitionId, idempotencyKey);
+        } catch (ApiException e) {
+            questMetrics.finishRejected(e.getErrorCode());
+            throw e;
+        }
     }
 
-    public FinishQuestResponse finishQuest(String playerId, String questDefinitionId) throws ApiException {
+    private FinishQuestResponse completeQuest(String playerId, String questDefinitionId, String idempotencyKey)
+            throws ApiException {
         // Find quest.
         if (Strings.isNullOrEmpty(playerId)) {
             throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
         }
 
-        QuestDefinition questDefinition = questDefinitionRepository.findById(questDefinitionId).orElse(null);
+        QuestDefinition questDefinition = questCatalogService.getCatalog().getDefinition(questDefinitionId);
 
         if (questDefinition == null) {
             throw new ApiException(ApiErrors.UNKNOWN_QUEST_DEFINITION_CODE,
                     ApiErrors.UNKNOWN_QUEST_DEFINITION_MESSAGE + questDefinitionId);
         }
 
-        List<PlayerQuest> playerQuests = playerQuestRepository.findByPlayerIdAndDefinition(playerId, questDefinition);
-        PlayerQuest playerQuest = playerQuests.stream()
-                .filter(q -> q.getCompletedAt() == null)
+        if (idempotencyKey != null && idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new ApiException(QuestsApiErrors.IDEMPOTENCY_KEY_TOO_LONG_CODE,
+                    QuestsApiErrors.IDEMPOTENCY_KEY_TOO_LONG_MESSAGE);
+        }
+
+        // Prevent concurrent requests of the same player from completing the quest twice.
+        playerLocks.lockUntilCompletion(playerId);
+
+        // Check for retries.
+        FinishQuestResponse previousResponse = findFinishedQuest(playerId, questDefinitionId, idempotencyKey, false);
+
+        if (previousResponse != null) {
+            return previousResponse;
+        }
+
+        questProgressBuffer.flush(playerId);
+
+        OffsetDateTime now = OffsetDateTime.now();
+        PlayerQuest playerQuest = playerQuestRepository
+                .findByPlayerIdAndDefinitionAndCompletedAtIsNull(playerId, questDefinition).stream()
+                .filter(q -> !q.getGeneratedAt().isAfter(now))
                 .findFirst()
                 .orElse(null);
 
@@ -323,24 +806,184 @@ public class QuestService {
                     ApiErrors.INSUFFICIENT_QUEST_PROGRESS_MESSAGE);
         }
 
-        // Grant rewards.
-        AddCollectionItemsRequest request = new AddCollectionItemsRequest();
-        request.setItemDefinitionId(questDefinition.getRewardItemDefinitionId());
-        request.setItemCount(questDefinition.getRewardItemCount());
+        // Mark completed, unless another service instance has completed the quest in the meantime.
+        int completedQuests;
+
+        try {
+            completedQuests = playerQuestRepository.complete(playerQuest.getId(),
+                    questDefinition.getRequiredProgress(), now, Strings.emptyToNull(idempotencyKey),
+                    questDefinition.getRewardItemDefinitionId(), questDefinition.getRewardItemCount());
+        } catch (DataIntegrityViolationException e) {
+            // Another service instance has finished a quest with the same key at the same time. The failed statement
+            // has doomed this transaction, so roll it back quietly instead of failing on commit.
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
+
+            completedQuests = 0;
+        }
+
+        if (completedQuests == 0) {
+            // The quest has been completed by a transaction that started after this one, so look past our snapshot.
+            previousResponse = findFinishedQuest(playerId, questDefinitionId, idempotencyKey, true);
+
+            if (previousResponse != null) {
+                return previousResponse;
+            }
+
+            throw new ApiException(ApiErrors.QUEST_NOT_FOUND_CODE, ApiErrors.QUEST_NOT_FOUND_MESSAGE);
+        }
 
-        collectionService.addCollectionItems(playerId, request);
+        // Record rewards, to be delivered to the collection service after commit.
+        RewardGrant rewardGrant = new RewardGrant();
+        rewardGrant.setIdempotencyKey(REWARD_GRANT_IDEMPOTENCY_KEY_PREFIX + playerQuest.getId());
+        rewardGrant.setPlayerId(playerId);
+        rewardGrant.setItemDefinitionId(questDefinition.getRewardItemDefinitionId());
+        rewardGrant.setItemCount(questDefinition.getRewardItemCount());
+        rewardGrant.setCreatedAt(now);
+        rewardGrant.setNextAttemptAt(now);
+        rewardGrantRepository.save(rewardGrant);
 
-        // Mark completed.
-        playerQuest.setCompletedAt(OffsetDateTime.now());
-        playerQuestRepository.save(playerQuest);
+        rewardGrantDispatcher.dispatchAfterCommit();
 
         // Return response.
+        return mapToFinishQuestResponse(questDefinition);
+    }
+
+    private FinishQuestResponse findFinishedQuest(String playerId, String questDefinitionId, String idempotencyKey,
+                                                  boolean lockingRead) throws ApiException {
+        if (Strings.isNullOrEmpty(idempotencyKey)) {
+            return null;
+        }
+
+        List<PlayerQuest> playerQuests = lockingRead
+                ? playerQuestRepository.findLockedByPlayerIdAndFinishIdempotencyKey(playerId, idempotencyKey)
+                : playerQuestRepository.findByPlayerIdAndFinishIdempotencyKey(playerId, idempotencyKey);
+
+        if (playerQuests.isEmpty()) {
+            return null;
+        }
+
+        // Don't let clients reuse keys for finishing quests of other definitions.
+        PlayerQuest playerQuest = playerQuests.get(0);
+
+        if (!playerQuest.getDefinition().getId().equals(questDefinitionId)) {
+            throw new ApiException(ApiErrors.QUEST_NOT_FOUND_CODE, ApiErrors.QUEST_NOT_FOUND_MESSAGE);
+        }
+
+        // Return the rewards actually claimed, even if the definition has been changed since.
         FinishQuestResponse response = new FinishQuestResponse();
+        response.setRewardItemDefinitionId(playerQuest.getRewardItemDefinitionId());
+        response.setRewardItemCount(playerQuest.getRewardItemCount());
+        return response;
+    }
+
+    private QuestCategory findQuestCategory(String categoryId) throws ApiException {
+        QuestCategory category = questCategoryRepository.findById(categoryId).orElse(null);
+
+        if (category == null) {
+            throw new ApiException(ApiErrors.UNKNOWN_QUEST_CATEGORY_CODE,
+                    ApiErrors.UNKNOWN_QUEST_CATEGORY_MESSAGE + categoryId);
+        }
+
+        return category;
+    }
+
+    private QuestDefinition findQuestDefinition(String questDefinitionId) throws ApiException {
+        QuestDefinition questDefinition = questDefinitionRepository.findById(questDefinitionId).orElse(null);
+
+        if (questDefinition == null) {
+            throw new ApiException(ApiErrors.UNKNOWN_QUEST_DEFINITION_CODE,
+                    ApiErrors.UNKNOWN_QUEST_DEFINITION_MESSAGE + questDefinitionId);
+        }
+
+        return questDefinition;
+    }
+
+    private void checkVersion(Long currentVersion, Long expectedVersion) throws ApiException {
+        if (expectedVersion != null && currentVersion == null) {
+            throw new ApiException(QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE,
+                    QuestsApiErrors.QUEST_CATALOG_ITEM_NOT_FOUND_MESSAGE);
+        }
+
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new ApiException(QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE,
+                    QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_MESSAGE + currentVersion);
+        }
+    }
+
+    private boolean isUnchanged(QuestDefinition questDefinition, PutQuestDefinitionsRequestItem requestItem) {
+        return questDefinition.getCategory() != null
+                && questDefinition.getCategory().getId().equals(requestItem.getCategory())
+                && questDefinition.getRequiredProgress() == requestItem.getRequiredProgress()
+                && Objects.equals(questDefinition.getRewardItemDefinitionId(), requestItem.getRewardItemDefinitionId())
+                && questDefinition.getRewardItemCount() == requestItem.getRewardItemCount();
+    }
+
+    private GetQuestCategoryResponse mapToGetQuestCategoryResponse(QuestCategory category) {
+        GetQuestCategoryResponse response = new GetQuestCategoryResponse();
+        response.setId(category.getId());
+        response.setGenerationHourOfDay(category.getGenerationHourOfDay());
+        response.setGenerationDayOfWeek(category.getGenerationDayOfWeek());
+        response.setQuestsPerGeneration(category.getQuestsPerGeneration());
+        response.setVersion(category.getVersion());
+        return response;
+    }
+
+    private GetQuestDefinitionResponse mapToGetQuestDefinitionResponse(QuestDefinition questDefinition) {
+        GetQuestDefinitionResponse response = new GetQuestDefinitionResponse();
+        response.setId(questDefinition.getId());
+        response.setCategory(questDefinition.getCategory().getId());
+        response.setRequiredProgress(questDefinition.getRequiredProgress());
         response.setRewardItemDefinitionId(questDefinition.getRewardItemDefinitionId());
         response.setRewardItemCount(questDefinition.getRewardItemCount());
+        response.setSelectionWeight(questDefinition.getSelectionWeight());
+        response.setVersion(questDefinition.getVersion());
         return response;
     }
 
+    private GetPlayerQuestsResponseItem mapToGetPlayerQuestsResponseItem(PlayerQuest quest) {
+        return mapToGetPlayerQuestsResponseItem(quest.getId(), quest.getDefinition(), quest.getCurrentProgress(),
+                quest.getGeneratedAt(), quest.getCompletedAt());
+    }
+
+    private GetPlayerQuestsResponseItem mapToGetPlayerQuestsResponseItem(PlayerQuestHistory quest) {
+        return mapToGetPlayerQuestsResponseItem(quest.getId(), quest.getDefinition(), quest.getCurrentProgress(),
+                quest.getGeneratedAt(), quest.getCompletedAt());
+    }
+
+    private GetPlayerQuestsResponseItem mapToGetPlayerQuestsResponseItem(long id, QuestDefinition definition,
+                                                                         int currentProgress,
+                                                                         OffsetDateTime generatedAt,
+                                                                         OffsetDateTime completedAt) {
+        GetPlayerQuestsResponseItem playerQuest = new GetPlayerQuestsResponseItem();
+        playerQuest.setId(id);
+        playerQuest.setQuestCategoryId(definition.getCategory().getId());
+        playerQuest.setQuestDefinitionId(definition.getId());
+        playerQuest.setRequiredProgress(definition.getRequiredProgress());
+        playerQuest.setCurrentProgress(currentProgress);
+        playerQuest.setRewardItemDefinitionId(definition.getRewardItemDefinitionId());
+        playerQuest.setRewardItemCount(definition.getRewardItemCount());
+        playerQuest.setGeneratedAt(generatedAt);
+        playerQuest.setCompletedAt(completedAt);
+        return playerQuest;
+    }
+
+    private FinishQuestResponse mapToFinishQuestResponse(QuestDefinition questDefinition) {
+        FinishQuestResponse response = new FinishQuestResponse();
+        response.setRewardItemDefinitionId(questDefinition.getRewardItemDefinitionId());
+        response.setRewardItemCount(questDefinition.getRewardItemCount());
+        return response;
+    }
+
+    /**
+     * Checks whether the latest quests of a category have been pre-generated and become current, but have not
+     * been requested by the player yet.
+     */
+    private static boolean isUnseen(OffsetDateTime generatedAt, OffsetDateTime lastSeenAt, OffsetDateTime now) {
+        return !generatedAt.isAfter(now) && (lastSeenAt == null || lastSeenAt.isBefore(generatedAt));
+    }
+
     private CreateQuestsResponseItem mapToCreateQuestsResponseItem(PlayerQuest quest, boolean isNewQuest) {
         CreateQuestsResponseItem responseItem = new CreateQuestsResponseItem();
         responseItem.setId(quest.getId());
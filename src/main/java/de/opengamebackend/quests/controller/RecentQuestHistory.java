@@ -0,0 +1,78 @@
+package de.opengamebackend.quests.controller;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Compact history of the quest definitions most recently generated for a player in a category, packed into a single
+ * long so that it can be stored with the latest quest generation of that player.
+ * <p>
+ * The history holds up to {@link #MAX_WINDOW} entries of one byte each, the latest in the lowest byte. Each entry is
+ * one of 64 slots the id of a definition is hashed to, plus one, so that zero marks an empty entry. Because slots are
+ * derived from the ids, histories stay valid if definitions are added or removed.
+ */
+public final class RecentQuestHistory {
+    public static final int MAX_WINDOW = 8;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32();
+
+    private RecentQuestHistory() {
+    }
+
+    /**
+     * Gets the slot the specified quest definition is tracked in.
+     */
+    public static int getSlot(String questDefinitionId) {
+        return HASH_FUNCTION.hashString(questDefinitionId, StandardCharsets.UTF_8).asInt() & 63;
+    }
+
+    /**
+     * Adds the specified quest definition as latest entry of the history, dropping the oldest entries beyond the
+     * window.
+     *
+     * @param window Number of entries to keep, at most {@link #MAX_WINDOW}.
+     */
+    public static long add(long history, String questDefinitionId, int window) {
+        if (window <= 0) {
+            return 0;
+        }
+
+        long newHistory = (history << 8) | (getSlot(questDefinitionId) + 1);
+        return window >= MAX_WINDOW ? newHistory : newHistory & ((1L << (8 * window)) - 1);
+    }
+
+    /**
+     * Adds the passed quest definitions generated at once as latest entries of the history, keeping the entries of
+     * the specified number of generations, as far as they fit.
+     */
+    public static long addGeneration(long history, List<QuestDefinition> questDefinitions, int generations) {
+        int window = Math.min(generations * questDefinitions.size(), MAX_WINDOW);
+
+        for (QuestDefinition questDefinition : questDefinitions) {
+            history = add(history, questDefinition.getId(), window);
+        }
+
+        return history;
+    }
+
+    /**
+     * Gets the slots of all entries of the history as bitset.
+     */
+    public static long getSlots(long history) {
+        long slots = 0;
+
+        for (; history != 0; history >>>= 8) {
+            int entry = (int) (history & 0xFF);
+
+            if (entry != 0) {
+                slots |= 1L << (entry - 1);
+            }
+        }
+
+        return slots;
+    }
+}
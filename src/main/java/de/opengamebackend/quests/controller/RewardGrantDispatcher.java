@@ -0,0 +1,321 @@
+package de.opengamebackend.quests.controller;
+
+import com.google.common.collect.Lists;
+import de.opengamebackend.collection.model.requests.AddCollectionItemsRequest;
+import de.opengamebackend.net.ApiErrors;
+import de.opengamebackend.net.ApiException;
+import de.opengamebackend.quests.config.CollectionServiceConfig;
+import de.opengamebackend.quests.config.RewardGrantConfig;
+import de.opengamebackend.quests.model.entities.RewardGrant;
+import de.opengamebackend.quests.model.repositories.RewardGrantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers reward grants to the collection service in the background, retrying failed deliveries with exponential
+ * backoff.
+ * <p>
+ * Pending grants of the same player and item are merged into a single call to the collection service. Grants are
+ * assigned to their delivery once, and keep it for all retries, so every delivery can be sent with a stable
+ * idempotency key. Deliveries that succeeded without the confirmation reaching this service can thus safely be
+ * retried, and still succeed or fail for all of their grants together.
+ * <p>
+ * Deliveries rejected before calling the collection service, e.g. by its circuit breaker, don't count as attempts.
+ * They are retried once the circuit breaker permits calls again.
+ */
+@Service
+public class RewardGrantDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(RewardGrantDispatcher.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final String DELIVERY_KEY_PREFIX = "quests-rewardgrant-";
+
+    /**
+     * Result of a delivery that has not been attempted, because the collection service rejected the call.
+     */
+    private static final int REJECTED = -1;
+
+    private final RewardGrantConfig rewardGrantConfig;
+    private final CollectionServiceConfig collectionServiceConfig;
+    private final RewardGrantRepository rewardGrantRepository;
+    private final CollectionService collectionService;
+
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean();
+    private final AtomicInteger requestedGrants = new AtomicInteger();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService deliveryExecutor;
+
+    @Autowired
+    public RewardGrantDispatcher(RewardGrantConfig rewardGrantConfig, CollectionServiceConfig collectionServiceConfig,
+                                 RewardGrantRepository rewardGrantRepository, CollectionService collectionService) {
+        this.rewardGrantConfig = rewardGrantConfig;
+        this.collectionServiceConfig = collectionServiceConfig;
+        this.rewardGrantRepository = rewardGrantRepository;
+        this.collectionService = collectionService;
+    }
+
+    @PostConstruct
+    public void start() {
+        long pollIntervalMillis = rewardGrantConfig.getPollInterval().toMillis();
+
+        deliveryExecutor = Executors.newFixedThreadPool(rewardGrantConfig.getDeliveryThreads(),
+                r -> new Thread(r, "reward-grant-delivery"));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "reward-grant-dispatch"));
+        scheduler.scheduleWithFixedDelay(this::dispatchQuietly, pollIntervalMillis, pollIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdownNow();
+        deliveryExecutor.shutdownNow();
+
+        // Don't access the database while it's shutting down. Interrupted deliveries are retried after restart.
+        scheduler.awaitTermination(rewardGrantConfig.getPollInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Delivers pending reward grants shortly after the current transaction has been committed, instead of waiting
+     * for the next scheduled check. Waits for the configured batch window first, unless enough grants have been
+     * requested to fill a batch, so that grants of quests finished in quick succession can be delivered together.
+     */
+    public void dispatchAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            requestDispatch();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                requestDispatch();
+            }
+        });
+    }
+
+    /**
+     * Delivers all reward grants that are due. Stops after the first batch with deliveries that could not be
+     * completed, leaving further batches to the next check.
+     *
+     * @return Number of reward grants delivered.
+     */
+    public int dispatch() {
+        int deliveredGrants = 0;
+        List<RewardGrant> grants;
+        BatchResult result;
+
+        do {
+            OffsetDateTime now = OffsetDateTime.now();
+            grants = rewardGrantRepository.findByFailedAtIsNullAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(now,
+                    PageRequest.of(0, rewardGrantConfig.getBatchSize()));
+
+            result = deliver(assignDeliveries(grants), now);
+            deliveredGrants += result.deliveredGrants;
+        } while (grants.size() >= rewardGrantConfig.getBatchSize() && !result.incomplete
+                && !Thread.currentThread().isInterrupted());
+
+        return deliveredGrants;
+    }
+
+    /**
+     * Assigns all passed grants that are not part of any delivery yet to new deliveries, merging grants of the same
+     * player and item.
+     *
+     * @return Keys of the deliveries of the passed grants.
+     */
+    private Set<String> assignDeliveries(List<RewardGrant> grants) {
+        LinkedHashSet<String> deliveryKeys = new LinkedHashSet<>();
+        LinkedHashMap<String, List<Long>> unassignedGrants = new LinkedHashMap<>();
+
+        for (RewardGrant grant : grants) {
+            if (grant.getDeliveryKey() != null) {
+                deliveryKeys.add(grant.getDeliveryKey());
+            } else {
+                unassignedGrants.computeIfAbsent(grant.getPlayerId() + "/" + grant.getItemDefinitionId(),
+                        k -> new ArrayList<>()).add(grant.getId());
+            }
+        }
+
+        for (List<Long> grantIds : unassignedGrants.values()) {
+            for (List<Long> deliveryGrantIds :
+                    Lists.partition(grantIds, rewardGrantConfig.getMaxGrantsPerDelivery())) {
+                // Grants assigned concurrently by another service instance keep their delivery.
+                String deliveryKey = DELIVERY_KEY_PREFIX + UUID.randomUUID();
+
+                if (rewardGrantRepository.assignDeliveryKey(deliveryGrantIds, deliveryKey) > 0) {
+                    deliveryKeys.add(deliveryKey);
+                }
+            }
+        }
+
+        return deliveryKeys;
+    }
+
+    private BatchResult deliver(Set<String> deliveryKeys, OffsetDateTime now) {
+        BatchResult result = new BatchResult();
+
+        if (deliveryExecutor == null) {
+            for (String deliveryKey : deliveryKeys) {
+                result.add(deliver(deliveryKey, now));
+            }
+
+            return result;
+        }
+
+        ArrayList<Future<Integer>> deliveries = new ArrayList<>(deliveryKeys.size());
+
+        for (String deliveryKey : deliveryKeys) {
+            deliveries.add(deliveryExecutor.submit(() -> deliver(deliveryKey, now)));
+        }
+
+        for (Future<Integer> delivery : deliveries) {
+            try {
+                result.add(delivery.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                logger.error("Failed to deliver reward grants.", e.getCause());
+                result.incomplete = true;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Makes the specified delivery, if no other attempt has claimed it already.
+     *
+     * @return Number of reward grants delivered, or {@link #REJECTED} if the collection service rejected the call.
+     */
+    private int deliver(String deliveryKey, OffsetDateTime now) {
+        // Prevent other service instances from making the same delivery concurrently.
+        OffsetDateTime leaseUntil = now.plus(rewardGrantConfig.getLeaseTimeout());
+
+        if (rewardGrantRepository.claim(deliveryKey, now, leaseUntil) == 0) {
+            return 0;
+        }
+
+        List<RewardGrant> grants = rewardGrantRepository.findByDeliveryKey(deliveryKey);
+
+        if (grants.isEmpty()) {
+            return 0;
+        }
+
+        RewardGrant firstGrant = grants.get(0);
+        int attempts = 0;
+        int itemCount = 0;
+
+        for (RewardGrant grant : grants) {
+            attempts = Math.max(attempts, grant.getAttempts());
+            itemCount += grant.getItemCount();
+        }
+
+        AddCollectionItemsRequest request = new AddCollectionItemsRequest();
+        request.setItemDefinitionId(firstGrant.getItemDefinitionId());
+        request.setItemCount(itemCount);
+
+        try {
+            collectionService.addCollectionItems(firstGrant.getPlayerId(), request, deliveryKey);
+        } catch (ApiException | RuntimeException e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+
+            if (error.length() > MAX_ERROR_LENGTH) {
+                error = error.substring(0, MAX_ERROR_LENGTH);
+            }
+
+            if (e instanceof ApiException
+                    && ((ApiException) e).getErrorCode() == ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_CODE) {
+                // The collection service has not been called, so try again once it accepts calls.
+                rewardGrantRepository.release(deliveryKey,
+                        OffsetDateTime.now().plus(collectionServiceConfig.getWaitDurationInOpenState()), error);
+                return REJECTED;
+            }
+
+            if (attempts >= rewardGrantConfig.getMaxAttempts()) {
+                logger.error("Giving up delivering {} reward grants with key {} after {} attempts: {}",
+                        grants.size(), deliveryKey, attempts, error);
+                rewardGrantRepository.reschedule(deliveryKey, leaseUntil, OffsetDateTime.now(), error);
+            } else {
+                logger.warn("Failed to deliver {} reward grants with key {} (attempt {}): {}",
+                        grants.size(), deliveryKey, attempts, error);
+                rewardGrantRepository.reschedule(deliveryKey, OffsetDateTime.now().plus(getBackoff(attempts)),
+                        null, error);
+            }
+
+            return 0;
+        }
+
+        rewardGrantRepository.deleteByDeliveryKey(deliveryKey);
+        return grants.size();
+    }
+
+    private static class BatchResult {
+        private int deliveredGrants;
+
+        /**
+         * Whether any delivery of the batch has been rejected or failed unexpectedly.
+         */
+        private boolean incomplete;
+
+        private void add(int deliveryResult) {
+            if (deliveryResult == REJECTED) {
+                incomplete = true;
+            } else {
+                deliveredGrants += deliveryResult;
+            }
+        }
+    }
+
+    private Duration getBackoff(int attempts) {
+        Duration backoff = rewardGrantConfig.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 30));
+        return backoff.compareTo(rewardGrantConfig.getMaxBackoff()) < 0 ? backoff : rewardGrantConfig.getMaxBackoff();
+    }
+
+    private void requestDispatch() {
+        if (scheduler == null) {
+            return;
+        }
+
+        // Don't wait for the batch window to pass if there are enough grants to fill a batch already.
+        boolean batchFull = requestedGrants.incrementAndGet() == rewardGrantConfig.getBatchSize();
+
+        if (dispatchRequested.compareAndSet(false, true) || batchFull) {
+            Runnable dispatch = () -> {
+                dispatchRequested.set(false);
+                requestedGrants.set(0);
+                dispatchQuietly();
+            };
+
+            if (batchFull) {
+                scheduler.execute(dispatch);
+            } else {
+                scheduler.schedule(dispatch, rewardGrantConfig.getBatchWindow().toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void dispatchQuietly() {
+        try {
+            dispatch();
+        } catch (RuntimeException e) {
+            logger.error("Failed to deliver reward grants.", e);
+        }
+    }
+}
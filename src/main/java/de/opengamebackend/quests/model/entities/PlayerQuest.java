@@ -17,6 +17,13 @@ public class PlayerQuest {
     private int currentProgress;
     private OffsetDateTime generatedAt;
     private OffsetDateTime completedAt;
+    private String finishIdempotencyKey;
+
+    /**
+     * Rewards claimed when finishing the quest, returned again for retries of the same finish request.
+     */
+    private String rewardItemDefinitionId;
+    private Integer rewardItemCount;
 
     public long getId() {
         return id;
@@ -61,4 +68,28 @@ public class PlayerQuest {
     public void setCompletedAt(OffsetDateTime completedAt) {
         this.completedAt = completedAt;
     }
+
+    public String getFinishIdempotencyKey() {
+        return finishIdempotencyKey;
+    }
+
+    public void setFinishIdempotencyKey(String finishIdempotencyKey) {
+        this.finishIdempotencyKey = finishIdempotencyKey;
+    }
+
+    public String getRewardItemDefinitionId() {
+        return rewardItemDefinitionId;
+    }
+
+    public void setRewardItemDefinitionId(String rewardItemDefinitionId) {
+        this.rewardItemDefinitionId = rewardItemDefinitionId;
+    }
+
+    public Integer getRewardItemCount() {
+        return rewardItemCount;
+    }
+
+    public void setRewardItemCount(Integer rewardItemCount) {
+        this.rewardItemCount = rewardItemCount;
+    }
 }
@@ -0,0 +1,73 @@
+package de.opengamebackend.quests.model.entities;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Time the latest quest of a category has been generated for a player.
+ */
+@Entity
+@Table(name = "quests_playerquestgeneration")
+public class PlayerQuestGeneration {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    private String playerId;
+    private String categoryId;
+    private OffsetDateTime generatedAt;
+    private long recentDefinitions;
+    private OffsetDateTime lastSeenAt;
+
+    public long getId() {
+        return id;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(String playerId) {
+        this.playerId = playerId;
+    }
+
+    public String getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(String categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public OffsetDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(OffsetDateTime generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+
+    /**
+     * Gets the quest definitions of the category most recently generated for the player, as
+     * {@link de.opengamebackend.quests.controller.RecentQuestHistory}.
+     */
+    public long getRecentDefinitions() {
+        return recentDefinitions;
+    }
+
+    public void setRecentDefinitions(long recentDefinitions) {
+        this.recentDefinitions = recentDefinitions;
+    }
+
+    /**
+     * Gets the time the player has first requested the latest quests of the category. Pre-generating quests doesn't
+     * change this time, so it stays before the generation time until the player requests them.
+     */
+    public OffsetDateTime getLastSeenAt() {
+        return lastSeenAt;
+    }
+
+    public void setLastSeenAt(OffsetDateTime lastSeenAt) {
+        this.lastSeenAt = lastSeenAt;
+    }
+}
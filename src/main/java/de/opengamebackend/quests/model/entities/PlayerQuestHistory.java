@@ -0,0 +1,79 @@
+package de.opengamebackend.quests.model.entities;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Completed player quest that has been moved out of the table of active quests. Keeps the id of the original quest.
+ */
+@Entity
+@Table(name = "quests_playerquesthistory")
+public class PlayerQuestHistory {
+    @Id
+    private long id;
+
+    @ManyToOne(optional = false)
+    private QuestDefinition definition;
+
+    private String playerId;
+    private int currentProgress;
+    private OffsetDateTime generatedAt;
+    private OffsetDateTime completedAt;
+    private OffsetDateTime archivedAt;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public QuestDefinition getDefinition() {
+        return definition;
+    }
+
+    public void setDefinition(QuestDefinition definition) {
+        this.definition = definition;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(String playerId) {
+        this.playerId = playerId;
+    }
+
+    public int getCurrentProgress() {
+        return currentProgress;
+    }
+
+    public void setCurrentProgress(int currentProgress) {
+        this.currentProgress = currentProgress;
+    }
+
+    public OffsetDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(OffsetDateTime generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+
+    public OffsetDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(OffsetDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public OffsetDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(OffsetDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+}
@@ -3,6 +3,7 @@ package de.opengamebackend.quests.model.entities;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Table(name = "quests_questcategory")
@@ -12,6 +13,10 @@ public class QuestCategory {
 
     private Integer generationHourOfDay;
     private Integer generationDayOfWeek;
+    private int questsPerGeneration = 1;
+
+    @Version
+    private Long version;
 
     public String getId() {
         return id;
@@ -36,4 +41,20 @@ public class QuestCategory {
     public void setGenerationDayOfWeek(Integer generationDayOfWeek) {
         this.generationDayOfWeek = generationDayOfWeek;
     }
+
+    public int getQuestsPerGeneration() {
+        return questsPerGeneration;
+    }
+
+    public void setQuestsPerGeneration(int questsPerGeneration) {
+        this.questsPerGeneration = questsPerGeneration;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -4,6 +4,7 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Table(name = "quests_questdefinition")
@@ -17,6 +18,10 @@ public class QuestDefinition {
     private int requiredProgress;
     private String rewardItemDefinitionId;
     private int rewardItemCount;
+    private int selectionWeight = 1;
+
+    @Version
+    private Long version;
 
     public String getId() {
         return id;
@@ -57,4 +62,20 @@ public class QuestDefinition {
     public void setRewardItemCount(int rewardItemCount) {
         this.rewardItemCount = rewardItemCount;
     }
+
+    public int getSelectionWeight() {
+        return selectionWeight;
+    }
+
+    public void setSelectionWeight(int selectionWeight) {
+        this.selectionWeight = selectionWeight;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
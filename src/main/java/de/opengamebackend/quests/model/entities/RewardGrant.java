@@ -0,0 +1,114 @@
+package de.opengamebackend.quests.model.entities;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Reward of a finished quest that still needs to be added to the collection of the player. Written in the same
+ * transaction that finishes the quest, and removed as soon as the reward has been delivered.
+ * <p>
+ * Grants of the same player and item are delivered together. Grants delivered together share the same delivery key,
+ * which is kept for all retries and sent to the collection service as idempotency key.
+ */
+@Entity
+@Table(name = "quests_rewardgrant")
+public class RewardGrant {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    private String idempotencyKey;
+    private String playerId;
+    private String itemDefinitionId;
+    private int itemCount;
+    private OffsetDateTime createdAt;
+    private int attempts;
+    private OffsetDateTime nextAttemptAt;
+    private OffsetDateTime failedAt;
+    private String lastError;
+    private String deliveryKey;
+
+    public long getId() {
+        return id;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(String playerId) {
+        this.playerId = playerId;
+    }
+
+    public String getItemDefinitionId() {
+        return itemDefinitionId;
+    }
+
+    public void setItemDefinitionId(String itemDefinitionId) {
+        this.itemDefinitionId = itemDefinitionId;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public OffsetDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(OffsetDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public OffsetDateTime getFailedAt() {
+        return failedAt;
+    }
+
+    public void setFailedAt(OffsetDateTime failedAt) {
+        this.failedAt = failedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getDeliveryKey() {
+        return deliveryKey;
+    }
+
+    public void setDeliveryKey(String deliveryKey) {
+        this.deliveryKey = deliveryKey;
+    }
+}
@@ -0,0 +1,20 @@
+package de.opengamebackend.quests.model.repositories;
+
+import de.opengamebackend.quests.model.entities.PlayerQuestGeneration;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+public interface PlayerQuestGenerationRepository extends CrudRepository<PlayerQuestGeneration, Long> {
+    List<PlayerQuestGeneration> findByPlayerId(String playerId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM PlayerQuestGeneration g WHERE g.playerId = :playerId ORDER BY g.id")
+    List<PlayerQuestGeneration> findByPlayerIdForUpdate(@Param("playerId") String playerId);
+}
@@ -0,0 +1,27 @@
+package de.opengamebackend.quests.model.repositories;
+
+import de.opengamebackend.quests.model.entities.PlayerQuestHistory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PlayerQuestHistoryRepository extends CrudRepository<PlayerQuestHistory, Long> {
+    List<PlayerQuestHistory> findByPlayerId(String playerId);
+    boolean existsByDefinitionId(String questDefinitionId);
+
+    /**
+     * Gets the ids of the active and archived quests of the specified player, latest first.
+     */
+    @Query(value = "SELECT q.id FROM (" +
+            "SELECT id, generated_at FROM quests_playerquest WHERE player_id = :playerId " +
+            "UNION ALL " +
+            "SELECT id, generated_at FROM quests_playerquesthistory WHERE player_id = :playerId" +
+            ") q ORDER BY q.generated_at DESC, q.id DESC",
+            nativeQuery = true)
+    List<Number> findAllQuestIdsByPlayerId(@Param("playerId") String playerId, Pageable pageable);
+}
@@ -2,13 +2,65 @@ package de.opengamebackend.quests.model.repositories;
 
 import de.opengamebackend.quests.model.entities.PlayerQuest;
 import de.opengamebackend.quests.model.entities.QuestDefinition;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PlayerQuestRepository extends CrudRepository<PlayerQuest, Long> {
     List<PlayerQuest> findByPlayerId(String playerId);
+    List<PlayerQuest> findByPlayerIdAndCompletedAtIsNull(String playerId);
     List<PlayerQuest> findByPlayerIdAndDefinition(String playerId, QuestDefinition questDefinition);
+    List<PlayerQuest> findByPlayerIdAndDefinitionAndCompletedAtIsNull(String playerId,
+                                                                     QuestDefinition questDefinition);
+    List<PlayerQuest> findByPlayerIdAndFinishIdempotencyKey(String playerId, String finishIdempotencyKey);
+
+    /**
+     * Finds the quests finished with the passed key, reading the latest committed rows instead of the snapshot of
+     * the current transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<PlayerQuest> findLockedByPlayerIdAndFinishIdempotencyKey(String playerId, String finishIdempotencyKey);
+
+    boolean existsByDefinitionId(String questDefinitionId);
+
+    /**
+     * Finds the active quests of the passed players and quest definitions, locking them until the current
+     * transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<PlayerQuest> findLockedByPlayerIdInAndDefinitionIdInAndCompletedAtIsNull(Collection<String> playerIds,
+                                                                                Collection<String> questDefinitionIds);
+
+    @Modifying
+    @Query(value = "UPDATE quests_playerquest " +
+            "SET current_progress = LEAST(current_progress + :progressMade, :requiredProgress) " +
+            "WHERE player_id = :playerId AND definition_id = :questDefinitionId AND completed_at IS NULL " +
+            "AND generated_at <= :now",
+            nativeQuery = true)
+    int increaseProgress(@Param("playerId") String playerId,
+                         @Param("questDefinitionId") String questDefinitionId,
+                         @Param("progressMade") int progressMade,
+                         @Param("requiredProgress") int requiredProgress,
+                         @Param("now") OffsetDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE PlayerQuest q " +
+            "SET q.completedAt = :completedAt, q.finishIdempotencyKey = :finishIdempotencyKey, " +
+            "q.rewardItemDefinitionId = :rewardItemDefinitionId, q.rewardItemCount = :rewardItemCount " +
+            "WHERE q.id = :id AND q.completedAt IS NULL AND q.currentProgress >= :requiredProgress")
+    int complete(@Param("id") long id,
+                 @Param("requiredProgress") int requiredProgress,
+                 @Param("completedAt") OffsetDateTime completedAt,
+                 @Param("finishIdempotencyKey") String finishIdempotencyKey,
+                 @Param("rewardItemDefinitionId") String rewardItemDefinitionId,
+                 @Param("rewardItemCount") int rewardItemCount);
 }
@@ -6,4 +6,5 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface QuestCategoryRepository extends CrudRepository<QuestCategory, String> {
+    <S extends QuestCategory> S saveAndFlush(S category);
 }
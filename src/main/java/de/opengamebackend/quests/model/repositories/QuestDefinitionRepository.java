@@ -10,4 +10,7 @@ import java.util.List;
 @Repository
 public interface QuestDefinitionRepository extends CrudRepository<QuestDefinition, String> {
     List<QuestDefinition> findByCategory(QuestCategory category);
+    boolean existsByCategoryId(String categoryId);
+
+    <S extends QuestDefinition> S saveAndFlush(S questDefinition);
 }
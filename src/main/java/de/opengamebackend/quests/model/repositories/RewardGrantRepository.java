@@ -0,0 +1,69 @@
+package de.opengamebackend.quests.model.repositories;
+
+import de.opengamebackend.quests.model.entities.RewardGrant;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.transaction.Transactional;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RewardGrantRepository extends CrudRepository<RewardGrant, Long> {
+    List<RewardGrant> findByFailedAtIsNullAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(OffsetDateTime now,
+                                                                                          Pageable pageable);
+    List<RewardGrant> findByDeliveryKey(String deliveryKey);
+
+    /**
+     * Assigns the passed delivery key to all specified grants that don't have one yet.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RewardGrant g SET g.deliveryKey = :deliveryKey WHERE g.id IN :ids AND g.deliveryKey IS NULL")
+    int assignDeliveryKey(@Param("ids") Collection<Long> ids, @Param("deliveryKey") String deliveryKey);
+
+    /**
+     * Claims the grants with the specified delivery key for a delivery attempt, unless another attempt has claimed
+     * them already.
+     *
+     * @return Number of grants claimed.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RewardGrant g SET g.attempts = g.attempts + 1, g.nextAttemptAt = :leaseUntil " +
+            "WHERE g.deliveryKey = :deliveryKey AND g.nextAttemptAt <= :now AND g.failedAt IS NULL")
+    int claim(@Param("deliveryKey") String deliveryKey,
+              @Param("now") OffsetDateTime now,
+              @Param("leaseUntil") OffsetDateTime leaseUntil);
+
+    /**
+     * Releases the claim on the grants with the specified delivery key without counting it as delivery attempt,
+     * e.g. because the collection service has not been called at all.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RewardGrant g SET g.attempts = g.attempts - 1, g.nextAttemptAt = :nextAttemptAt, " +
+            "g.lastError = :lastError WHERE g.deliveryKey = :deliveryKey")
+    int release(@Param("deliveryKey") String deliveryKey,
+                @Param("nextAttemptAt") OffsetDateTime nextAttemptAt,
+                @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE RewardGrant g SET g.nextAttemptAt = :nextAttemptAt, g.failedAt = :failedAt, " +
+            "g.lastError = :lastError WHERE g.deliveryKey = :deliveryKey")
+    int reschedule(@Param("deliveryKey") String deliveryKey,
+                   @Param("nextAttemptAt") OffsetDateTime nextAttemptAt,
+                   @Param("failedAt") OffsetDateTime failedAt,
+                   @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RewardGrant g WHERE g.deliveryKey = :deliveryKey")
+    int deleteByDeliveryKey(@Param("deliveryKey") String deliveryKey);
+}
@@ -0,0 +1,16 @@
+package de.opengamebackend.quests.model.requests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IncreaseQuestProgressBatchRequest {
+    private List<IncreaseQuestProgressBatchRequestItem> items = new ArrayList<>();
+
+    public List<IncreaseQuestProgressBatchRequestItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<IncreaseQuestProgressBatchRequestItem> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,31 @@
+package de.opengamebackend.quests.model.requests;
+
+public class IncreaseQuestProgressBatchRequestItem {
+    private String playerId;
+    private String questDefinitionId;
+    private int progressMade;
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(String playerId) {
+        this.playerId = playerId;
+    }
+
+    public String getQuestDefinitionId() {
+        return questDefinitionId;
+    }
+
+    public void setQuestDefinitionId(String questDefinitionId) {
+        this.questDefinitionId = questDefinitionId;
+    }
+
+    public int getProgressMade() {
+        return progressMade;
+    }
+
+    public void setProgressMade(int progressMade) {
+        this.progressMade = progressMade;
+    }
+}
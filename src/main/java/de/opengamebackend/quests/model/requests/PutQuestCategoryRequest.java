@@ -0,0 +1,13 @@
+package de.opengamebackend.quests.model.requests;
+
+public class PutQuestCategoryRequest extends PutQuestCategoriesRequestItem {
+    private Integer questsPerGeneration;
+
+    public Integer getQuestsPerGeneration() {
+        return questsPerGeneration;
+    }
+
+    public void setQuestsPerGeneration(Integer questsPerGeneration) {
+        this.questsPerGeneration = questsPerGeneration;
+    }
+}
@@ -0,0 +1,13 @@
+package de.opengamebackend.quests.model.requests;
+
+public class PutQuestDefinitionRequest extends PutQuestDefinitionsRequestItem {
+    private Integer selectionWeight;
+
+    public Integer getSelectionWeight() {
+        return selectionWeight;
+    }
+
+    public void setSelectionWeight(Integer selectionWeight) {
+        this.selectionWeight = selectionWeight;
+    }
+}
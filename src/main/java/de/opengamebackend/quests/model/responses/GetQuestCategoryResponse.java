@@ -0,0 +1,49 @@
+package de.opengamebackend.quests.model.responses;
+
+public class GetQuestCategoryResponse {
+    private String id;
+    private Integer generationHourOfDay;
+    private Integer generationDayOfWeek;
+    private int questsPerGeneration;
+    private long version;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Integer getGenerationHourOfDay() {
+        return generationHourOfDay;
+    }
+
+    public void setGenerationHourOfDay(Integer generationHourOfDay) {
+        this.generationHourOfDay = generationHourOfDay;
+    }
+
+    public Integer getGenerationDayOfWeek() {
+        return generationDayOfWeek;
+    }
+
+    public void setGenerationDayOfWeek(Integer generationDayOfWeek) {
+        this.generationDayOfWeek = generationDayOfWeek;
+    }
+
+    public int getQuestsPerGeneration() {
+        return questsPerGeneration;
+    }
+
+    public void setQuestsPerGeneration(int questsPerGeneration) {
+        this.questsPerGeneration = questsPerGeneration;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
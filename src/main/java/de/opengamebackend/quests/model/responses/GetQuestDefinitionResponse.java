@@ -0,0 +1,67 @@
+package de.opengamebackend.quests.model.responses;
+
+public class GetQuestDefinitionResponse {
+    private String id;
+    private String category;
+    private int requiredProgress;
+    private String rewardItemDefinitionId;
+    private int rewardItemCount;
+    private int selectionWeight;
+    private long version;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public int getRequiredProgress() {
+        return requiredProgress;
+    }
+
+    public void setRequiredProgress(int requiredProgress) {
+        this.requiredProgress = requiredProgress;
+    }
+
+    public String getRewardItemDefinitionId() {
+        return rewardItemDefinitionId;
+    }
+
+    public void setRewardItemDefinitionId(String rewardItemDefinitionId) {
+        this.rewardItemDefinitionId = rewardItemDefinitionId;
+    }
+
+    public int getRewardItemCount() {
+        return rewardItemCount;
+    }
+
+    public void setRewardItemCount(int rewardItemCount) {
+        this.rewardItemCount = rewardItemCount;
+    }
+
+    public int getSelectionWeight() {
+        return selectionWeight;
+    }
+
+    public void setSelectionWeight(int selectionWeight) {
+        this.selectionWeight = selectionWeight;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
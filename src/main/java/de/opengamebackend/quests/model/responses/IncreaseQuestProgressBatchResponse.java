@@ -0,0 +1,16 @@
+package de.opengamebackend.quests.model.responses;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IncreaseQuestProgressBatchResponse {
+    private List<IncreaseQuestProgressBatchResponseItem> items = new ArrayList<>();
+
+    public List<IncreaseQuestProgressBatchResponseItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<IncreaseQuestProgressBatchResponseItem> items) {
+        this.items = items;
+    }
+}
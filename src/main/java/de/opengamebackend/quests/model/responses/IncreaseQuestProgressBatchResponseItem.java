@@ -0,0 +1,40 @@
+package de.opengamebackend.quests.model.responses;
+
+public class IncreaseQuestProgressBatchResponseItem {
+    private String playerId;
+    private String questDefinitionId;
+    private IncreaseQuestProgressResult result;
+    private int currentProgress;
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(String playerId) {
+        this.playerId = playerId;
+    }
+
+    public String getQuestDefinitionId() {
+        return questDefinitionId;
+    }
+
+    public void setQuestDefinitionId(String questDefinitionId) {
+        this.questDefinitionId = questDefinitionId;
+    }
+
+    public IncreaseQuestProgressResult getResult() {
+        return result;
+    }
+
+    public void setResult(IncreaseQuestProgressResult result) {
+        this.result = result;
+    }
+
+    public int getCurrentProgress() {
+        return currentProgress;
+    }
+
+    public void setCurrentProgress(int currentProgress) {
+        this.currentProgress = currentProgress;
+    }
+}
@@ -0,0 +1,16 @@
+package de.opengamebackend.quests.model.responses;
+
+public enum IncreaseQuestProgressResult {
+    PROGRESS_INCREASED,
+    /**
+     * Less than the passed progress has been added, or none at all, because the quest reached its required progress.
+     */
+    PROGRESS_CAPPED,
+    QUEST_NOT_FOUND,
+    UNKNOWN_QUEST_DEFINITION,
+    MISSING_PLAYER_ID,
+    /**
+     * Progress made is zero or negative.
+     */
+    INVALID_PROGRESS
+}
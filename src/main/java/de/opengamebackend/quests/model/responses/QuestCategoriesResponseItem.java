@@ -0,0 +1,13 @@
+package de.opengamebackend.quests.model.responses;
+
+public class QuestCategoriesResponseItem extends GetQuestCategoriesResponseItem {
+    private int questsPerGeneration;
+
+    public int getQuestsPerGeneration() {
+        return questsPerGeneration;
+    }
+
+    public void setQuestsPerGeneration(int questsPerGeneration) {
+        this.questsPerGeneration = questsPerGeneration;
+    }
+}
@@ -0,0 +1,13 @@
+package de.opengamebackend.quests.model.responses;
+
+public class QuestDefinitionsResponseItem extends GetQuestDefinitionsResponseItem {
+    private int selectionWeight;
+
+    public int getSelectionWeight() {
+        return selectionWeight;
+    }
+
+    public void setSelectionWeight(int selectionWeight) {
+        this.selectionWeight = selectionWeight;
+    }
+}
@@ -0,0 +1,2 @@
+ALTER TABLE quests_questdefinition ADD COLUMN selection_weight INT(10) UNSIGNED NOT NULL DEFAULT 1;
+ALTER TABLE quests_playerquestgeneration ADD COLUMN recent_definitions BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1 @@
+ALTER TABLE quests_questcategory ADD COLUMN quests_per_generation INT(10) UNSIGNED NOT NULL DEFAULT 1;
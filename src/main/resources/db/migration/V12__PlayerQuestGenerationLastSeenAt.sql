@@ -0,0 +1,3 @@
+ALTER TABLE quests_playerquestgeneration ADD COLUMN last_seen_at TIMESTAMP(3) NULL;
+
+UPDATE quests_playerquestgeneration SET last_seen_at = generated_at WHERE generated_at <= CURRENT_TIMESTAMP(3);
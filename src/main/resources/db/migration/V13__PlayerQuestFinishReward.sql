@@ -0,0 +1,7 @@
+ALTER TABLE quests_playerquest ADD COLUMN reward_item_definition_id VARCHAR(100) NULL;
+ALTER TABLE quests_playerquest ADD COLUMN reward_item_count INT(10) UNSIGNED NULL;
+
+UPDATE quests_playerquest SET
+    reward_item_definition_id = (SELECT d.reward_item_definition_id FROM quests_questdefinition d WHERE d.id = quests_playerquest.definition_id),
+    reward_item_count = (SELECT d.reward_item_count FROM quests_questdefinition d WHERE d.id = quests_playerquest.definition_id)
+WHERE completed_at IS NOT NULL;
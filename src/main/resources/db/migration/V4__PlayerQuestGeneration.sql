@@ -0,0 +1,18 @@
+CREATE TABLE quests_playerquestgeneration (
+    id INT NOT NULL AUTO_INCREMENT,
+    player_id VARCHAR(100) NOT NULL,
+    category_id VARCHAR(100) NOT NULL,
+    generated_at TIMESTAMP(3) NOT NULL,
+
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX ux_quests_playerquestgeneration_player_id_category_id ON quests_playerquestgeneration (player_id, category_id);
+
+INSERT INTO quests_playerquestgeneration (player_id, category_id, generated_at)
+    SELECT q.player_id, d.category_id, MAX(q.generated_at)
+    FROM quests_playerquest q
+    INNER JOIN quests_questdefinition d ON d.id = q.definition_id
+    GROUP BY q.player_id, d.category_id;
+
+CREATE INDEX ix_quests_playerquest_player_id_completed_at ON quests_playerquest (player_id, completed_at);
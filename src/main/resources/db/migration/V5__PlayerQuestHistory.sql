@@ -0,0 +1,16 @@
+CREATE TABLE quests_playerquesthistory (
+    id INT NOT NULL,
+    definition_id VARCHAR(100) NOT NULL,
+    player_id VARCHAR(100) NOT NULL,
+    current_progress INT(10) UNSIGNED NOT NULL,
+    generated_at TIMESTAMP(3) NOT NULL,
+    completed_at TIMESTAMP(3) NOT NULL,
+    archived_at TIMESTAMP(3) NOT NULL,
+
+    PRIMARY KEY (id),
+    FOREIGN KEY (definition_id) REFERENCES quests_questdefinition(id)
+);
+
+CREATE INDEX ix_quests_playerquesthistory_player_id_generated_at ON quests_playerquesthistory (player_id, generated_at);
+
+CREATE INDEX ix_quests_playerquest_completed_at ON quests_playerquest (completed_at);
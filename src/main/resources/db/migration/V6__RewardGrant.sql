@@ -0,0 +1,17 @@
+CREATE TABLE quests_rewardgrant (
+    id INT NOT NULL AUTO_INCREMENT,
+    idempotency_key VARCHAR(100) NOT NULL,
+    player_id VARCHAR(100) NOT NULL,
+    item_definition_id VARCHAR(100) NOT NULL,
+    item_count INT(10) UNSIGNED NOT NULL,
+    created_at TIMESTAMP(3) NOT NULL,
+    attempts INT(10) UNSIGNED NOT NULL,
+    next_attempt_at TIMESTAMP(3) NOT NULL,
+    failed_at TIMESTAMP(3) NULL,
+    last_error VARCHAR(1000) NULL,
+
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX ux_quests_rewardgrant_idempotency_key ON quests_rewardgrant (idempotency_key);
+CREATE INDEX ix_quests_rewardgrant_failed_at_next_attempt_at ON quests_rewardgrant (failed_at, next_attempt_at);
@@ -0,0 +1,5 @@
+ALTER TABLE quests_rewardgrant ADD COLUMN delivery_key VARCHAR(100) NULL;
+
+UPDATE quests_rewardgrant SET delivery_key = idempotency_key;
+
+CREATE INDEX ix_quests_rewardgrant_delivery_key ON quests_rewardgrant (delivery_key);
@@ -0,0 +1,3 @@
+ALTER TABLE quests_playerquest ADD COLUMN finish_idempotency_key VARCHAR(100) NULL;
+
+CREATE UNIQUE INDEX ux_quests_playerquest_player_id_finish_idempotency_key ON quests_playerquest (player_id, finish_idempotency_key);
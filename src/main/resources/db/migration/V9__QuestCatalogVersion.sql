@@ -0,0 +1,2 @@
+ALTER TABLE quests_questcategory ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE quests_questdefinition ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,37 @@
+package de.opengamebackend.quests;
+
+import de.opengamebackend.net.ErrorResponse;
+import de.opengamebackend.quests.model.entities.QuestCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GlobalControllerExceptionHandlerTests {
+    private GlobalControllerExceptionHandler globalControllerExceptionHandler;
+
+    @BeforeEach
+    public void beforeEach() {
+        globalControllerExceptionHandler = new GlobalControllerExceptionHandler();
+    }
+
+    @Test
+    public void givenOptimisticLockingFailure_whenHandle_thenReportsConcurrentWrite() {
+        // GIVEN
+        ObjectOptimisticLockingFailureException e =
+                new ObjectOptimisticLockingFailureException(QuestCategory.class, "testQuestCategory");
+
+        // WHEN
+        ResponseEntity<ErrorResponse> response = globalControllerExceptionHandler.handleOptimisticLockingFailure(e);
+
+        // THEN
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getErrorCode()).isEqualTo(QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE);
+        assertThat(response.getBody().getErrorMessage())
+                .isEqualTo(QuestsApiErrors.QUEST_CATALOG_CONCURRENT_WRITE_MESSAGE);
+    }
+}
@@ -0,0 +1,119 @@
+package de.opengamebackend.quests.config;
+
+import de.opengamebackend.net.HttpHeader;
+import de.opengamebackend.quests.controller.PlayerAffinityRing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class PlayerAffinityInterceptorTests {
+    private PlayerAffinityRing playerAffinityRing;
+    private PlayerAffinityConfig playerAffinityConfig;
+    private ServiceInstance owner;
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    public void beforeEach() {
+        playerAffinityRing = mock(PlayerAffinityRing.class);
+        playerAffinityConfig = new PlayerAffinityConfig();
+
+        owner = new DefaultServiceInstance("other", "open-game-backend-quests", "otherhost", 8080, false);
+        when(playerAffinityRing.getOwner("testPlayer")).thenReturn(owner);
+
+        request = new MockHttpServletRequest("POST", "/client/finishquest/testQuestDefinition");
+        request.setQueryString("test=true");
+        request.addHeader(HttpHeader.PLAYER_ID, "testPlayer");
+
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void givenLocalPlayer_whenPreHandle_thenHandlesRequest() {
+        // GIVEN
+        when(playerAffinityRing.isLocal(owner)).thenReturn(true);
+
+        // WHEN
+        boolean handle = new PlayerAffinityInterceptor(playerAffinityRing, playerAffinityConfig)
+                .preHandle(request, response, null);
+
+        // THEN
+        assertThat(handle).isTrue();
+        assertThat(response.getHeader(PlayerAffinityInterceptor.PLAYER_INSTANCE_HEADER)).isNull();
+    }
+
+    @Test
+    public void givenRemotePlayer_whenPreHandle_thenHandlesRequestWithHint() {
+        // WHEN
+        boolean handle = new PlayerAffinityInterceptor(playerAffinityRing, playerAffinityConfig)
+                .preHandle(request, response, null);
+
+        // THEN
+        assertThat(handle).isTrue();
+        assertThat(response.getHeader(PlayerAffinityInterceptor.PLAYER_INSTANCE_HEADER))
+                .isEqualTo("http://otherhost:8080");
+    }
+
+    @Test
+    public void givenRemotePlayerAndRedirectMode_whenPreHandle_thenRedirects() {
+        // GIVEN
+        playerAffinityConfig.setMode(PlayerAffinityConfig.Mode.REDIRECT);
+
+        // WHEN
+        boolean handle = new PlayerAffinityInterceptor(playerAffinityRing, playerAffinityConfig)
+                .preHandle(request, response, null);
+
+        // THEN
+        assertThat(handle).isFalse();
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.TEMPORARY_REDIRECT.value());
+        assertThat(response.getHeader(HttpHeaders.LOCATION))
+                .isEqualTo("http://otherhost:8080/client/finishquest/testQuestDefinition?test=true&"
+                        + PlayerAffinityInterceptor.REDIRECTED_PARAMETER + "=true");
+    }
+
+    @Test
+    public void givenRedirectedRequestOfRemotePlayer_whenPreHandle_thenHandlesRequest() {
+        // GIVEN
+        playerAffinityConfig.setMode(PlayerAffinityConfig.Mode.REDIRECT);
+
+        request.setQueryString("test=true&" + PlayerAffinityInterceptor.REDIRECTED_PARAMETER + "=true");
+        request.setParameter(PlayerAffinityInterceptor.REDIRECTED_PARAMETER, "true");
+
+        // WHEN
+        boolean handle = new PlayerAffinityInterceptor(playerAffinityRing, playerAffinityConfig)
+                .preHandle(request, response, null);
+
+        // THEN
+        assertThat(handle).isTrue();
+        assertThat(response.getHeader(HttpHeaders.LOCATION)).isNull();
+    }
+
+    @Test
+    public void givenPlayerIdPathVariable_whenPreHandle_thenRoutesPlayer() {
+        // GIVEN
+        MockHttpServletRequest serverRequest =
+                new MockHttpServletRequest("POST", "/server/increasequestprogress/testPlayer/testQuestDefinition");
+        serverRequest.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE,
+                Collections.singletonMap("playerId", "testPlayer"));
+
+        // WHEN
+        new PlayerAffinityInterceptor(playerAffinityRing, playerAffinityConfig)
+                .preHandle(serverRequest, response, null);
+
+        // THEN
+        assertThat(response.getHeader(PlayerAffinityInterceptor.PLAYER_INSTANCE_HEADER))
+                .isEqualTo("http://otherhost:8080");
+    }
+}
@@ -0,0 +1,123 @@
+package de.opengamebackend.quests.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Sink;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class SampledRequestLogStrategyTests {
+    private RequestLoggingConfig requestLoggingConfig;
+
+    private Correlation correlation;
+    private HttpRequest request;
+    private HttpResponse response;
+    private Sink sink;
+
+    @BeforeEach
+    public void beforeEach() {
+        requestLoggingConfig = new RequestLoggingConfig();
+        requestLoggingConfig.setSampleRate(0);
+        requestLoggingConfig.getEndpointSampleRates().put("/server", 0.5);
+        requestLoggingConfig.getEndpointSampleRates().put("/server/increasequestprogress", 0.1);
+
+        correlation = mock(Correlation.class);
+        when(correlation.getDuration()).thenReturn(Duration.ofMillis(10));
+
+        request = mock(HttpRequest.class);
+        when(request.getPath()).thenReturn("/client/createquests");
+
+        response = mock(HttpResponse.class);
+        when(response.getStatus()).thenReturn(200);
+
+        sink = mock(Sink.class);
+    }
+
+    @Test
+    public void givenFailedRequest_whenWrite_thenWritesWithBodies() throws IOException {
+        // GIVEN
+        when(response.getStatus()).thenReturn(500);
+
+        // WHEN
+        new SampledRequestLogStrategy(requestLoggingConfig).write(correlation, request, response, sink);
+
+        // THEN
+        verify(sink).writeBoth(correlation, request, response);
+    }
+
+    @Test
+    public void givenSlowRequest_whenWrite_thenWritesWithBodies() throws IOException {
+        // GIVEN
+        when(correlation.getDuration()).thenReturn(requestLoggingConfig.getSlowThreshold());
+
+        // WHEN
+        new SampledRequestLogStrategy(requestLoggingConfig).write(correlation, request, response, sink);
+
+        // THEN
+        verify(sink).writeBoth(correlation, request, response);
+    }
+
+    @Test
+    public void givenSampledRequest_whenWrite_thenWritesWithoutBodies() throws IOException {
+        // GIVEN
+        requestLoggingConfig.setSampleRate(1);
+
+        HttpRequest requestWithoutBody = mock(HttpRequest.class);
+        HttpResponse responseWithoutBody = mock(HttpResponse.class);
+        when(request.withoutBody()).thenReturn(requestWithoutBody);
+        when(response.withoutBody()).thenReturn(responseWithoutBody);
+
+        // WHEN
+        new SampledRequestLogStrategy(requestLoggingConfig).write(correlation, request, response, sink);
+
+        // THEN
+        verify(sink).writeBoth(correlation, requestWithoutBody, responseWithoutBody);
+    }
+
+    @Test
+    public void givenUnsampledRequest_whenWrite_thenWritesNothing() throws IOException {
+        // WHEN
+        new SampledRequestLogStrategy(requestLoggingConfig).write(correlation, request, response, sink);
+
+        // THEN
+        verify(sink, never()).writeBoth(any(), any(), any());
+        verify(sink, never()).write(any(), any(), any());
+    }
+
+    @Test
+    public void givenEndpointSampleRates_whenGetSampleRate_thenUsesLongestPrefix() {
+        // GIVEN
+        SampledRequestLogStrategy strategy = new SampledRequestLogStrategy(requestLoggingConfig);
+
+        // WHEN & THEN
+        assertThat(strategy.getSampleRate("/server/increasequestprogress/testPlayer/testQuest")).isEqualTo(0.1);
+        assertThat(strategy.getSampleRate("/server/other")).isEqualTo(0.5);
+        assertThat(strategy.getSampleRate("/client/createquests")).isEqualTo(0);
+    }
+
+    @Test
+    public void givenUnbufferedPath_whenProcess_thenIgnoresBody() throws IOException {
+        // GIVEN
+        requestLoggingConfig.getUnbufferedPaths().add("/admin/questdefinitions/import");
+
+        HttpRequest importRequest = mock(HttpRequest.class);
+        when(importRequest.getPath()).thenReturn("/admin/questdefinitions/import");
+
+        // WHEN
+        SampledRequestLogStrategy strategy = new SampledRequestLogStrategy(requestLoggingConfig);
+        strategy.process(importRequest);
+        strategy.process(request);
+
+        // THEN
+        verify(importRequest).withoutBody();
+        verify(request).withBody();
+    }
+}
@@ -0,0 +1,85 @@
+package de.opengamebackend.quests.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class SqlStatementCounterTests {
+    private SimpleMeterRegistry meterRegistry;
+    private DataSource dataSource;
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    public void beforeEach() throws SQLException {
+        meterRegistry = new SimpleMeterRegistry();
+
+        dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(mock(Connection.class));
+
+        request = new MockHttpServletRequest("POST", "/client/createquests");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/client/createquests");
+
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void givenStatementsDuringRequest_whenAfterCompletion_thenRecordsStatements() throws SQLException {
+        // GIVEN
+        SqlStatementCounter sqlStatementCounter = new SqlStatementCounter(meterRegistry);
+        DataSource countingDataSource = SqlStatementCounter.countStatements(dataSource);
+
+        sqlStatementCounter.preHandle(request, response, null);
+
+        Connection connection = countingDataSource.getConnection();
+        connection.prepareStatement("SELECT 1");
+        connection.createStatement();
+        connection.commit();
+
+        // WHEN
+        sqlStatementCounter.afterCompletion(request, response, null, null);
+
+        // THEN
+        assertThat(meterRegistry.get("quests.http.server.statements").tag("uri", "/client/createquests")
+                .summary().totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenStatementsOutsideRequest_whenGetConnection_thenDelegates() throws SQLException {
+        // GIVEN
+        DataSource countingDataSource = SqlStatementCounter.countStatements(dataSource);
+
+        // WHEN
+        countingDataSource.getConnection().prepareStatement("SELECT 1");
+
+        // THEN
+        verify(dataSource).getConnection();
+        assertThat(meterRegistry.find("quests.http.server.statements").summary()).isNull();
+    }
+
+    @Test
+    public void givenClosableDataSource_whenClose_thenClosesDataSource() throws IOException {
+        // GIVEN
+        DataSource closeableDataSource = mock(DataSource.class, withSettings().extraInterfaces(Closeable.class));
+        DataSource countingDataSource = SqlStatementCounter.countStatements(closeableDataSource);
+
+        // WHEN
+        ((Closeable)countingDataSource).close();
+
+        // THEN
+        verify((Closeable)closeableDataSource).close();
+    }
+}
@@ -0,0 +1,153 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.collection.model.requests.AddCollectionItemsRequest;
+import de.opengamebackend.net.ApiErrors;
+import de.opengamebackend.net.ApiException;
+import de.opengamebackend.quests.config.CollectionServiceConfig;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class CollectionServiceTests {
+    private DiscoveryClient discoveryClient;
+    private RestTemplate restTemplate;
+    private Bulkhead bulkhead;
+    private CircuitBreaker circuitBreaker;
+    private SimpleMeterRegistry meterRegistry;
+
+    private CollectionService collectionService;
+
+    @BeforeEach
+    public void beforeEach() {
+        discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getInstances(CollectionService.SERVICE_ID)).thenReturn(Lists.list(
+                new DefaultServiceInstance("collection1", CollectionService.SERVICE_ID, "collection1", 8080, false),
+                new DefaultServiceInstance("collection2", CollectionService.SERVICE_ID, "collection2", 8080, false)));
+
+        restTemplate = new RestTemplate();
+
+        bulkhead = Bulkhead.of("testBulkhead", BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        circuitBreaker = CircuitBreaker.ofDefaults("testCircuitBreaker");
+        meterRegistry = new SimpleMeterRegistry();
+
+        collectionService = new CollectionService(discoveryClient, restTemplate, new CollectionServiceConfig(),
+                bulkhead, circuitBreaker, meterRegistry);
+    }
+
+    @Test
+    public void givenInstances_whenAddCollectionItems_thenSendsIdempotencyKey() throws ApiException {
+        // GIVEN
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://collection1:8080/admin/collection/testPlayer/items"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(header(CollectionService.IDEMPOTENCY_KEY_HEADER, "testIdempotencyKey"))
+                .andRespond(withSuccess());
+
+        // WHEN
+        collectionService.addCollectionItems("testPlayer", new AddCollectionItemsRequest(), "testIdempotencyKey");
+
+        // THEN
+        server.verify();
+        assertThat(meterRegistry.get("quests.collection.calls").tag("outcome", "success").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void givenOpenCircuitBreaker_whenAddCollectionItems_thenFailsFast() {
+        // GIVEN
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        circuitBreaker.transitionToOpenState();
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> collectionService.addCollectionItems("testPlayer", new AddCollectionItemsRequest(),
+                        "testIdempotencyKey"))
+                .satisfies(e -> assertThat(e.getErrorCode()).isEqualTo(ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_CODE));
+        server.verify();
+    }
+
+    @Test
+    public void givenFullBulkhead_whenAddCollectionItems_thenFailsFast() {
+        // GIVEN
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        bulkhead.acquirePermission();
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> collectionService.addCollectionItems("testPlayer", new AddCollectionItemsRequest(),
+                        "testIdempotencyKey"))
+                .satisfies(e -> assertThat(e.getErrorCode()).isEqualTo(ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_CODE));
+        server.verify();
+    }
+
+    @Test
+    public void givenServerError_whenAddCollectionItems_thenRecordsFailure() {
+        // GIVEN
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://collection1:8080/admin/collection/testPlayer/items"))
+                .andRespond(withServerError());
+
+        // WHEN
+        catchThrowable(() -> collectionService.addCollectionItems("testPlayer", new AddCollectionItemsRequest(),
+                "testIdempotencyKey"));
+
+        // THEN
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenInstances_whenSelectInstance_thenAlternatesInstances() throws ApiException {
+        // WHEN
+        URI firstUri = collectionService.selectInstance();
+        URI secondUri = collectionService.selectInstance();
+        URI thirdUri = collectionService.selectInstance();
+
+        // THEN
+        assertThat(firstUri).isNotEqualTo(secondUri);
+        assertThat(thirdUri).isEqualTo(firstUri);
+    }
+
+    @Test
+    public void givenInstances_whenSelectInstanceRepeatedly_thenDiscoversOnce() throws ApiException {
+        // WHEN
+        collectionService.selectInstance();
+        collectionService.selectInstance();
+
+        // THEN
+        verify(discoveryClient, times(1)).getInstances(CollectionService.SERVICE_ID);
+    }
+
+    @Test
+    public void givenNoInstances_whenSelectInstance_thenThrowException() {
+        // GIVEN
+        when(discoveryClient.getInstances(CollectionService.SERVICE_ID)).thenReturn(Collections.emptyList());
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class).isThrownBy(() -> collectionService.selectInstance());
+    }
+}
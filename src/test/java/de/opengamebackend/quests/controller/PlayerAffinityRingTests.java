@@ -0,0 +1,120 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.PlayerAffinityConfig;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class PlayerAffinityRingTests {
+    private static final String SERVICE_ID = "open-game-backend-quests";
+    private static final int PLAYERS = 10000;
+
+    private DiscoveryClient discoveryClient;
+    private PlayerAffinityConfig playerAffinityConfig;
+
+    private ServiceInstance localInstance;
+    private ServiceInstance otherInstance;
+    private ServiceInstance newInstance;
+
+    private PlayerAffinityRing playerAffinityRing;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void beforeEach() {
+        discoveryClient = mock(DiscoveryClient.class);
+        playerAffinityConfig = new PlayerAffinityConfig();
+
+        localInstance = new DefaultServiceInstance("local", SERVICE_ID, "localhost", 8080, false);
+        otherInstance = new DefaultServiceInstance("other", SERVICE_ID, "otherhost", 8080, false);
+        newInstance = new DefaultServiceInstance("new", SERVICE_ID, "newhost", 8080, false);
+
+        Registration registration = mock(Registration.class);
+        when(registration.getInstanceId()).thenReturn(localInstance.getInstanceId());
+
+        ObjectProvider<Registration> registrationProvider = mock(ObjectProvider.class);
+        when(registrationProvider.getIfAvailable()).thenReturn(registration);
+
+        playerAffinityRing = new PlayerAffinityRing(discoveryClient, playerAffinityConfig, SERVICE_ID,
+                registrationProvider);
+    }
+
+    @Test
+    public void givenLocalInstanceNotRegistered_whenGetOwner_thenReturnsNull() {
+        // GIVEN
+        when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Lists.list(otherInstance));
+        playerAffinityRing.refresh();
+
+        // WHEN
+        ServiceInstance owner = playerAffinityRing.getOwner("testPlayer");
+
+        // THEN
+        assertThat(owner).isNull();
+    }
+
+    @Test
+    public void givenInstances_whenGetOwner_thenSpreadsPlayersAcrossInstances() {
+        // GIVEN
+        when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Lists.list(localInstance, otherInstance));
+        playerAffinityRing.refresh();
+
+        // WHEN
+        int localPlayers = 0;
+
+        for (int i = 0; i < PLAYERS; ++i) {
+            ServiceInstance owner = playerAffinityRing.getOwner("testPlayer" + i);
+
+            assertThat(owner).isIn(localInstance, otherInstance);
+            assertThat(playerAffinityRing.getOwner("testPlayer" + i)).isSameAs(owner);
+
+            if (playerAffinityRing.isLocal(owner)) {
+                ++localPlayers;
+            }
+        }
+
+        // THEN
+        assertThat(localPlayers).isBetween(PLAYERS * 4 / 10, PLAYERS * 6 / 10);
+    }
+
+    @Test
+    public void givenNewInstance_whenGetOwner_thenOnlyMovesPlayersToNewInstance() {
+        // GIVEN
+        when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Lists.list(localInstance, otherInstance));
+        playerAffinityRing.refresh();
+
+        Map<String, ServiceInstance> oldOwners = new HashMap<>();
+
+        for (int i = 0; i < PLAYERS; ++i) {
+            oldOwners.put("testPlayer" + i, playerAffinityRing.getOwner("testPlayer" + i));
+        }
+
+        when(discoveryClient.getInstances(SERVICE_ID))
+                .thenReturn(Lists.list(localInstance, otherInstance, newInstance));
+        playerAffinityRing.refresh();
+
+        // WHEN
+        int movedPlayers = 0;
+
+        for (Map.Entry<String, ServiceInstance> oldOwner : oldOwners.entrySet()) {
+            ServiceInstance newOwner = playerAffinityRing.getOwner(oldOwner.getKey());
+
+            if (newOwner != oldOwner.getValue()) {
+                assertThat(newOwner).isSameAs(newInstance);
+                ++movedPlayers;
+            }
+        }
+
+        // THEN
+        assertThat(movedPlayers).isBetween(PLAYERS * 2 / 10, PLAYERS * 45 / 100);
+    }
+}
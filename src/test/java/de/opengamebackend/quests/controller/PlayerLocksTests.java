@@ -0,0 +1,70 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.PlayerLockConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+public class PlayerLocksTests {
+    private PlayerLocks playerLocks;
+
+    @BeforeEach
+    public void beforeEach() {
+        playerLocks = new PlayerLocks(new PlayerLockConfig());
+    }
+
+    @AfterEach
+    public void afterEach() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void givenNoTransaction_whenLockUntilCompletion_thenThrowsException() {
+        // WHEN & THEN
+        assertThatIllegalStateException().isThrownBy(() -> playerLocks.lockUntilCompletion("testPlayer"));
+    }
+
+    @Test
+    public void givenTransaction_whenLockUntilCompletion_thenHoldsLockUntilCompletion() throws Exception {
+        // GIVEN
+        TransactionSynchronizationManager.initSynchronization();
+
+        // WHEN
+        playerLocks.lockUntilCompletion("testPlayer");
+
+        // THEN
+        CompletableFuture<Void> otherTransaction = CompletableFuture.runAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+
+            try {
+                playerLocks.lockUntilCompletion("testPlayer");
+            } finally {
+                completeTransaction();
+            }
+        });
+
+        Thread.sleep(100);
+        assertThat(otherTransaction).isNotDone();
+
+        completeTransaction();
+        otherTransaction.get(1, TimeUnit.SECONDS);
+    }
+
+    private static void completeTransaction() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
@@ -0,0 +1,75 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.GenerationConfig;
+import de.opengamebackend.quests.model.entities.PlayerQuestGeneration;
+import de.opengamebackend.quests.model.repositories.PlayerQuestGenerationRepository;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class PlayerQuestGenerationCacheTests {
+    private PlayerQuestGenerationRepository playerQuestGenerationRepository;
+
+    private PlayerQuestGenerationCache playerQuestGenerationCache;
+
+    @BeforeEach
+    public void beforeEach() {
+        playerQuestGenerationRepository = mock(PlayerQuestGenerationRepository.class);
+
+        playerQuestGenerationCache = new PlayerQuestGenerationCache(new GenerationConfig(),
+                playerQuestGenerationRepository);
+    }
+
+    @Test
+    public void givenGenerations_whenGetGenerations_thenLoadsOnce() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final OffsetDateTime generatedAt = OffsetDateTime.now();
+
+        PlayerQuestGeneration generation = mock(PlayerQuestGeneration.class);
+        when(generation.getCategoryId()).thenReturn("testQuestCategory");
+        when(generation.getGeneratedAt()).thenReturn(generatedAt);
+        when(playerQuestGenerationRepository.findByPlayerId(playerId)).thenReturn(Lists.list(generation));
+
+        // WHEN
+        playerQuestGenerationCache.getGenerations(playerId);
+        Map<String, PlayerQuestGenerationCache.CachedGeneration> cachedGenerations =
+                playerQuestGenerationCache.getGenerations(playerId);
+
+        // THEN
+        assertThat(cachedGenerations).containsOnlyKeys("testQuestCategory");
+        assertThat(cachedGenerations.get("testQuestCategory").getGeneratedAt()).isEqualTo(generatedAt);
+        verify(playerQuestGenerationRepository, times(1)).findByPlayerId(playerId);
+    }
+
+    @Test
+    public void givenNewGenerations_whenPutAfterCommit_thenReplacesCachedGenerations() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final OffsetDateTime generatedAt = OffsetDateTime.now();
+
+        playerQuestGenerationCache.getGenerations(playerId);
+
+        PlayerQuestGeneration generation = mock(PlayerQuestGeneration.class);
+        when(generation.getCategoryId()).thenReturn("testQuestCategory");
+        when(generation.getGeneratedAt()).thenReturn(generatedAt);
+        when(generation.getLastSeenAt()).thenReturn(generatedAt);
+
+        // WHEN
+        playerQuestGenerationCache.putAfterCommit(playerId, Lists.list(generation));
+
+        // THEN
+        Map<String, PlayerQuestGenerationCache.CachedGeneration> cachedGenerations =
+                playerQuestGenerationCache.getGenerations(playerId);
+        assertThat(cachedGenerations).containsOnlyKeys("testQuestCategory");
+        assertThat(cachedGenerations.get("testQuestCategory").getGeneratedAt()).isEqualTo(generatedAt);
+        assertThat(cachedGenerations.get("testQuestCategory").getLastSeenAt()).isEqualTo(generatedAt);
+        verify(playerQuestGenerationRepository, times(1)).findByPlayerId(playerId);
+    }
+}
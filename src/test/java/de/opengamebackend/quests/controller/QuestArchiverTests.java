@@ -0,0 +1,158 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.ArchiveConfig;
+import de.opengamebackend.quests.model.entities.PlayerQuest;
+import de.opengamebackend.quests.model.entities.PlayerQuestHistory;
+import de.opengamebackend.quests.model.entities.QuestCategory;
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+import de.opengamebackend.quests.model.repositories.PlayerQuestHistoryRepository;
+import de.opengamebackend.quests.model.repositories.PlayerQuestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class QuestArchiverTests {
+    private TestEntityManager entityManager;
+    private PlayerQuestRepository playerQuestRepository;
+    private PlayerQuestHistoryRepository playerQuestHistoryRepository;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+
+    private QuestArchiver questArchiver;
+
+    private QuestDefinition questDefinition;
+
+    @Autowired
+    public QuestArchiverTests(TestEntityManager entityManager, PlayerQuestRepository playerQuestRepository,
+                              PlayerQuestHistoryRepository playerQuestHistoryRepository,
+                              NamedParameterJdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.playerQuestRepository = playerQuestRepository;
+        this.playerQuestHistoryRepository = playerQuestHistoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+
+        ArchiveConfig archiveConfig = new ArchiveConfig();
+        archiveConfig.setBatchSize(2);
+
+        this.questArchiver = new QuestArchiver(archiveConfig, jdbcTemplate, transactionManager);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        // Joins the transaction of the test, if any.
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            QuestCategory questCategory = new QuestCategory();
+            questCategory.setId("testQuestCategory");
+            entityManager.persist(questCategory);
+
+            questDefinition = new QuestDefinition();
+            questDefinition.setId("testQuestDefinition");
+            questDefinition.setCategory(questCategory);
+            questDefinition.setRewardItemDefinitionId("testItemDefinition");
+            entityManager.persist(questDefinition);
+        });
+    }
+
+    @Test
+    public void givenOldCompletedQuests_whenArchive_thenMovesQuestsToHistory() {
+        // GIVEN
+        PlayerQuest oldQuest1 = persistQuest(OffsetDateTime.now().minusDays(60));
+        PlayerQuest oldQuest2 = persistQuest(OffsetDateTime.now().minusDays(50));
+        PlayerQuest oldQuest3 = persistQuest(OffsetDateTime.now().minusDays(40));
+        entityManager.flush();
+        entityManager.clear();
+
+        // WHEN
+        int archivedQuests = questArchiver.archive();
+
+        // THEN
+        assertThat(archivedQuests).isEqualTo(3);
+        assertThat(playerQuestRepository.findByPlayerId("testPlayer")).isEmpty();
+
+        List<PlayerQuestHistory> history = playerQuestHistoryRepository.findByPlayerId("testPlayer");
+        assertThat(history).extracting(PlayerQuestHistory::getId)
+                .containsExactlyInAnyOrder(oldQuest1.getId(), oldQuest2.getId(), oldQuest3.getId());
+        assertThat(history).allMatch(q -> q.getArchivedAt() != null);
+    }
+
+    @Test
+    public void givenRecentAndActiveQuests_whenArchive_thenKeepsQuests() {
+        // GIVEN
+        PlayerQuest recentQuest = persistQuest(OffsetDateTime.now().minusDays(1));
+        PlayerQuest activeQuest = persistQuest(null);
+        entityManager.flush();
+        entityManager.clear();
+
+        // WHEN
+        int archivedQuests = questArchiver.archive();
+
+        // THEN
+        assertThat(archivedQuests).isZero();
+        assertThat(playerQuestRepository.findByPlayerId("testPlayer")).extracting(PlayerQuest::getId)
+                .containsExactlyInAnyOrder(recentQuest.getId(), activeQuest.getId());
+        assertThat(playerQuestHistoryRepository.findByPlayerId("testPlayer")).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void givenConcurrentArchivers_whenArchive_thenMovesEachQuestOnce() throws Exception {
+        // GIVEN
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 20; ++i) {
+                persistQuest(OffsetDateTime.now().minusDays(60));
+            }
+        });
+
+        ArchiveConfig archiveConfig = new ArchiveConfig();
+        archiveConfig.setBatchSize(2);
+        QuestArchiver otherQuestArchiver = new QuestArchiver(archiveConfig, jdbcTemplate, transactionManager);
+
+        try {
+            // WHEN
+            CompletableFuture<Integer> otherArchivedQuests = CompletableFuture.supplyAsync(otherQuestArchiver::archive);
+            int archivedQuests = questArchiver.archive();
+
+            // THEN
+            assertThat(otherArchivedQuests.get(10, TimeUnit.SECONDS) + archivedQuests).isEqualTo(20);
+            assertThat(playerQuestRepository.findByPlayerId("testPlayer")).isEmpty();
+            assertThat(playerQuestHistoryRepository.findByPlayerId("testPlayer")).hasSize(20);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.getJdbcTemplate().update("DELETE FROM quests_playerquesthistory");
+                jdbcTemplate.getJdbcTemplate().update("DELETE FROM quests_playerquest");
+                jdbcTemplate.getJdbcTemplate().update("DELETE FROM quests_questdefinition");
+                jdbcTemplate.getJdbcTemplate().update("DELETE FROM quests_questcategory");
+            });
+        }
+    }
+
+    private PlayerQuest persistQuest(OffsetDateTime completedAt) {
+        PlayerQuest playerQuest = new PlayerQuest();
+        playerQuest.setPlayerId("testPlayer");
+        playerQuest.setDefinition(questDefinition);
+        playerQuest.setGeneratedAt(completedAt != null ? completedAt.minusDays(1) : OffsetDateTime.now());
+        playerQuest.setCompletedAt(completedAt);
+        return entityManager.persist(playerQuest);
+    }
+}
@@ -0,0 +1,71 @@
+package de.opengamebackend.quests.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.opengamebackend.quests.model.entities.QuestCategory;
+import de.opengamebackend.quests.model.responses.GetQuestCategoriesResponse;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class QuestCatalogResponseCacheTests {
+    private QuestService questService;
+    private QuestCatalogService questCatalogService;
+
+    private QuestCatalogResponseCache questCatalogResponseCache;
+
+    @BeforeEach
+    public void beforeEach() {
+        questService = mock(QuestService.class);
+        when(questService.getQuestCategories(any())).thenReturn(new GetQuestCategoriesResponse());
+
+        questCatalogService = mock(QuestCatalogService.class);
+
+        questCatalogResponseCache = new QuestCatalogResponseCache(questService, questCatalogService,
+                new ObjectMapper());
+    }
+
+    @Test
+    public void givenUnchangedCatalog_whenGetQuestCategories_thenReusesResponse() throws JsonProcessingException {
+        // GIVEN
+        QuestCatalog catalog = createCatalog(1, "testQuestCategory");
+        when(questCatalogService.getCatalog()).thenReturn(catalog);
+
+        // WHEN
+        QuestCatalogResponseCache.CachedResponse firstResponse = questCatalogResponseCache.getQuestCategories();
+        QuestCatalogResponseCache.CachedResponse secondResponse = questCatalogResponseCache.getQuestCategories();
+
+        // THEN
+        assertThat(secondResponse).isSameAs(firstResponse);
+        assertThat(secondResponse.getHash()).isEqualTo(catalog.getHash());
+        verify(questService).getQuestCategories(catalog);
+    }
+
+    @Test
+    public void givenChangedCatalog_whenGetQuestCategories_thenCreatesNewResponse() throws JsonProcessingException {
+        // GIVEN
+        QuestCatalog oldCatalog = createCatalog(1, "oldQuestCategory");
+        QuestCatalog newCatalog = createCatalog(2, "newQuestCategory");
+        when(questCatalogService.getCatalog()).thenReturn(oldCatalog, newCatalog);
+
+        // WHEN
+        QuestCatalogResponseCache.CachedResponse oldResponse = questCatalogResponseCache.getQuestCategories();
+        QuestCatalogResponseCache.CachedResponse newResponse = questCatalogResponseCache.getQuestCategories();
+
+        // THEN
+        assertThat(newResponse.getHash()).isNotEqualTo(oldResponse.getHash());
+        verify(questService).getQuestCategories(oldCatalog);
+        verify(questService).getQuestCategories(newCatalog);
+    }
+
+    private QuestCatalog createCatalog(long version, String categoryId) {
+        QuestCategory category = new QuestCategory();
+        category.setId(categoryId);
+        return new QuestCatalog(version, System.nanoTime(), Lists.list(category), Collections.emptyList());
+    }
+}
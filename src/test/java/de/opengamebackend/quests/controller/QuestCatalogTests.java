@@ -0,0 +1,92 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.model.entities.QuestCategory;
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestCatalogTests {
+    @Test
+    public void givenSameContentsInDifferentOrder_whenGetHash_thenReturnsSameHash() {
+        // GIVEN
+        QuestCategory category = createCategory("testQuestCategory", 6);
+        QuestDefinition firstDefinition = createDefinition("testQuestDefinition1", category, 1);
+        QuestDefinition secondDefinition = createDefinition("testQuestDefinition2", category, 2);
+
+        // WHEN
+        QuestCatalog firstCatalog = new QuestCatalog(1, 0, Lists.list(category),
+                Lists.list(firstDefinition, secondDefinition));
+        QuestCatalog secondCatalog = new QuestCatalog(2, 0, Lists.list(category),
+                Lists.list(secondDefinition, firstDefinition));
+
+        // THEN
+        assertThat(secondCatalog.getHash()).isEqualTo(firstCatalog.getHash());
+    }
+
+    @Test
+    public void givenChangedDefinition_whenWithDefinition_thenChangesHash() {
+        // GIVEN
+        QuestCategory category = createCategory("testQuestCategory", 6);
+        QuestCatalog catalog = new QuestCatalog(1, 0, Lists.list(category),
+                Lists.list(createDefinition("testQuestDefinition", category, 1)));
+
+        // WHEN
+        QuestCatalog newCatalog = catalog.withDefinition(2,
+                createDefinition("testQuestDefinition", category, 2));
+
+        // THEN
+        assertThat(newCatalog.getHash()).isNotEqualTo(catalog.getHash());
+        assertThat(newCatalog.getDefinitions()).hasSize(1);
+        assertThat(newCatalog.getDefinition("testQuestDefinition").getRequiredProgress()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenChangedSelectionWeight_whenWithDefinition_thenChangesHash() {
+        // GIVEN
+        QuestCategory category = createCategory("testQuestCategory", 6);
+        QuestCatalog catalog = new QuestCatalog(1, 0, Lists.list(category),
+                Lists.list(createDefinition("testQuestDefinition", category, 1)));
+
+        QuestDefinition changedDefinition = createDefinition("testQuestDefinition", category, 1);
+        changedDefinition.setSelectionWeight(5);
+
+        // WHEN
+        QuestCatalog newCatalog = catalog.withDefinition(2, changedDefinition);
+
+        // THEN
+        assertThat(newCatalog.getHash()).isNotEqualTo(catalog.getHash());
+    }
+
+    @Test
+    public void givenChangedQuestsPerGeneration_whenWithCategory_thenChangesHash() {
+        // GIVEN
+        QuestCategory category = createCategory("testQuestCategory", 6);
+        QuestCatalog catalog = new QuestCatalog(1, 0, Lists.list(category), Lists.list());
+
+        QuestCategory changedCategory = createCategory("testQuestCategory", 6);
+        changedCategory.setQuestsPerGeneration(3);
+
+        // WHEN
+        QuestCatalog newCatalog = catalog.withCategory(2, changedCategory);
+
+        // THEN
+        assertThat(newCatalog.getHash()).isNotEqualTo(catalog.getHash());
+    }
+
+    private QuestCategory createCategory(String id, Integer generationHourOfDay) {
+        QuestCategory category = new QuestCategory();
+        category.setId(id);
+        category.setGenerationHourOfDay(generationHourOfDay);
+        return category;
+    }
+
+    private QuestDefinition createDefinition(String id, QuestCategory category, int requiredProgress) {
+        QuestDefinition definition = new QuestDefinition();
+        definition.setId(id);
+        definition.setCategory(category);
+        definition.setRequiredProgress(requiredProgress);
+        return definition;
+    }
+}
@@ -1,13 +1,20 @@
 package de.opengamebackend.quests.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+import de.opengamebackend.net.HttpHeader;
 import de.opengamebackend.quests.model.entities.PlayerQuest;
 import de.opengamebackend.quests.model.entities.QuestCategory;
 import de.opengamebackend.quests.model.entities.QuestDefinition;
+import de.opengamebackend.quests.model.requests.IncreaseQuestProgressBatchRequest;
+import de.opengamebackend.quests.model.requests.IncreaseQuestProgressBatchRequestItem;
 import de.opengamebackend.quests.model.requests.IncreaseQuestProgressRequest;
 import de.opengamebackend.quests.model.requests.PutQuestCategoriesRequest;
 import de.opengamebackend.quests.model.requests.PutQuestDefinitionsRequest;
 import de.opengamebackend.quests.model.responses.*;
 import de.opengamebackend.test.HttpRequestUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestEntityManager;
@@ -15,11 +22,22 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import javax.transaction.Transactional;
 import java.time.OffsetDateTime;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
 @SpringBootTest
 @AutoConfigureMockMvc
 @AutoConfigureTestEntityManager
@@ -27,24 +45,48 @@ import java.time.OffsetDateTime;
 public class QuestControllerIntegrationTests {
     private MockMvc mvc;
     private TestEntityManager entityManager;
+    private QuestCatalogService questCatalogService;
+    private MeterRegistry meterRegistry;
     private HttpRequestUtils httpRequestUtils;
 
     @MockBean
     private CollectionService collectionService;
 
     @Autowired
-    public QuestControllerIntegrationTests(MockMvc mvc, TestEntityManager entityManager) {
+    public QuestControllerIntegrationTests(MockMvc mvc, TestEntityManager entityManager,
+                                           QuestCatalogService questCatalogService, MeterRegistry meterRegistry) {
         this.mvc = mvc;
         this.entityManager = entityManager;
+        this.questCatalogService = questCatalogService;
+        this.meterRegistry = meterRegistry;
 
         this.httpRequestUtils = new HttpRequestUtils();
     }
 
+    @BeforeEach
+    public void beforeEach() {
+        questCatalogService.reload();
+    }
+
     @Test
     public void whenGetQuestCategories_thenOk() throws Exception {
         httpRequestUtils.assertGetOk(mvc, "/admin/questcategories", GetQuestCategoriesResponse.class);
     }
 
+    @Test
+    public void givenCurrentETag_whenGetQuestCategories_thenNotModified() throws Exception {
+        // GIVEN
+        String eTag = mvc.perform(get("/admin/questcategories"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        // WHEN & THEN
+        mvc.perform(get("/admin/questcategories").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     public void whenPutQuestCategories_thenOk() throws Exception {
         PutQuestCategoriesRequest request = new PutQuestCategoriesRequest();
@@ -67,12 +109,33 @@ public class QuestControllerIntegrationTests {
         httpRequestUtils.assertPostOk(mvc, "/client/createquests",null, CreateQuestsResponse.class,"testPlayer");
     }
 
+    @Test
+    public void whenCreateQuests_thenRecordsMetrics() throws Exception {
+        // WHEN
+        httpRequestUtils.assertPostOk(mvc, "/client/createquests",null, CreateQuestsResponse.class,"testPlayer");
+
+        // THEN
+        assertThat(meterRegistry.get("quests.service").tag("method", "createQuests").timer().count())
+                .isPositive();
+        assertThat(meterRegistry.get("quests.repository.invocations")
+                .tag("repository", "PlayerQuestRepository").tag("outcome", "SUCCESS").timers()).isNotEmpty();
+        assertThat(meterRegistry.get("quests.http.server.statements")
+                .tag("uri", "/client/createquests").summary().count()).isPositive();
+    }
+
     @Test
     public void whenGetPlayerQuests_thenOk() throws Exception {
         final String playerId = "testPlayer";
         httpRequestUtils.assertGetOk(mvc, "/admin/playerquests/" + playerId, GetPlayerQuestsResponse.class);
     }
 
+    @Test
+    public void whenGetPlayerQuestsPage_thenOk() throws Exception {
+        final String playerId = "testPlayer";
+        httpRequestUtils.assertGetOk(mvc, "/admin/playerquests/" + playerId + "?page=1&size=20",
+                GetPlayerQuestsResponse.class);
+    }
+
     @Test
     public void givenQuestDefinition_whenIncreaseQuestProgress_thenOk() throws Exception {
         // GIVEN
@@ -87,12 +150,41 @@ public class QuestControllerIntegrationTests {
         entityManager.persist(questDefinition);
 
         entityManager.flush();
+        questCatalogService.reload();
 
         // WHEN & THEN
         IncreaseQuestProgressRequest request = new IncreaseQuestProgressRequest();
         httpRequestUtils.assertPostOk(mvc, "/server/increasequestprogress/testPlayer/" + questDefinition.getId(), request);
     }
 
+    @Test
+    public void givenQuestDefinition_whenIncreaseQuestProgressBatch_thenOk() throws Exception {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        QuestDefinition questDefinition = new QuestDefinition();
+        questDefinition.setId("testQuestDefinition");
+        questDefinition.setCategory(questCategory);
+        questDefinition.setRewardItemDefinitionId("testItemDefinition");
+        entityManager.persist(questDefinition);
+
+        entityManager.flush();
+        questCatalogService.reload();
+
+        // WHEN & THEN
+        IncreaseQuestProgressBatchRequestItem item = new IncreaseQuestProgressBatchRequestItem();
+        item.setPlayerId("testPlayer");
+        item.setQuestDefinitionId(questDefinition.getId());
+        item.setProgressMade(1);
+
+        IncreaseQuestProgressBatchRequest request = new IncreaseQuestProgressBatchRequest();
+        request.getItems().add(item);
+
+        httpRequestUtils.assertPostOk(mvc, "/server/increasequestprogress", request);
+    }
+
     @Test
     public void whenFinishQuest_thenOk() throws Exception {
         // GIVEN
@@ -115,9 +207,221 @@ public class QuestControllerIntegrationTests {
         entityManager.persist(playerQuest);
 
         entityManager.flush();
+        questCatalogService.reload();
 
         // WHEN & THEN
         httpRequestUtils.assertPostOk(mvc, "/client/finishquest/" + questDefinition.getId(),null,
                 FinishQuestResponse.class, playerId);
     }
+
+    @Test
+    public void givenIdempotencyKey_whenFinishQuestTwice_thenGrantsRewardsOnce() throws Exception {
+        // GIVEN
+        final String playerId = "testPlayer";
+
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        QuestDefinition questDefinition = new QuestDefinition();
+        questDefinition.setId("testQuestDefinition");
+        questDefinition.setCategory(questCategory);
+        questDefinition.setRewardItemDefinitionId("testItemDefinition");
+        entityManager.persist(questDefinition);
+
+        PlayerQuest playerQuest = new PlayerQuest();
+        playerQuest.setPlayerId(playerId);
+        playerQuest.setDefinition(questDefinition);
+        playerQuest.setGeneratedAt(OffsetDateTime.now());
+        entityManager.persist(playerQuest);
+
+        entityManager.flush();
+        questCatalogService.reload();
+
+        // WHEN
+        for (int i = 0; i < 2; ++i) {
+            mvc.perform(post("/client/finishquest/" + questDefinition.getId())
+                    .header(HttpHeader.PLAYER_ID, playerId)
+                    .header(QuestController.IDEMPOTENCY_KEY_HEADER, "testIdempotencyKey"))
+                    .andExpect(status().isOk());
+        }
+
+        // THEN
+        long rewardGrants = entityManager.getEntityManager()
+                .createQuery("SELECT COUNT(g) FROM RewardGrant g WHERE g.playerId = :playerId", Long.class)
+                .setParameter("playerId", playerId)
+                .getSingleResult();
+        assertThat(rewardGrants).isEqualTo(1);
+    }
+
+    @Test
+    public void givenTooLongIdempotencyKey_whenFinishQuest_thenBadRequest() throws Exception {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        entityManager.persist(createQuestDefinition("testQuestDefinition", questCategory, 1));
+        entityManager.flush();
+        questCatalogService.reload();
+
+        // WHEN & THEN
+        mvc.perform(post("/client/finishquest/testQuestDefinition")
+                .header(HttpHeader.PLAYER_ID, "testPlayer")
+                .header(QuestController.IDEMPOTENCY_KEY_HEADER, Strings.repeat("x", 101)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenImportQuestDefinitions_thenWritesChangedDefinitions() throws Exception {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        entityManager.persist(createQuestDefinition("unchangedQuestDefinition", questCategory, 1));
+        entityManager.persist(createQuestDefinition("changedQuestDefinition", questCategory, 1));
+        entityManager.persist(createQuestDefinition("obsoleteQuestDefinition", questCategory, 1));
+
+        entityManager.flush();
+
+        String request = "{\"questDefinitions\": [" +
+                "{\"id\": \"unchangedQuestDefinition\", \"category\": \"testQuestCategory\", " +
+                "\"requiredProgress\": 1, \"rewardItemDefinitionId\": \"testItemDefinition\", \"rewardItemCount\": 1}, " +
+                "{\"id\": \"changedQuestDefinition\", \"category\": \"testQuestCategory\", " +
+                "\"requiredProgress\": 2, \"rewardItemDefinitionId\": \"testItemDefinition\", \"rewardItemCount\": 1}, " +
+                "{\"id\": \"newQuestDefinition\", \"category\": \"testQuestCategory\", " +
+                "\"requiredProgress\": 3, \"rewardItemDefinitionId\": \"testItemDefinition\", \"rewardItemCount\": 1}" +
+                "]}";
+
+        // WHEN
+        MvcResult result = mvc.perform(put("/admin/questdefinitions/import")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(request))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // THEN
+        ImportQuestDefinitionsResponse response = new ObjectMapper()
+                .readValue(result.getResponse().getContentAsString(), ImportQuestDefinitionsResponse.class);
+
+        assertThat(response.getInserted()).isEqualTo(1);
+        assertThat(response.getUpdated()).isEqualTo(1);
+        assertThat(response.getDeleted()).isEqualTo(1);
+        assertThat(response.getUnchanged()).isEqualTo(1);
+
+        entityManager.clear();
+
+        assertThat(entityManager.find(QuestDefinition.class, "changedQuestDefinition").getRequiredProgress())
+                .isEqualTo(2);
+        assertThat(entityManager.find(QuestDefinition.class, "newQuestDefinition").getRequiredProgress())
+                .isEqualTo(3);
+        assertThat(entityManager.find(QuestDefinition.class, "obsoleteQuestDefinition")).isNull();
+    }
+
+    @Test
+    public void givenInvalidRequest_whenImportQuestDefinitions_thenBadRequest() throws Exception {
+        mvc.perform(put("/admin/questdefinitions/import")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"questDefinitions\": [{\"id\": "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void givenMissingQuestDefinitions_whenImportQuestDefinitions_thenBadRequest() throws Exception {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        entityManager.persist(createQuestDefinition("testQuestDefinition", questCategory, 1));
+        entityManager.flush();
+
+        // WHEN & THEN
+        for (String request : new String[] { "{}", "{\"questdefinitions\": []}", "{\"questDefinitions\": null}",
+                "{\"questDefinitions\": [1, 2]}", "{\"questDefinitions\": [], \"questDefinitions\": []}" }) {
+            mvc.perform(put("/admin/questdefinitions/import")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(request))
+                    .andExpect(status().isBadRequest());
+        }
+
+        entityManager.clear();
+        assertThat(entityManager.find(QuestDefinition.class, "testQuestDefinition")).isNotNull();
+    }
+
+    @Test
+    public void givenReferencedQuestDefinition_whenImportWithoutIt_thenBadRequest() throws Exception {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        QuestDefinition questDefinition = createQuestDefinition("testQuestDefinition", questCategory, 1);
+        entityManager.persist(questDefinition);
+
+        PlayerQuest playerQuest = new PlayerQuest();
+        playerQuest.setPlayerId("testPlayer");
+        playerQuest.setDefinition(questDefinition);
+        playerQuest.setGeneratedAt(OffsetDateTime.now());
+        entityManager.persist(playerQuest);
+
+        entityManager.flush();
+
+        // WHEN & THEN
+        mvc.perform(put("/admin/questdefinitions/import")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"questDefinitions\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void givenIfMatch_whenPutAndDeleteQuestDefinition_thenChecksVersion() throws Exception {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        entityManager.persist(createQuestDefinition("testQuestDefinition", questCategory, 1));
+        entityManager.flush();
+
+        String request = "{\"category\": \"testQuestCategory\", \"requiredProgress\": 2, " +
+                "\"rewardItemDefinitionId\": \"testItemDefinition\", \"rewardItemCount\": 1}";
+
+        // WHEN & THEN
+        mvc.perform(put("/admin/questdefinitions/testQuestDefinition")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(request))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        mvc.perform(put("/admin/questdefinitions/testQuestDefinition")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(request))
+                .andExpect(status().isPreconditionFailed());
+
+        mvc.perform(get("/admin/questdefinitions/testQuestDefinition"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        mvc.perform(delete("/admin/questdefinitions/testQuestDefinition")
+                .header(HttpHeaders.IF_MATCH, "\"1\""))
+                .andExpect(status().isNoContent());
+
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(entityManager.find(QuestDefinition.class, "testQuestDefinition")).isNull();
+    }
+
+    private QuestDefinition createQuestDefinition(String id, QuestCategory category, int requiredProgress) {
+        QuestDefinition questDefinition = new QuestDefinition();
+        questDefinition.setId(id);
+        questDefinition.setCategory(category);
+        questDefinition.setRequiredProgress(requiredProgress);
+        questDefinition.setRewardItemDefinitionId("testItemDefinition");
+        questDefinition.setRewardItemCount(1);
+        return questDefinition;
+    }
 }
@@ -0,0 +1,125 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class QuestDefinitionSamplerTests {
+    private static final int SAMPLES = 100000;
+
+    @Test
+    public void givenWeights_whenSample_thenPicksInProportionToWeights() {
+        // GIVEN
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(
+                createDefinition("commonQuestDefinition", 3),
+                createDefinition("rareQuestDefinition", 1),
+                createDefinition("disabledQuestDefinition", 0)));
+        Random random = new Random(1);
+
+        // WHEN
+        HashMap<String, Integer> picks = new HashMap<>();
+
+        for (int i = 0; i < SAMPLES; ++i) {
+            picks.merge(sampler.sample(random, 0, 1).get(0).getId(), 1, Integer::sum);
+        }
+
+        // THEN
+        assertThat(picks.get("commonQuestDefinition") / (double) SAMPLES).isCloseTo(0.75, within(0.01));
+        assertThat(picks.get("rareQuestDefinition") / (double) SAMPLES).isCloseTo(0.25, within(0.01));
+        assertThat(picks).doesNotContainKey("disabledQuestDefinition");
+    }
+
+    @Test
+    public void givenRecentDefinition_whenSample_thenPicksOtherDefinition() {
+        // GIVEN
+        QuestDefinition recentDefinition = createDefinition("recentQuestDefinition", 1000);
+        QuestDefinition otherDefinition = createDefinition("otherQuestDefinition", 1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(recentDefinition, otherDefinition));
+
+        long recentDefinitions = RecentQuestHistory.add(0, recentDefinition.getId(), 1);
+        Random random = new Random(1);
+
+        // WHEN & THEN
+        for (int i = 0; i < 100; ++i) {
+            assertThat(sampler.sample(random, recentDefinitions, 1)).containsExactly(otherDefinition);
+        }
+    }
+
+    @Test
+    public void givenOnlyRecentDefinitions_whenSample_thenPicksRecentDefinition() {
+        // GIVEN
+        QuestDefinition recentDefinition = createDefinition("recentQuestDefinition", 1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(recentDefinition));
+
+        long recentDefinitions = RecentQuestHistory.add(0, recentDefinition.getId(), 1);
+
+        // WHEN
+        List<QuestDefinition> definitions = sampler.sample(new Random(1), recentDefinitions, 1);
+
+        // THEN
+        assertThat(definitions).containsExactly(recentDefinition);
+    }
+
+    @Test
+    public void givenCount_whenSample_thenPicksDistinctDefinitions() {
+        // GIVEN
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(
+                createDefinition("firstQuestDefinition", 100),
+                createDefinition("secondQuestDefinition", 1),
+                createDefinition("thirdQuestDefinition", 1),
+                createDefinition("disabledQuestDefinition", 0)));
+
+        // WHEN
+        List<QuestDefinition> definitions = sampler.sample(new Random(1), 0, 5);
+
+        // THEN
+        assertThat(definitions).extracting(QuestDefinition::getId).containsExactlyInAnyOrder(
+                "firstQuestDefinition", "secondQuestDefinition", "thirdQuestDefinition");
+    }
+
+    @Test
+    public void givenOnlyZeroWeights_whenSample_thenPicksNothing() {
+        // GIVEN
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(
+                createDefinition("firstDisabledQuestDefinition", 0),
+                createDefinition("secondDisabledQuestDefinition", 0)));
+
+        // WHEN
+        List<QuestDefinition> definitions = sampler.sample(new Random(1), 0, 2);
+
+        // THEN
+        assertThat(definitions).isEmpty();
+        assertThat(sampler.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void givenWindow_whenAdd_thenForgetsOldestDefinitions() {
+        // WHEN
+        long history = 0;
+
+        for (String definitionId : Lists.list("first", "second", "third")) {
+            history = RecentQuestHistory.add(history, definitionId, 2);
+        }
+
+        // THEN
+        long slots = RecentQuestHistory.getSlots(history);
+
+        assertThat(Long.bitCount(slots)).isLessThanOrEqualTo(2);
+        assertThat(slots & (1L << RecentQuestHistory.getSlot("second"))).isNotZero();
+        assertThat(slots & (1L << RecentQuestHistory.getSlot("third"))).isNotZero();
+    }
+
+    private QuestDefinition createDefinition(String id, int selectionWeight) {
+        QuestDefinition definition = new QuestDefinition();
+        definition.setId(id);
+        definition.setSelectionWeight(selectionWeight);
+        return definition;
+    }
+}
@@ -0,0 +1,131 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.GenerationConfig;
+import de.opengamebackend.quests.model.entities.QuestCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestGenerationScheduleTests {
+    private QuestCategory dailyQuestCategory;
+    private QuestCategory weeklyQuestCategory;
+
+    private QuestGenerationSchedule questGenerationSchedule;
+
+    @BeforeEach
+    public void beforeEach() {
+        dailyQuestCategory = new QuestCategory();
+        dailyQuestCategory.setId("testDailyQuestCategory");
+        dailyQuestCategory.setGenerationHourOfDay(6);
+
+        weeklyQuestCategory = new QuestCategory();
+        weeklyQuestCategory.setId("testWeeklyQuestCategory");
+        weeklyQuestCategory.setGenerationHourOfDay(6);
+        weeklyQuestCategory.setGenerationDayOfWeek(1);
+
+        questGenerationSchedule = new QuestGenerationSchedule(new GenerationConfig());
+    }
+
+    @Test
+    public void givenDailyCategory_whenGetPeriodAfterReset_thenStartsToday() {
+        // GIVEN
+        OffsetDateTime now = OffsetDateTime.of(2021, 4, 14, 8, 0, 0, 0, ZoneOffset.UTC);
+
+        // WHEN
+        QuestGenerationPeriod period = questGenerationSchedule.getPeriod(dailyQuestCategory, now);
+
+        // THEN
+        assertThat(period.getStart()).isEqualTo(OffsetDateTime.of(2021, 4, 14, 6, 0, 0, 0, ZoneOffset.UTC).toInstant());
+        assertThat(period.getEnd()).isEqualTo(OffsetDateTime.of(2021, 4, 15, 6, 0, 0, 0, ZoneOffset.UTC).toInstant());
+    }
+
+    @Test
+    public void givenDailyCategory_whenGetPeriodBeforeReset_thenStartsYesterday() {
+        // GIVEN
+        OffsetDateTime now = OffsetDateTime.of(2021, 4, 14, 5, 0, 0, 0, ZoneOffset.UTC);
+
+        // WHEN
+        QuestGenerationPeriod period = questGenerationSchedule.getPeriod(dailyQuestCategory, now);
+
+        // THEN
+        assertThat(period.getStart()).isEqualTo(OffsetDateTime.of(2021, 4, 13, 6, 0, 0, 0, ZoneOffset.UTC).toInstant());
+        assertThat(period.getEnd()).isEqualTo(OffsetDateTime.of(2021, 4, 14, 6, 0, 0, 0, ZoneOffset.UTC).toInstant());
+    }
+
+    @Test
+    public void givenWeeklyCategory_whenGetPeriod_thenStartsOnGenerationDayOfWeek() {
+        // GIVEN
+        OffsetDateTime now = OffsetDateTime.of(2021, 4, 14, 8, 0, 0, 0, ZoneOffset.UTC);
+
+        // WHEN
+        QuestGenerationPeriod period = questGenerationSchedule.getPeriod(weeklyQuestCategory, now);
+
+        // THEN
+        assertThat(period.getStart()).isEqualTo(OffsetDateTime.of(2021, 4, 12, 6, 0, 0, 0, ZoneOffset.UTC).toInstant());
+        assertThat(period.getEnd()).isEqualTo(OffsetDateTime.of(2021, 4, 19, 6, 0, 0, 0, ZoneOffset.UTC).toInstant());
+    }
+
+    @Test
+    public void givenTimeZone_whenGetPeriod_thenResetsAtLocalTime() {
+        // GIVEN
+        GenerationConfig generationConfig = new GenerationConfig();
+        generationConfig.setTimeZone(ZoneId.of("Europe/Berlin"));
+        questGenerationSchedule = new QuestGenerationSchedule(generationConfig);
+
+        OffsetDateTime now = OffsetDateTime.of(2021, 4, 14, 8, 0, 0, 0, ZoneOffset.UTC);
+
+        // WHEN
+        QuestGenerationPeriod period = questGenerationSchedule.getPeriod(dailyQuestCategory, now);
+
+        // THEN
+        assertThat(period.getStart()).isEqualTo(OffsetDateTime.of(2021, 4, 14, 4, 0, 0, 0, ZoneOffset.UTC).toInstant());
+    }
+
+    @Test
+    public void givenQuestGeneratedBeforeReset_whenIsGenerationDue_thenTrue() {
+        // GIVEN
+        OffsetDateTime now = OffsetDateTime.of(2021, 4, 14, 8, 0, 0, 0, ZoneOffset.UTC);
+        OffsetDateTime lastGeneratedAt = OffsetDateTime.of(2021, 4, 14, 5, 59, 0, 0, ZoneOffset.UTC);
+
+        // WHEN
+        boolean isGenerationDue = questGenerationSchedule.getPeriod(dailyQuestCategory, now)
+                .isGenerationDue(lastGeneratedAt);
+
+        // THEN
+        assertThat(isGenerationDue).isTrue();
+    }
+
+    @Test
+    public void givenQuestGeneratedAfterReset_whenIsGenerationDue_thenFalse() {
+        // GIVEN
+        OffsetDateTime now = OffsetDateTime.of(2021, 4, 14, 8, 0, 0, 0, ZoneOffset.UTC);
+        OffsetDateTime lastGeneratedAt = OffsetDateTime.of(2021, 4, 14, 6, 1, 0, 0, ZoneOffset.UTC);
+
+        // WHEN
+        boolean isGenerationDue = questGenerationSchedule.getPeriod(dailyQuestCategory, now)
+                .isGenerationDue(lastGeneratedAt);
+
+        // THEN
+        assertThat(isGenerationDue).isFalse();
+    }
+
+    @Test
+    public void givenChangedCategory_whenGetPeriod_thenRecomputesPeriod() {
+        // GIVEN
+        OffsetDateTime now = OffsetDateTime.of(2021, 4, 14, 8, 0, 0, 0, ZoneOffset.UTC);
+        questGenerationSchedule.getPeriod(dailyQuestCategory, now);
+
+        dailyQuestCategory.setGenerationHourOfDay(7);
+
+        // WHEN
+        QuestGenerationPeriod period = questGenerationSchedule.getPeriod(dailyQuestCategory, now);
+
+        // THEN
+        assertThat(period.getStart()).isEqualTo(OffsetDateTime.of(2021, 4, 14, 7, 0, 0, 0, ZoneOffset.UTC).toInstant());
+    }
+}
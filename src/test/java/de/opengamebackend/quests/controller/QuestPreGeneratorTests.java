@@ -0,0 +1,207 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.GenerationConfig;
+import de.opengamebackend.quests.config.PreGenerationConfig;
+import de.opengamebackend.quests.model.entities.PlayerQuest;
+import de.opengamebackend.quests.model.entities.PlayerQuestGeneration;
+import de.opengamebackend.quests.model.entities.QuestCategory;
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+import de.opengamebackend.quests.model.repositories.PlayerQuestGenerationRepository;
+import de.opengamebackend.quests.model.repositories.PlayerQuestRepository;
+import de.opengamebackend.quests.model.repositories.QuestCategoryRepository;
+import de.opengamebackend.quests.model.repositories.QuestDefinitionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+// Quests are generated by worker threads, so test data needs to be committed.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class QuestPreGeneratorTests {
+    private static final OffsetDateTime PERIOD_START = OffsetDateTime.of(2021, 4, 14, 6, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime PERIOD_END = PERIOD_START.plusDays(1);
+
+    private QuestCategoryRepository questCategoryRepository;
+    private QuestDefinitionRepository questDefinitionRepository;
+    private PlayerQuestRepository playerQuestRepository;
+    private PlayerQuestGenerationRepository playerQuestGenerationRepository;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+
+    private QuestCatalogService questCatalogService;
+
+    private QuestCategory questCategory;
+    private QuestDefinition questDefinition;
+
+    @Autowired
+    public QuestPreGeneratorTests(QuestCategoryRepository questCategoryRepository,
+                                  QuestDefinitionRepository questDefinitionRepository,
+                                  PlayerQuestRepository playerQuestRepository,
+                                  PlayerQuestGenerationRepository playerQuestGenerationRepository,
+                                  NamedParameterJdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager) {
+        this.questCategoryRepository = questCategoryRepository;
+        this.questDefinitionRepository = questDefinitionRepository;
+        this.playerQuestRepository = playerQuestRepository;
+        this.playerQuestGenerationRepository = playerQuestGenerationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        questCategory.setGenerationHourOfDay(6);
+        questCategoryRepository.save(questCategory);
+
+        questDefinition = new QuestDefinition();
+        questDefinition.setId("testQuestDefinition");
+        questDefinition.setCategory(questCategory);
+        questDefinition.setRewardItemDefinitionId("testItemDefinition");
+        questDefinitionRepository.save(questDefinition);
+
+        QuestCatalog questCatalog = mock(QuestCatalog.class);
+        when(questCatalog.getCategories()).thenReturn(Lists.list(questCategory));
+        when(questCatalog.getSampler(questCategory.getId()))
+                .thenReturn(new QuestDefinitionSampler(Lists.list(questDefinition)));
+
+        questCatalogService = mock(QuestCatalogService.class);
+        when(questCatalogService.getCatalog()).thenReturn(questCatalog);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        playerQuestRepository.deleteAll();
+        playerQuestGenerationRepository.deleteAll();
+        questDefinitionRepository.deleteAll();
+        questCategoryRepository.deleteAll();
+    }
+
+    @Test
+    public void givenActivePlayer_whenPreGenerateBeforeReset_thenGeneratesQuestAtReset() {
+        // GIVEN
+        saveGeneration("activePlayer", PERIOD_START.plusHours(1));
+
+        // WHEN
+        int generatedQuests = createPreGenerator().preGenerate(PERIOD_END.minusMinutes(1));
+
+        // THEN
+        assertThat(generatedQuests).isEqualTo(1);
+
+        List<PlayerQuest> playerQuests = playerQuestRepository.findByPlayerId("activePlayer");
+        assertThat(playerQuests).hasSize(1);
+        assertThat(playerQuests.get(0).getGeneratedAt().toInstant()).isEqualTo(PERIOD_END.toInstant());
+        assertThat(playerQuests.get(0).getCompletedAt()).isNull();
+
+        List<PlayerQuestGeneration> generations = playerQuestGenerationRepository.findByPlayerId("activePlayer");
+        assertThat(generations.get(0).getGeneratedAt().toInstant()).isEqualTo(PERIOD_END.toInstant());
+    }
+
+    @Test
+    public void givenInactivePlayer_whenPreGenerate_thenSkipsPlayer() {
+        // GIVEN
+        saveGeneration("inactivePlayer", PERIOD_START.minusHours(1));
+
+        // WHEN
+        int generatedQuests = createPreGenerator().preGenerate(PERIOD_END.minusMinutes(1));
+
+        // THEN
+        assertThat(generatedQuests).isZero();
+        assertThat(playerQuestRepository.findByPlayerId("inactivePlayer")).isEmpty();
+    }
+
+    @Test
+    public void givenResetNotUpcoming_whenPreGenerate_thenSkipsCategory() {
+        // GIVEN
+        saveGeneration("activePlayer", PERIOD_START.plusHours(1));
+
+        // WHEN
+        int generatedQuests = createPreGenerator().preGenerate(PERIOD_START.plusHours(2));
+
+        // THEN
+        assertThat(generatedQuests).isZero();
+    }
+
+    @Test
+    public void givenQuestsPreGeneratedByOtherInstance_whenPreGenerate_thenSkipsPlayers() {
+        // GIVEN
+        saveGeneration("activePlayer", PERIOD_START.plusHours(1));
+        createPreGenerator().preGenerate(PERIOD_END.minusMinutes(2));
+
+        // WHEN
+        int generatedQuests = createPreGenerator().preGenerate(PERIOD_END.minusMinutes(1));
+
+        // THEN
+        assertThat(generatedQuests).isZero();
+        assertThat(playerQuestRepository.findByPlayerId("activePlayer")).hasSize(1);
+    }
+
+    @Test
+    public void givenNoLoginSincePreGeneration_whenPreGenerateNextPeriod_thenSkipsPlayer() {
+        // GIVEN
+        saveGeneration("activePlayer", PERIOD_START.plusHours(1));
+        createPreGenerator().preGenerate(PERIOD_END.minusMinutes(1));
+
+        // WHEN
+        int generatedQuests = createPreGenerator().preGenerate(PERIOD_END.plusDays(1).minusMinutes(1));
+
+        // THEN
+        assertThat(generatedQuests).isZero();
+        assertThat(playerQuestRepository.findByPlayerId("activePlayer")).hasSize(1);
+    }
+
+    @Test
+    public void givenLoginSincePreGeneration_whenPreGenerateNextPeriod_thenGeneratesQuest() {
+        // GIVEN
+        saveGeneration("activePlayer", PERIOD_START.plusHours(1));
+        createPreGenerator().preGenerate(PERIOD_END.minusMinutes(1));
+
+        PlayerQuestGeneration generation = playerQuestGenerationRepository.findByPlayerId("activePlayer").get(0);
+        generation.setLastSeenAt(PERIOD_END.plusHours(1));
+        playerQuestGenerationRepository.save(generation);
+
+        // WHEN
+        int generatedQuests = createPreGenerator().preGenerate(PERIOD_END.plusDays(1).minusMinutes(1));
+
+        // THEN
+        assertThat(generatedQuests).isEqualTo(1);
+        assertThat(playerQuestRepository.findByPlayerId("activePlayer")).hasSize(2);
+    }
+
+    private QuestPreGenerator createPreGenerator() {
+        PreGenerationConfig preGenerationConfig = new PreGenerationConfig();
+        preGenerationConfig.setBatchSize(2);
+
+        return new QuestPreGenerator(preGenerationConfig, new GenerationConfig(), questCatalogService,
+                new QuestGenerationSchedule(new GenerationConfig()), new QuestMetrics(new SimpleMeterRegistry()),
+                jdbcTemplate, transactionManager);
+    }
+
+    private void saveGeneration(String playerId, OffsetDateTime generatedAt) {
+        PlayerQuestGeneration generation = new PlayerQuestGeneration();
+        generation.setPlayerId(playerId);
+        generation.setCategoryId(questCategory.getId());
+        generation.setGeneratedAt(generatedAt);
+        generation.setLastSeenAt(generatedAt);
+        playerQuestGenerationRepository.save(generation);
+    }
+}
@@ -0,0 +1,135 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.config.WriteBehindConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.*;
+
+public class QuestProgressBufferTests {
+    private WriteBehindConfig writeBehindConfig;
+    private QuestProgressWriter questProgressWriter;
+
+    private QuestProgressBuffer questProgressBuffer;
+
+    @BeforeEach
+    public void beforeEach() {
+        writeBehindConfig = new WriteBehindConfig();
+        writeBehindConfig.setEnabled(true);
+
+        questProgressWriter = mock(QuestProgressWriter.class);
+
+        questProgressBuffer = new QuestProgressBuffer(writeBehindConfig, questProgressWriter, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenBufferedProgress_whenFlush_thenWritesMergedProgress() {
+        // GIVEN
+        questProgressBuffer.add("testPlayer", "testQuestDefinition", 2);
+        questProgressBuffer.add("testPlayer", "testQuestDefinition", 3);
+        questProgressBuffer.add("otherPlayer", "testQuestDefinition", 1);
+
+        // WHEN
+        questProgressBuffer.flush();
+
+        // THEN
+        ArgumentCaptor<Map<PlayerQuestKey, Integer>> argumentCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(questProgressWriter).increaseQuestProgress(argumentCaptor.capture());
+
+        assertThat(argumentCaptor.getValue()).containsOnly(
+                entry(new PlayerQuestKey("testPlayer", "testQuestDefinition"), 5),
+                entry(new PlayerQuestKey("otherPlayer", "testQuestDefinition"), 1));
+        assertThat(questProgressBuffer.getPendingQuests()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenBufferedProgress_whenFlushPlayer_thenWritesOnlyProgressOfPlayer() {
+        // GIVEN
+        questProgressBuffer.add("testPlayer", "testQuestDefinition", 2);
+        questProgressBuffer.add("otherPlayer", "testQuestDefinition", 1);
+
+        // WHEN
+        questProgressBuffer.flush("testPlayer");
+
+        // THEN
+        ArgumentCaptor<Map<PlayerQuestKey, Integer>> argumentCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(questProgressWriter).increaseQuestProgress(argumentCaptor.capture());
+
+        assertThat(argumentCaptor.getValue()).containsOnly(
+                entry(new PlayerQuestKey("testPlayer", "testQuestDefinition"), 2));
+        assertThat(questProgressBuffer.getPendingQuests()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenWriteFailure_whenFlush_thenKeepsProgress() {
+        // GIVEN
+        questProgressBuffer.add("testPlayer", "testQuestDefinition", 2);
+        doThrow(new IllegalStateException()).when(questProgressWriter).increaseQuestProgress(any());
+
+        // WHEN
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> questProgressBuffer.flush());
+
+        // THEN
+        assertThat(questProgressBuffer.getPendingQuests()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenWriteFailure_whenFlushBatches_thenKeepsProgressOfRemainingBatches() {
+        // GIVEN
+        writeBehindConfig.setBatchSize(1);
+
+        questProgressBuffer.add("testPlayer", "testQuestDefinition", 2);
+        questProgressBuffer.add("otherPlayer", "testQuestDefinition", 1);
+        doThrow(new IllegalStateException()).when(questProgressWriter).increaseQuestProgress(any());
+
+        // WHEN
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> questProgressBuffer.flush());
+
+        // THEN
+        verify(questProgressWriter, times(1)).increaseQuestProgress(any());
+        assertThat(questProgressBuffer.getPendingQuests()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenFlushInProgress_whenFlushPlayer_thenWaitsForWrite() throws Exception {
+        // GIVEN
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch writeReleased = new CountDownLatch(1);
+
+        doAnswer(invocation -> {
+            writeStarted.countDown();
+            writeReleased.await();
+            return null;
+        }).when(questProgressWriter).increaseQuestProgress(any());
+
+        questProgressBuffer.add("testPlayer", "testQuestDefinition", 2);
+
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(() -> questProgressBuffer.flush());
+        writeStarted.await();
+
+        // WHEN
+        CompletableFuture<Void> playerFlush = CompletableFuture.runAsync(() -> questProgressBuffer.flush("testPlayer"));
+
+        // THEN
+        Thread.sleep(100);
+        assertThat(playerFlush).isNotDone();
+
+        writeReleased.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        playerFlush.get(5, TimeUnit.SECONDS);
+
+        verify(questProgressWriter, times(1)).increaseQuestProgress(any());
+    }
+}
@@ -0,0 +1,68 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class QuestProgressWriterTests {
+    private JdbcTemplate jdbcTemplate;
+    private QuestCatalog questCatalog;
+
+    private QuestProgressWriter questProgressWriter;
+
+    @BeforeEach
+    public void beforeEach() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        questCatalog = mock(QuestCatalog.class);
+
+        QuestCatalogService questCatalogService = mock(QuestCatalogService.class);
+        when(questCatalogService.getCatalog()).thenReturn(questCatalog);
+
+        questProgressWriter = new QuestProgressWriter(jdbcTemplate, questCatalogService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenProgress_whenIncreaseQuestProgress_thenUpdatesCappedProgress() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getRequiredProgress()).thenReturn(10);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        // WHEN
+        questProgressWriter.increaseQuestProgress(
+                Collections.singletonMap(new PlayerQuestKey(playerId, questDefinitionId), 3));
+
+        // THEN
+        ArgumentCaptor<List<Object[]>> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(QuestProgressWriter.INCREASE_PROGRESS_SQL), argumentCaptor.capture());
+
+        List<Object[]> batchArgs = argumentCaptor.getValue();
+
+        assertThat(batchArgs).hasSize(1);
+        assertThat(batchArgs.get(0)).startsWith(3, 10, playerId, questDefinitionId);
+    }
+
+    @Test
+    public void givenUnknownQuestDefinition_whenIncreaseQuestProgress_thenSkipsQuest() {
+        // WHEN
+        questProgressWriter.increaseQuestProgress(
+                Collections.singletonMap(new PlayerQuestKey("testPlayer", "testQuestDefinition"), 3));
+
+        // THEN
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+}
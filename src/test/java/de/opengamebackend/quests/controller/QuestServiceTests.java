@@ -1,35 +1,57 @@
 package de.opengamebackend.quests.controller;
 
-import de.opengamebackend.collection.model.requests.AddCollectionItemsRequest;
+import com.google.common.base.Strings;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
+import de.opengamebackend.quests.QuestsApiErrors;
+import de.opengamebackend.quests.config.GenerationConfig;
 import de.opengamebackend.quests.model.entities.PlayerQuest;
+import de.opengamebackend.quests.model.entities.PlayerQuestGeneration;
+import de.opengamebackend.quests.model.entities.PlayerQuestHistory;
 import de.opengamebackend.quests.model.entities.QuestCategory;
 import de.opengamebackend.quests.model.entities.QuestDefinition;
+import de.opengamebackend.quests.model.entities.RewardGrant;
+import de.opengamebackend.quests.model.repositories.PlayerQuestGenerationRepository;
+import de.opengamebackend.quests.model.repositories.PlayerQuestHistoryRepository;
 import de.opengamebackend.quests.model.repositories.PlayerQuestRepository;
 import de.opengamebackend.quests.model.repositories.QuestCategoryRepository;
 import de.opengamebackend.quests.model.repositories.QuestDefinitionRepository;
+import de.opengamebackend.quests.model.repositories.RewardGrantRepository;
 import de.opengamebackend.quests.model.requests.*;
 import de.opengamebackend.quests.model.responses.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.*;
 
 public class QuestServiceTests {
     private QuestCategoryRepository questCategoryRepository;
     private QuestDefinitionRepository questDefinitionRepository;
     private PlayerQuestRepository playerQuestRepository;
+    private PlayerQuestGenerationRepository playerQuestGenerationRepository;
+    private PlayerQuestHistoryRepository playerQuestHistoryRepository;
 
-    private CollectionService collectionService;
+    private QuestCatalog questCatalog;
+    private QuestCatalogService questCatalogService;
+    private PlayerLocks playerLocks;
+    private QuestProgressWriter questProgressWriter;
+    private QuestProgressBuffer questProgressBuffer;
+    private RewardGrantRepository rewardGrantRepository;
+    private RewardGrantDispatcher rewardGrantDispatcher;
 
     private QuestService questService;
 
@@ -38,11 +60,28 @@ public class QuestServiceTests {
         questCategoryRepository = mock(QuestCategoryRepository.class);
         questDefinitionRepository = mock(QuestDefinitionRepository.class);
         playerQuestRepository = mock(PlayerQuestRepository.class);
-
-        collectionService = mock(CollectionService.class);
-
-        questService = new QuestService(questCategoryRepository, questDefinitionRepository, playerQuestRepository,
-                collectionService);
+        playerQuestGenerationRepository = mock(PlayerQuestGenerationRepository.class);
+        playerQuestHistoryRepository = mock(PlayerQuestHistoryRepository.class);
+
+        questCatalog = mock(QuestCatalog.class);
+        questCatalogService = mock(QuestCatalogService.class);
+        when(questCatalogService.getCatalog()).thenReturn(questCatalog);
+
+        playerLocks = mock(PlayerLocks.class);
+
+        questProgressWriter = mock(QuestProgressWriter.class);
+        questProgressBuffer = mock(QuestProgressBuffer.class);
+        rewardGrantRepository = mock(RewardGrantRepository.class);
+        rewardGrantDispatcher = mock(RewardGrantDispatcher.class);
+
+        questService = new QuestService(new GenerationConfig(), questCategoryRepository, questDefinitionRepository, playerQuestRepository,
+                playerQuestGenerationRepository, playerQuestHistoryRepository, rewardGrantRepository,
+                questCatalogService,
+                new PlayerQuestGenerationCache(new GenerationConfig(), playerQuestGenerationRepository),
+                playerLocks,
+                new QuestGenerationSchedule(new GenerationConfig()),
+                questProgressWriter, questProgressBuffer, rewardGrantDispatcher,
+                new QuestMetrics(new SimpleMeterRegistry()));
     }
 
     @Test
@@ -57,8 +96,9 @@ public class QuestServiceTests {
         when(weeklyQuestCategory.getId()).thenReturn("testWeeklyQuestCategory");
         when(weeklyQuestCategory.getGenerationHourOfDay()).thenReturn(6);
         when(weeklyQuestCategory.getGenerationDayOfWeek()).thenReturn(1);
+        when(weeklyQuestCategory.getQuestsPerGeneration()).thenReturn(3);
 
-        when(questCategoryRepository.findAll()).thenReturn(Lists.list(dailyQuestCategory, weeklyQuestCategory));
+        when(questCatalog.getCategories()).thenReturn(Lists.list(dailyQuestCategory, weeklyQuestCategory));
 
         // WHEN
         GetQuestCategoriesResponse response = questService.getQuestCategories();
@@ -73,6 +113,8 @@ public class QuestServiceTests {
         assertThat(response.getCategories().get(1).getId()).isEqualTo(weeklyQuestCategory.getId());
         assertThat(response.getCategories().get(1).getGenerationHourOfDay()).isEqualTo(weeklyQuestCategory.getGenerationHourOfDay());
         assertThat(response.getCategories().get(1).getGenerationDayOfWeek()).isEqualTo(weeklyQuestCategory.getGenerationDayOfWeek());
+        assertThat(response.getCategories().get(1)).isInstanceOf(QuestCategoriesResponseItem.class)
+                .extracting("questsPerGeneration").isEqualTo(3);
     }
 
     @Test
@@ -179,6 +221,18 @@ public class QuestServiceTests {
         assertThat(deletedDefinitions).doesNotContain(dailyQuestCategory, weeklyQuestCategory);
     }
 
+    @Test
+    public void givenQuestCategories_whenPutQuestCategories_thenReloadsCatalog() {
+        // GIVEN
+        PutQuestCategoriesRequest request = mock(PutQuestCategoriesRequest.class);
+
+        // WHEN
+        questService.putQuestCategories(request);
+
+        // THEN
+        verify(questCatalogService).reloadAfterCommit();
+    }
+
     @Test
     public void givenQuestDefinitions_whenGetQuestDefinitions_thenReturnDefinitions() {
         // GIVEN
@@ -191,6 +245,7 @@ public class QuestServiceTests {
         when(questDefinition1.getRequiredProgress()).thenReturn(2);
         when(questDefinition1.getRewardItemDefinitionId()).thenReturn("testRewardItemDefinition1");
         when(questDefinition1.getRewardItemCount()).thenReturn(3);
+        when(questDefinition1.getSelectionWeight()).thenReturn(6);
 
         QuestDefinition questDefinition2 = mock(QuestDefinition.class);
         when(questDefinition2.getId()).thenReturn("testQuestDefinition2");
@@ -198,8 +253,9 @@ public class QuestServiceTests {
         when(questDefinition2.getRequiredProgress()).thenReturn(4);
         when(questDefinition2.getRewardItemDefinitionId()).thenReturn("testRewardItemDefinition2");
         when(questDefinition2.getRewardItemCount()).thenReturn(5);
+        when(questDefinition2.getSelectionWeight()).thenReturn(7);
 
-        when(questDefinitionRepository.findAll()).thenReturn(Lists.list(questDefinition1, questDefinition2));
+        when(questCatalog.getDefinitions()).thenReturn(Lists.list(questDefinition1, questDefinition2));
 
         // WHEN
         GetQuestDefinitionsResponse response = questService.getQuestDefinitions();
@@ -213,11 +269,15 @@ public class QuestServiceTests {
         assertThat(response.getQuestDefinitions().get(0).getRequiredProgress()).isEqualTo(questDefinition1.getRequiredProgress());
         assertThat(response.getQuestDefinitions().get(0).getRewardItemDefinitionId()).isEqualTo(questDefinition1.getRewardItemDefinitionId());
         assertThat(response.getQuestDefinitions().get(0).getRewardItemCount()).isEqualTo(questDefinition1.getRewardItemCount());
+        assertThat(response.getQuestDefinitions().get(0)).isInstanceOf(QuestDefinitionsResponseItem.class)
+                .extracting("selectionWeight").isEqualTo(6);
         assertThat(response.getQuestDefinitions().get(1).getId()).isEqualTo(questDefinition2.getId());
         assertThat(response.getQuestDefinitions().get(1).getCategory()).isEqualTo(questDefinition2.getCategory().getId());
         assertThat(response.getQuestDefinitions().get(1).getRequiredProgress()).isEqualTo(questDefinition2.getRequiredProgress());
         assertThat(response.getQuestDefinitions().get(1).getRewardItemDefinitionId()).isEqualTo(questDefinition2.getRewardItemDefinitionId());
         assertThat(response.getQuestDefinitions().get(1).getRewardItemCount()).isEqualTo(questDefinition2.getRewardItemCount());
+        assertThat(response.getQuestDefinitions().get(1)).isInstanceOf(QuestDefinitionsResponseItem.class)
+                .extracting("selectionWeight").isEqualTo(7);
     }
 
     @Test
@@ -358,6 +418,258 @@ public class QuestServiceTests {
         assertThat(deletedDefinitions).doesNotContain(questDefinition1, questDefinition2);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenUnchangedQuestDefinition_whenPutQuestDefinitions_thenDoesNotSaveDefinition() throws ApiException {
+        // GIVEN
+        final String questCategoryId = "testQuestCategory";
+        final String questDefinitionId = "testQuestDefinition";
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategory.getId()).thenReturn(questCategoryId);
+        when(questCategoryRepository.findAll()).thenReturn(Lists.list(questCategory));
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn(questDefinitionId);
+        when(questDefinition.getCategory()).thenReturn(questCategory);
+        when(questDefinition.getRequiredProgress()).thenReturn(2);
+        when(questDefinition.getRewardItemDefinitionId()).thenReturn("testRewardItemDefinition");
+        when(questDefinition.getRewardItemCount()).thenReturn(3);
+        when(questDefinitionRepository.findAll()).thenReturn(Lists.list(questDefinition));
+
+        PutQuestDefinitionsRequestItem requestedQuestDefinition = mock(PutQuestDefinitionsRequestItem.class);
+        when(requestedQuestDefinition.getId()).thenReturn(questDefinitionId);
+        when(requestedQuestDefinition.getCategory()).thenReturn(questCategoryId);
+        when(requestedQuestDefinition.getRequiredProgress()).thenReturn(2);
+        when(requestedQuestDefinition.getRewardItemDefinitionId()).thenReturn("testRewardItemDefinition");
+        when(requestedQuestDefinition.getRewardItemCount()).thenReturn(3);
+
+        PutQuestDefinitionsRequest request = mock(PutQuestDefinitionsRequest.class);
+        when(request.getQuestDefinitions()).thenReturn(Lists.list(requestedQuestDefinition));
+
+        // WHEN
+        questService.putQuestDefinitions(request);
+
+        // THEN
+        ArgumentCaptor<List<QuestDefinition>> argument = ArgumentCaptor.forClass(List.class);
+        verify(questDefinitionRepository).saveAll(argument.capture());
+
+        assertThat(argument.getValue()).isEmpty();
+        verify(questDefinition, never()).setRequiredProgress(anyInt());
+    }
+
+    @Test
+    public void givenQuestDefinitions_whenPutQuestDefinitions_thenReloadsCatalog() throws ApiException {
+        // GIVEN
+        PutQuestDefinitionsRequest request = mock(PutQuestDefinitionsRequest.class);
+
+        // WHEN
+        questService.putQuestDefinitions(request);
+
+        // THEN
+        verify(questCatalogService).reloadAfterCommit();
+    }
+
+    @Test
+    public void givenNewQuestCategory_whenPutQuestCategory_thenSavesOnlyThatCategory() throws ApiException {
+        // GIVEN
+        final String questCategoryId = "testQuestCategory";
+
+        when(questCategoryRepository.findById(questCategoryId)).thenReturn(Optional.empty());
+        when(questCategoryRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            QuestCategory savedCategory = invocation.getArgument(0);
+            savedCategory.setVersion(0L);
+            return savedCategory;
+        });
+
+        PutQuestCategoryRequest request = mock(PutQuestCategoryRequest.class);
+        when(request.getGenerationHourOfDay()).thenReturn(6);
+        when(request.getQuestsPerGeneration()).thenReturn(3);
+
+        // WHEN
+        GetQuestCategoryResponse response = questService.putQuestCategory(questCategoryId, request, null);
+
+        // THEN
+        assertThat(response.getId()).isEqualTo(questCategoryId);
+        assertThat(response.getQuestsPerGeneration()).isEqualTo(3);
+        assertThat(response.getGenerationHourOfDay()).isEqualTo(6);
+        assertThat(response.getVersion()).isEqualTo(0L);
+
+        verify(questCategoryRepository, never()).findAll();
+        verify(questCatalogService).updateAfterCommit(any());
+        verify(questCatalogService, never()).reloadAfterCommit();
+    }
+
+    @Test
+    public void givenNoQuestsPerGeneration_whenPutQuestCategory_thenThrowsException() {
+        // GIVEN
+        PutQuestCategoryRequest request = mock(PutQuestCategoryRequest.class);
+        when(request.getQuestsPerGeneration()).thenReturn(0);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.putQuestCategory("testQuestCategory", request, null))
+                .matches(e -> e.getErrorCode() == QuestsApiErrors.INVALID_QUESTS_PER_GENERATION_CODE);
+
+        verify(questCategoryRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void givenExpectedVersionOfMissingCategory_whenPutQuestCategory_thenThrowsException() {
+        // GIVEN
+        final String questCategoryId = "testQuestCategory";
+
+        when(questCategoryRepository.findById(questCategoryId)).thenReturn(Optional.empty());
+
+        PutQuestCategoryRequest request = mock(PutQuestCategoryRequest.class);
+        when(request.getQuestsPerGeneration()).thenReturn(1);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.putQuestCategory(questCategoryId, request, 2L))
+                .matches(e -> e.getErrorCode() == QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE)
+                .withMessage(QuestsApiErrors.QUEST_CATALOG_ITEM_NOT_FOUND_MESSAGE);
+
+        verify(questCategoryRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void givenCategoryCreatedConcurrently_whenPutQuestCategory_thenThrowsOptimisticLockingFailure() {
+        // GIVEN
+        final String questCategoryId = "testQuestCategory";
+
+        when(questCategoryRepository.findById(questCategoryId)).thenReturn(Optional.empty());
+        when(questCategoryRepository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        PutQuestCategoryRequest request = mock(PutQuestCategoryRequest.class);
+        when(request.getQuestsPerGeneration()).thenReturn(1);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ObjectOptimisticLockingFailureException.class)
+                .isThrownBy(() -> questService.putQuestCategory(questCategoryId, request, null));
+    }
+
+    @Test
+    public void givenQuestDefinitionCreatedConcurrently_whenPutQuestDefinition_thenThrowsOptimisticLockingFailure() {
+        // GIVEN
+        final String questDefinitionId = "testQuestDefinition";
+
+        when(questDefinitionRepository.findById(questDefinitionId)).thenReturn(Optional.empty());
+        when(questDefinitionRepository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategoryRepository.findById("testQuestCategory")).thenReturn(Optional.of(questCategory));
+
+        PutQuestDefinitionRequest request = mock(PutQuestDefinitionRequest.class);
+        when(request.getCategory()).thenReturn("testQuestCategory");
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ObjectOptimisticLockingFailureException.class)
+                .isThrownBy(() -> questService.putQuestDefinition(questDefinitionId, request, null));
+    }
+
+    @Test
+    public void givenOutdatedVersion_whenPutQuestCategory_thenThrowsException() {
+        // GIVEN
+        final String questCategoryId = "testQuestCategory";
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategory.getVersion()).thenReturn(3L);
+        when(questCategoryRepository.findById(questCategoryId)).thenReturn(Optional.of(questCategory));
+
+        PutQuestCategoryRequest request = mock(PutQuestCategoryRequest.class);
+        when(request.getQuestsPerGeneration()).thenReturn(1);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.putQuestCategory(questCategoryId, request, 2L))
+                .matches(e -> e.getErrorCode() == QuestsApiErrors.QUEST_CATALOG_VERSION_MISMATCH_CODE);
+
+        verify(questCategoryRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void givenQuestCategoryWithDefinitions_whenDeleteQuestCategory_thenThrowsException() {
+        // GIVEN
+        final String questCategoryId = "testQuestCategory";
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategoryRepository.findById(questCategoryId)).thenReturn(Optional.of(questCategory));
+        when(questDefinitionRepository.existsByCategoryId(questCategoryId)).thenReturn(true);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.deleteQuestCategory(questCategoryId, null))
+                .matches(e -> e.getErrorCode() == QuestsApiErrors.QUEST_CATEGORY_IN_USE_CODE);
+
+        verify(questCategoryRepository, never()).delete(any());
+    }
+
+    @Test
+    public void givenUnchangedQuestDefinition_whenPutQuestDefinition_thenDoesNotSaveDefinition() throws ApiException {
+        // GIVEN
+        final String questCategoryId = "testQuestCategory";
+        final String questDefinitionId = "testQuestDefinition";
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategory.getId()).thenReturn(questCategoryId);
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn(questDefinitionId);
+        when(questDefinition.getCategory()).thenReturn(questCategory);
+        when(questDefinition.getRequiredProgress()).thenReturn(2);
+        when(questDefinition.getVersion()).thenReturn(4L);
+        when(questDefinitionRepository.findById(questDefinitionId)).thenReturn(Optional.of(questDefinition));
+
+        PutQuestDefinitionRequest request = mock(PutQuestDefinitionRequest.class);
+        when(request.getCategory()).thenReturn(questCategoryId);
+        when(request.getRequiredProgress()).thenReturn(2);
+
+        // WHEN
+        GetQuestDefinitionResponse response = questService.putQuestDefinition(questDefinitionId, request, 4L);
+
+        // THEN
+        assertThat(response.getVersion()).isEqualTo(4L);
+
+        verify(questDefinitionRepository, never()).saveAndFlush(any());
+        verify(questCatalogService, never()).updateAfterCommit(any());
+    }
+
+    @Test
+    public void givenNegativeSelectionWeight_whenPutQuestDefinition_thenThrowsException() {
+        // GIVEN
+        final String questDefinitionId = "testQuestDefinition";
+
+        PutQuestDefinitionRequest request = mock(PutQuestDefinitionRequest.class);
+        when(request.getSelectionWeight()).thenReturn(-1);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.putQuestDefinition(questDefinitionId, request, null))
+                .matches(e -> e.getErrorCode() == QuestsApiErrors.INVALID_SELECTION_WEIGHT_CODE);
+
+        verify(questDefinitionRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void givenReferencedQuestDefinition_whenDeleteQuestDefinition_thenThrowsException() {
+        // GIVEN
+        final String questDefinitionId = "testQuestDefinition";
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinitionRepository.findById(questDefinitionId)).thenReturn(Optional.of(questDefinition));
+        when(playerQuestHistoryRepository.existsByDefinitionId(questDefinitionId)).thenReturn(true);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.deleteQuestDefinition(questDefinitionId, null))
+                .matches(e -> e.getErrorCode() == QuestsApiErrors.QUEST_DEFINITION_IN_USE_CODE);
+
+        verify(questDefinitionRepository, never()).delete(any());
+    }
+
     @Test
     public void givenMissingPlayerId_whenCreateQuests_thenThrowException() {
         // WHEN & THEN
@@ -387,7 +699,7 @@ public class QuestServiceTests {
         when(incompleteQuest.getCurrentProgress()).thenReturn(1);
         when(incompleteQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
 
-        when(playerQuestRepository.findByPlayerId(playerId)).thenReturn(Lists.list(incompleteQuest));
+        when(playerQuestRepository.findByPlayerIdAndCompletedAtIsNull(playerId)).thenReturn(Lists.list(incompleteQuest));
 
         // WHEN
         CreateQuestsResponse response = questService.createQuests(playerId);
@@ -408,19 +720,37 @@ public class QuestServiceTests {
     }
 
     @Test
-    public void givenCompleteQuests_whenCreateQuests_thenDoesNotReturnCompleteQuests() throws ApiException {
+    public void givenPreGeneratedQuests_whenCreateQuests_thenDoesNotReturnPreGeneratedQuests() throws ApiException {
         // GIVEN
         final String playerId = "testPlayer";
 
-        PlayerQuest completeQuest = mock(PlayerQuest.class);
-        when(completeQuest.getCompletedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
+        PlayerQuest preGeneratedQuest = mock(PlayerQuest.class);
+        when(preGeneratedQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().plusMinutes(5));
+
+        when(playerQuestRepository.findByPlayerIdAndCompletedAtIsNull(playerId))
+                .thenReturn(Lists.list(preGeneratedQuest));
+
+        // WHEN
+        CreateQuestsResponse response = questService.createQuests(playerId);
+
+        // THEN
+        assertThat(response).isNotNull();
+        assertThat(response.getQuests()).isNotNull();
+        assertThat(response.getQuests()).isEmpty();
+    }
 
-        when(playerQuestRepository.findByPlayerId(playerId)).thenReturn(Lists.list(completeQuest));
+    @Test
+    public void givenCompleteQuests_whenCreateQuests_thenDoesNotReadCompleteQuests() throws ApiException {
+        // GIVEN
+        final String playerId = "testPlayer";
 
         // WHEN
         CreateQuestsResponse response = questService.createQuests(playerId);
 
         // THEN
+        verify(playerQuestRepository).findByPlayerIdAndCompletedAtIsNull(playerId);
+        verify(playerQuestRepository, never()).findByPlayerId(any());
+
         assertThat(response).isNotNull();
         assertThat(response.getQuests()).isNotNull();
         assertThat(response.getQuests()).isEmpty();
@@ -432,19 +762,26 @@ public class QuestServiceTests {
         final String playerId = "testPlayer";
 
         QuestCategory questCategory = mock(QuestCategory.class);
-        when(questCategoryRepository.findAll()).thenReturn(Lists.list(questCategory));
+        when(questCategory.getId()).thenReturn("testQuestCategory");
+        when(questCategory.getQuestsPerGeneration()).thenReturn(1);
+        when(questCatalog.getCategories()).thenReturn(Lists.list(questCategory));
 
         QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
         when(questDefinition.getCategory()).thenReturn(questCategory);
-        when(questDefinitionRepository.findByCategory(questCategory)).thenReturn(Lists.list(questDefinition));
+        when(questCatalog.getDefinitions(questCategory.getId())).thenReturn(Lists.list(questDefinition));
+        when(questDefinition.getSelectionWeight()).thenReturn(1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(questDefinition));
+        when(questCatalog.getSampler(questCategory.getId())).thenReturn(sampler);
 
         // WHEN
         CreateQuestsResponse response = questService.createQuests(playerId);
 
         // THEN
-        ArgumentCaptor<PlayerQuest> argumentCaptor = ArgumentCaptor.forClass(PlayerQuest.class);
-        verify(playerQuestRepository).save(argumentCaptor.capture());
-        PlayerQuest newPlayerQuest = argumentCaptor.getValue();
+        ArgumentCaptor<List<PlayerQuest>> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(playerQuestRepository).saveAll(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue()).hasSize(1);
+        PlayerQuest newPlayerQuest = argumentCaptor.getValue().get(0);
 
         assertThat(newPlayerQuest).isNotNull();
         assertThat(newPlayerQuest.getPlayerId()).isEqualTo(playerId);
@@ -459,6 +796,138 @@ public class QuestServiceTests {
         assertThat(response.getQuests().get(0).getId()).isEqualTo(newPlayerQuest.getId());
     }
 
+    @Test
+    public void givenNoQuests_whenCreateQuests_thenRemembersGeneration() throws ApiException {
+        // GIVEN
+        final String playerId = "testPlayer";
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategory.getId()).thenReturn("testQuestCategory");
+        when(questCategory.getQuestsPerGeneration()).thenReturn(1);
+        when(questCatalog.getCategories()).thenReturn(Lists.list(questCategory));
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
+        when(questDefinition.getCategory()).thenReturn(questCategory);
+        when(questCatalog.getDefinitions(questCategory.getId())).thenReturn(Lists.list(questDefinition));
+        when(questDefinition.getSelectionWeight()).thenReturn(1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(questDefinition));
+        when(questCatalog.getSampler(questCategory.getId())).thenReturn(sampler);
+
+        // WHEN
+        questService.createQuests(playerId);
+
+        // THEN
+        ArgumentCaptor<List<PlayerQuestGeneration>> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(playerQuestGenerationRepository).saveAll(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue()).hasSize(1);
+        PlayerQuestGeneration generation = argumentCaptor.getValue().get(0);
+
+        assertThat(generation).isNotNull();
+        assertThat(generation.getPlayerId()).isEqualTo(playerId);
+        assertThat(generation.getCategoryId()).isEqualTo(questCategory.getId());
+        assertThat(generation.getGeneratedAt()).isNotNull();
+    }
+
+    @Test
+    public void givenSeveralQuestsPerGeneration_whenCreateQuests_thenCreatesDistinctQuests() throws ApiException {
+        // GIVEN
+        final String playerId = "testPlayer";
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategory.getId()).thenReturn("testQuestCategory");
+        when(questCategory.getQuestsPerGeneration()).thenReturn(2);
+        when(questCatalog.getCategories()).thenReturn(Lists.list(questCategory));
+
+        QuestDefinition firstQuestDefinition = mock(QuestDefinition.class);
+        when(firstQuestDefinition.getId()).thenReturn("firstQuestDefinition");
+        when(firstQuestDefinition.getCategory()).thenReturn(questCategory);
+
+        QuestDefinition secondQuestDefinition = mock(QuestDefinition.class);
+        when(secondQuestDefinition.getId()).thenReturn("secondQuestDefinition");
+        when(secondQuestDefinition.getCategory()).thenReturn(questCategory);
+
+        List<QuestDefinition> questDefinitions = Lists.list(firstQuestDefinition, secondQuestDefinition);
+        when(questCatalog.getDefinitions(questCategory.getId())).thenReturn(questDefinitions);
+        when(firstQuestDefinition.getSelectionWeight()).thenReturn(1);
+        when(secondQuestDefinition.getSelectionWeight()).thenReturn(1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(questDefinitions);
+        when(questCatalog.getSampler(questCategory.getId())).thenReturn(sampler);
+
+        // WHEN
+        CreateQuestsResponse response = questService.createQuests(playerId);
+
+        // THEN
+        ArgumentCaptor<List<PlayerQuest>> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(playerQuestRepository).saveAll(argumentCaptor.capture());
+
+        assertThat(argumentCaptor.getValue()).extracting(PlayerQuest::getDefinition)
+                .containsExactlyInAnyOrder(firstQuestDefinition, secondQuestDefinition);
+        assertThat(response.getQuests()).hasSize(2);
+    }
+
+    @Test
+    public void givenNoQuestsDue_whenCreateQuests_thenReturnsWithoutCheckingGenerations() throws ApiException {
+        // GIVEN
+        final String playerId = "testPlayer";
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategory.getId()).thenReturn("testQuestCategory");
+        when(questCatalog.getCategories()).thenReturn(Lists.list(questCategory));
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
+        when(questDefinition.getCategory()).thenReturn(questCategory);
+        when(questCatalog.getDefinitions(questCategory.getId())).thenReturn(Lists.list(questDefinition));
+        when(questDefinition.getSelectionWeight()).thenReturn(1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(questDefinition));
+        when(questCatalog.getSampler(questCategory.getId())).thenReturn(sampler);
+
+        PlayerQuestGeneration currentGeneration = mock(PlayerQuestGeneration.class);
+        when(currentGeneration.getCategoryId()).thenReturn("testQuestCategory");
+        when(currentGeneration.getGeneratedAt()).thenReturn(OffsetDateTime.now());
+        when(currentGeneration.getLastSeenAt()).thenReturn(OffsetDateTime.now());
+        when(playerQuestGenerationRepository.findByPlayerId(playerId)).thenReturn(Lists.list(currentGeneration));
+
+        // WHEN
+        questService.createQuests(playerId);
+        questService.createQuests(playerId);
+
+        // THEN
+        verify(playerQuestGenerationRepository, times(1)).findByPlayerId(playerId);
+        verify(playerQuestGenerationRepository, never()).findByPlayerIdForUpdate(any());
+        verify(playerQuestGenerationRepository, never()).saveAll(any());
+        verify(playerQuestRepository, never()).saveAll(any());
+        verify(playerLocks, never()).lockUntilCompletion(any());
+    }
+
+    @Test
+    public void givenQuestsDue_whenCreateQuests_thenLocksPlayerBeforeCheckingGenerations() throws ApiException {
+        // GIVEN
+        final String playerId = "testPlayer";
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategory.getId()).thenReturn("testQuestCategory");
+        when(questCatalog.getCategories()).thenReturn(Lists.list(questCategory));
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
+        when(questDefinition.getCategory()).thenReturn(questCategory);
+        when(questCatalog.getDefinitions(questCategory.getId())).thenReturn(Lists.list(questDefinition));
+        when(questDefinition.getSelectionWeight()).thenReturn(1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(questDefinition));
+        when(questCatalog.getSampler(questCategory.getId())).thenReturn(sampler);
+
+        // WHEN
+        questService.createQuests(playerId);
+
+        // THEN
+        InOrder inOrder = inOrder(playerLocks, playerQuestRepository, playerQuestGenerationRepository);
+        inOrder.verify(playerLocks).lockUntilCompletion(playerId);
+        inOrder.verify(playerQuestRepository).findByPlayerIdAndCompletedAtIsNull(playerId);
+        inOrder.verify(playerQuestGenerationRepository).findByPlayerIdForUpdate(playerId);
+    }
+
     @Test
     public void givenOldDailyQuest_whenCreateQuests_thenCreatesQuest() throws ApiException {
         // GIVEN
@@ -467,25 +936,31 @@ public class QuestServiceTests {
         QuestCategory dailyQuestCategory = mock(QuestCategory.class);
         when(dailyQuestCategory.getId()).thenReturn("testQuestCategory");
         when(dailyQuestCategory.getGenerationDayOfWeek()).thenReturn(null);
-        when(questCategoryRepository.findAll()).thenReturn(Lists.list(dailyQuestCategory));
+        when(dailyQuestCategory.getQuestsPerGeneration()).thenReturn(1);
+        when(questCatalog.getCategories()).thenReturn(Lists.list(dailyQuestCategory));
 
         QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
         when(questDefinition.getCategory()).thenReturn(dailyQuestCategory);
-        when(questDefinitionRepository.findByCategory(dailyQuestCategory)).thenReturn(Lists.list(questDefinition));
+        when(questCatalog.getDefinitions(dailyQuestCategory.getId())).thenReturn(Lists.list(questDefinition));
+        when(questDefinition.getSelectionWeight()).thenReturn(1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(questDefinition));
+        when(questCatalog.getSampler(dailyQuestCategory.getId())).thenReturn(sampler);
 
-        PlayerQuest oldPlayerQuest = mock(PlayerQuest.class);
-        when(oldPlayerQuest.getDefinition()).thenReturn(questDefinition);
-        when(oldPlayerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(2));
-        when(oldPlayerQuest.getCompletedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
-        when(playerQuestRepository.findByPlayerId(playerId)).thenReturn(Lists.list(oldPlayerQuest));
+        PlayerQuestGeneration oldGeneration = mock(PlayerQuestGeneration.class);
+        when(oldGeneration.getCategoryId()).thenReturn("testQuestCategory");
+        when(oldGeneration.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(2));
+        when(playerQuestGenerationRepository.findByPlayerId(playerId)).thenReturn(Lists.list(oldGeneration));
+        when(playerQuestGenerationRepository.findByPlayerIdForUpdate(playerId)).thenReturn(Lists.list(oldGeneration));
 
         // WHEN
         CreateQuestsResponse response = questService.createQuests(playerId);
 
         // THEN
-        ArgumentCaptor<PlayerQuest> argumentCaptor = ArgumentCaptor.forClass(PlayerQuest.class);
-        verify(playerQuestRepository).save(argumentCaptor.capture());
-        PlayerQuest newPlayerQuest = argumentCaptor.getValue();
+        ArgumentCaptor<List<PlayerQuest>> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(playerQuestRepository).saveAll(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue()).hasSize(1);
+        PlayerQuest newPlayerQuest = argumentCaptor.getValue().get(0);
 
         assertThat(newPlayerQuest).isNotNull();
         assertThat(response).isNotNull();
@@ -501,22 +976,27 @@ public class QuestServiceTests {
         QuestCategory dailyQuestCategory = mock(QuestCategory.class);
         when(dailyQuestCategory.getId()).thenReturn("testQuestCategory");
         when(dailyQuestCategory.getGenerationDayOfWeek()).thenReturn(null);
-        when(questCategoryRepository.findAll()).thenReturn(Lists.list(dailyQuestCategory));
+        when(questCatalog.getCategories()).thenReturn(Lists.list(dailyQuestCategory));
 
         QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
         when(questDefinition.getCategory()).thenReturn(dailyQuestCategory);
-        when(questDefinitionRepository.findByCategory(dailyQuestCategory)).thenReturn(Lists.list(questDefinition));
+        when(questCatalog.getDefinitions(dailyQuestCategory.getId())).thenReturn(Lists.list(questDefinition));
+        when(questDefinition.getSelectionWeight()).thenReturn(1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(questDefinition));
+        when(questCatalog.getSampler(dailyQuestCategory.getId())).thenReturn(sampler);
 
-        PlayerQuest currentPlayerQuest = mock(PlayerQuest.class);
-        when(currentPlayerQuest.getDefinition()).thenReturn(questDefinition);
-        when(currentPlayerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now());
-        when(playerQuestRepository.findByPlayerId(playerId)).thenReturn(Lists.list(currentPlayerQuest));
+        PlayerQuestGeneration currentGeneration = mock(PlayerQuestGeneration.class);
+        when(currentGeneration.getCategoryId()).thenReturn("testQuestCategory");
+        when(currentGeneration.getGeneratedAt()).thenReturn(OffsetDateTime.now());
+        when(currentGeneration.getLastSeenAt()).thenReturn(OffsetDateTime.now());
+        when(playerQuestGenerationRepository.findByPlayerId(playerId)).thenReturn(Lists.list(currentGeneration));
 
         // WHEN
         questService.createQuests(playerId);
 
         // THEN
-        verify(playerQuestRepository, never()).save(any());
+        verify(playerQuestRepository, never()).saveAll(any());
     }
 
     @Test
@@ -527,25 +1007,31 @@ public class QuestServiceTests {
         QuestCategory weeklyQuestCategory = mock(QuestCategory.class);
         when(weeklyQuestCategory.getId()).thenReturn("testQuestCategory");
         when(weeklyQuestCategory.getGenerationDayOfWeek()).thenReturn(1);
-        when(questCategoryRepository.findAll()).thenReturn(Lists.list(weeklyQuestCategory));
+        when(weeklyQuestCategory.getQuestsPerGeneration()).thenReturn(1);
+        when(questCatalog.getCategories()).thenReturn(Lists.list(weeklyQuestCategory));
 
         QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
         when(questDefinition.getCategory()).thenReturn(weeklyQuestCategory);
-        when(questDefinitionRepository.findByCategory(weeklyQuestCategory)).thenReturn(Lists.list(questDefinition));
+        when(questCatalog.getDefinitions(weeklyQuestCategory.getId())).thenReturn(Lists.list(questDefinition));
+        when(questDefinition.getSelectionWeight()).thenReturn(1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(questDefinition));
+        when(questCatalog.getSampler(weeklyQuestCategory.getId())).thenReturn(sampler);
 
-        PlayerQuest oldPlayerQuest = mock(PlayerQuest.class);
-        when(oldPlayerQuest.getDefinition()).thenReturn(questDefinition);
-        when(oldPlayerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusWeeks(2));
-        when(oldPlayerQuest.getCompletedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
-        when(playerQuestRepository.findByPlayerId(playerId)).thenReturn(Lists.list(oldPlayerQuest));
+        PlayerQuestGeneration oldGeneration = mock(PlayerQuestGeneration.class);
+        when(oldGeneration.getCategoryId()).thenReturn("testQuestCategory");
+        when(oldGeneration.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusWeeks(2));
+        when(playerQuestGenerationRepository.findByPlayerId(playerId)).thenReturn(Lists.list(oldGeneration));
+        when(playerQuestGenerationRepository.findByPlayerIdForUpdate(playerId)).thenReturn(Lists.list(oldGeneration));
 
         // WHEN
         CreateQuestsResponse response = questService.createQuests(playerId);
 
         // THEN
-        ArgumentCaptor<PlayerQuest> argumentCaptor = ArgumentCaptor.forClass(PlayerQuest.class);
-        verify(playerQuestRepository).save(argumentCaptor.capture());
-        PlayerQuest newPlayerQuest = argumentCaptor.getValue();
+        ArgumentCaptor<List<PlayerQuest>> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(playerQuestRepository).saveAll(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue()).hasSize(1);
+        PlayerQuest newPlayerQuest = argumentCaptor.getValue().get(0);
 
         assertThat(newPlayerQuest).isNotNull();
         assertThat(response).isNotNull();
@@ -561,32 +1047,69 @@ public class QuestServiceTests {
         QuestCategory weeklyQuestCategory = mock(QuestCategory.class);
         when(weeklyQuestCategory.getId()).thenReturn("testQuestCategory");
         when(weeklyQuestCategory.getGenerationDayOfWeek()).thenReturn(1);
-        when(questCategoryRepository.findAll()).thenReturn(Lists.list(weeklyQuestCategory));
+        when(questCatalog.getCategories()).thenReturn(Lists.list(weeklyQuestCategory));
 
         QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
         when(questDefinition.getCategory()).thenReturn(weeklyQuestCategory);
-        when(questDefinitionRepository.findByCategory(weeklyQuestCategory)).thenReturn(Lists.list(questDefinition));
+        when(questCatalog.getDefinitions(weeklyQuestCategory.getId())).thenReturn(Lists.list(questDefinition));
+        when(questDefinition.getSelectionWeight()).thenReturn(1);
+        QuestDefinitionSampler sampler = new QuestDefinitionSampler(Lists.list(questDefinition));
+        when(questCatalog.getSampler(weeklyQuestCategory.getId())).thenReturn(sampler);
 
-        PlayerQuest currentPlayerQuest = mock(PlayerQuest.class);
-        when(currentPlayerQuest.getDefinition()).thenReturn(questDefinition);
-        when(currentPlayerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now());
-        when(playerQuestRepository.findByPlayerId(playerId)).thenReturn(Lists.list(currentPlayerQuest));
+        PlayerQuestGeneration currentGeneration = mock(PlayerQuestGeneration.class);
+        when(currentGeneration.getCategoryId()).thenReturn("testQuestCategory");
+        when(currentGeneration.getGeneratedAt()).thenReturn(OffsetDateTime.now());
+        when(currentGeneration.getLastSeenAt()).thenReturn(OffsetDateTime.now());
+        when(playerQuestGenerationRepository.findByPlayerId(playerId)).thenReturn(Lists.list(currentGeneration));
 
         // WHEN
         questService.createQuests(playerId);
 
         // THEN
-        verify(playerQuestRepository, never()).save(any());
+        verify(playerQuestRepository, never()).saveAll(any());
     }
 
     @Test
-    public void givenPlayerQuests_whenGetPlayerQuests_thenReturnQuests() {
+    public void givenUnseenPreGeneratedQuests_whenCreateQuests_thenRemembersPlayerSeen() throws ApiException {
         // GIVEN
         final String playerId = "testPlayer";
 
-        QuestCategory testQuestCategory = mock(QuestCategory.class);
-        when(testQuestCategory.getId()).thenReturn("testQuestCategory");
-
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategory.getId()).thenReturn("testQuestCategory");
+        when(questCatalog.getCategories()).thenReturn(Lists.list(questCategory));
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
+        when(questCatalog.getDefinitions(questCategory.getId())).thenReturn(Lists.list(questDefinition));
+
+        PlayerQuestGeneration preGeneration = new PlayerQuestGeneration();
+        preGeneration.setPlayerId(playerId);
+        preGeneration.setCategoryId(questCategory.getId());
+        preGeneration.setGeneratedAt(OffsetDateTime.now());
+        preGeneration.setLastSeenAt(OffsetDateTime.now().minusDays(1));
+        when(playerQuestGenerationRepository.findByPlayerId(playerId)).thenReturn(Lists.list(preGeneration));
+        when(playerQuestGenerationRepository.findByPlayerIdForUpdate(playerId))
+                .thenReturn(Lists.list(preGeneration));
+
+        // WHEN
+        questService.createQuests(playerId);
+
+        // THEN
+        verify(playerQuestRepository, never()).saveAll(any());
+        verify(playerQuestGenerationRepository).saveAll(Lists.list(preGeneration));
+
+        assertThat(preGeneration.getLastSeenAt()).isAfterOrEqualTo(preGeneration.getGeneratedAt());
+    }
+
+    @Test
+    public void givenPlayerQuests_whenGetPlayerQuests_thenReturnQuests() {
+        // GIVEN
+        final String playerId = "testPlayer";
+
+        QuestCategory testQuestCategory = mock(QuestCategory.class);
+        when(testQuestCategory.getId()).thenReturn("testQuestCategory");
+
         QuestDefinition questDefinition = mock(QuestDefinition.class);
         when(questDefinition.getId()).thenReturn("testQuestDefinition");
         when(questDefinition.getCategory()).thenReturn(testQuestCategory);
@@ -637,6 +1160,74 @@ public class QuestServiceTests {
         assertThat(response.getQuests().get(1).getCompletedAt()).isEqualTo(playerQuest2.getCompletedAt());
     }
 
+    @Test
+    public void givenArchivedPlayerQuests_whenGetPlayerQuests_thenReturnArchivedQuests() {
+        // GIVEN
+        final String playerId = "testPlayer";
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategory.getId()).thenReturn("testQuestCategory");
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
+        when(questDefinition.getCategory()).thenReturn(questCategory);
+
+        PlayerQuestHistory archivedQuest = mock(PlayerQuestHistory.class);
+        when(archivedQuest.getId()).thenReturn(4L);
+        when(archivedQuest.getDefinition()).thenReturn(questDefinition);
+        when(archivedQuest.getCompletedAt()).thenReturn(OffsetDateTime.now().minusDays(60));
+
+        when(playerQuestHistoryRepository.findByPlayerId(playerId)).thenReturn(Lists.list(archivedQuest));
+
+        // WHEN
+        GetPlayerQuestsResponse response = questService.getPlayerQuests(playerId);
+
+        // THEN
+        assertThat(response).isNotNull();
+        assertThat(response.getQuests()).isNotNull();
+        assertThat(response.getQuests()).hasSize(1);
+        assertThat(response.getQuests().get(0).getId()).isEqualTo(archivedQuest.getId());
+        assertThat(response.getQuests().get(0).getQuestDefinitionId()).isEqualTo(questDefinition.getId());
+        assertThat(response.getQuests().get(0).getCompletedAt()).isEqualTo(archivedQuest.getCompletedAt());
+    }
+
+    @Test
+    public void givenActiveAndArchivedPlayerQuests_whenGetPlayerQuestsPage_thenReturnQuestsInPageOrder() {
+        // GIVEN
+        final String playerId = "testPlayer";
+
+        QuestCategory questCategory = mock(QuestCategory.class);
+        when(questCategory.getId()).thenReturn("testQuestCategory");
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn("testQuestDefinition");
+        when(questDefinition.getCategory()).thenReturn(questCategory);
+
+        PlayerQuest activeQuest = mock(PlayerQuest.class);
+        when(activeQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
+        when(activeQuest.getId()).thenReturn(6L);
+        when(activeQuest.getDefinition()).thenReturn(questDefinition);
+
+        PlayerQuestHistory archivedQuest = mock(PlayerQuestHistory.class);
+        when(archivedQuest.getId()).thenReturn(4L);
+        when(archivedQuest.getDefinition()).thenReturn(questDefinition);
+
+        when(playerQuestHistoryRepository.findAllQuestIdsByPlayerId(eq(playerId), any()))
+                .thenReturn(Lists.list(4, 6));
+        when(playerQuestRepository.findAllById(any())).thenReturn(Lists.list(activeQuest));
+        when(playerQuestHistoryRepository.findAllById(any())).thenReturn(Lists.list(archivedQuest));
+
+        // WHEN
+        GetPlayerQuestsResponse response = questService.getPlayerQuestsPage(playerId, 0, 2);
+
+        // THEN
+        assertThat(response).isNotNull();
+        assertThat(response.getQuests()).isNotNull();
+        assertThat(response.getQuests()).hasSize(2);
+        assertThat(response.getQuests().get(0).getId()).isEqualTo(archivedQuest.getId());
+        assertThat(response.getQuests().get(1).getId()).isEqualTo(activeQuest.getId());
+    }
+
     @Test
     public void givenMissingPlayerId_whenIncreaseQuestProgress_thenThrowException() {
         // WHEN & THEN
@@ -662,10 +1253,12 @@ public class QuestServiceTests {
         final String questDefinitionId = "testQuestDefinition";
 
         QuestDefinition questDefinition = mock(QuestDefinition.class);
-        when(questDefinitionRepository.findById(questDefinitionId)).thenReturn(Optional.of(questDefinition));
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        IncreaseQuestProgressRequest request = mock(IncreaseQuestProgressRequest.class);
 
         // WHEN
-        questService.increaseQuestProgress("testPlayer", questDefinitionId, null);
+        questService.increaseQuestProgress("testPlayer", questDefinitionId, request);
 
         // THEN
         verify(playerQuestRepository, never()).save(any());
@@ -679,11 +1272,32 @@ public class QuestServiceTests {
 
         QuestDefinition questDefinition = mock(QuestDefinition.class);
         when(questDefinition.getRequiredProgress()).thenReturn(6);
-        when(questDefinitionRepository.findById(questDefinitionId)).thenReturn(Optional.of(questDefinition));
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
 
-        PlayerQuest playerQuest = mock(PlayerQuest.class);
-        when(playerQuest.getCurrentProgress()).thenReturn(2);
-        when(playerQuestRepository.findByPlayerIdAndDefinition(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        IncreaseQuestProgressRequest request = mock(IncreaseQuestProgressRequest.class);
+        when(request.getProgressMade()).thenReturn(3);
+
+        // WHEN
+        questService.increaseQuestProgress(playerId, questDefinitionId, request);
+
+        // THEN
+        final int progressMade = request.getProgressMade();
+        final int requiredProgress = questDefinition.getRequiredProgress();
+
+        verify(playerQuestRepository).increaseProgress(eq(playerId), eq(questDefinitionId), eq(progressMade),
+                eq(requiredProgress), any());
+    }
+
+    @Test
+    public void givenWriteBehind_whenIncreaseQuestProgress_thenBuffersProgress() throws ApiException {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        when(questProgressBuffer.isEnabled()).thenReturn(true);
 
         IncreaseQuestProgressRequest request = mock(IncreaseQuestProgressRequest.class);
         when(request.getProgressMade()).thenReturn(3);
@@ -692,15 +1306,159 @@ public class QuestServiceTests {
         questService.increaseQuestProgress(playerId, questDefinitionId, request);
 
         // THEN
-        verify(playerQuest).setCurrentProgress(playerQuest.getCurrentProgress() + request.getProgressMade());
-        verify(playerQuestRepository).save(playerQuest);
+        verify(questProgressBuffer).add(playerId, questDefinitionId, request.getProgressMade());
+        verify(playerQuestRepository, never()).save(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenProgressForSameQuest_whenIncreaseQuestProgressBatch_thenMergesProgress() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn(questDefinitionId);
+        when(questDefinition.getRequiredProgress()).thenReturn(10);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
+        when(playerQuest.getPlayerId()).thenReturn(playerId);
+        when(playerQuest.getDefinition()).thenReturn(questDefinition);
+        when(playerQuest.getCurrentProgress()).thenReturn(2);
+        when(playerQuestRepository.findLockedByPlayerIdInAndDefinitionIdInAndCompletedAtIsNull(any(), any()))
+                .thenReturn(Lists.list(playerQuest));
+
+        PlayerQuestKey key = new PlayerQuestKey(playerId, questDefinitionId);
+
+        IncreaseQuestProgressBatchRequest request = new IncreaseQuestProgressBatchRequest();
+        request.getItems().add(createBatchRequestItem(playerId, questDefinitionId, 3));
+        request.getItems().add(createBatchRequestItem(playerId, questDefinitionId, 4));
+
+        // WHEN
+        IncreaseQuestProgressBatchResponse response = questService.increaseQuestProgressBatch(request);
+
+        // THEN
+        ArgumentCaptor<Map<PlayerQuestKey, Integer>> argumentCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(questProgressWriter).increaseQuestProgress(argumentCaptor.capture());
+
+        assertThat(argumentCaptor.getValue()).containsOnly(entry(key, 7));
+
+        assertThat(response).isNotNull();
+        assertThat(response.getItems()).hasSize(2);
+        assertThat(response.getItems()).extracting(IncreaseQuestProgressBatchResponseItem::getResult)
+                .containsOnly(IncreaseQuestProgressResult.PROGRESS_INCREASED);
+        assertThat(response.getItems()).extracting(IncreaseQuestProgressBatchResponseItem::getCurrentProgress)
+                .containsOnly(9);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenProgressBeyondRequiredProgress_whenIncreaseQuestProgressBatch_thenReportsCappedProgress() {
+        // GIVEN
+        final String questDefinitionId = "testQuestDefinition";
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn(questDefinitionId);
+        when(questDefinition.getRequiredProgress()).thenReturn(10);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        PlayerQuest almostCompletedQuest = mockActivePlayerQuest("testPlayer", questDefinition, 8);
+        PlayerQuest completedQuest = mockActivePlayerQuest("otherPlayer", questDefinition, 10);
+        when(playerQuestRepository.findLockedByPlayerIdInAndDefinitionIdInAndCompletedAtIsNull(any(), any()))
+                .thenReturn(Lists.list(almostCompletedQuest, completedQuest));
+
+        IncreaseQuestProgressBatchRequest request = new IncreaseQuestProgressBatchRequest();
+        request.getItems().add(createBatchRequestItem("testPlayer", questDefinitionId, 5));
+        request.getItems().add(createBatchRequestItem("otherPlayer", questDefinitionId, 5));
+
+        // WHEN
+        IncreaseQuestProgressBatchResponse response = questService.increaseQuestProgressBatch(request);
+
+        // THEN
+        ArgumentCaptor<Map<PlayerQuestKey, Integer>> argumentCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(questProgressWriter).increaseQuestProgress(argumentCaptor.capture());
+
+        assertThat(argumentCaptor.getValue()).containsOnly(entry(new PlayerQuestKey("testPlayer", questDefinitionId), 5));
+
+        assertThat(response.getItems()).extracting(IncreaseQuestProgressBatchResponseItem::getResult)
+                .containsOnly(IncreaseQuestProgressResult.PROGRESS_CAPPED);
+        assertThat(response.getItems()).extracting(IncreaseQuestProgressBatchResponseItem::getCurrentProgress)
+                .containsOnly(10);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenNonPositiveProgress_whenIncreaseQuestProgressBatch_thenReportsInvalidProgress() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        IncreaseQuestProgressBatchRequest request = new IncreaseQuestProgressBatchRequest();
+        request.getItems().add(createBatchRequestItem(playerId, questDefinitionId, 0));
+        request.getItems().add(createBatchRequestItem(playerId, questDefinitionId, -3));
+
+        // WHEN
+        IncreaseQuestProgressBatchResponse response = questService.increaseQuestProgressBatch(request);
+
+        // THEN
+        ArgumentCaptor<Map<PlayerQuestKey, Integer>> argumentCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(questProgressWriter).increaseQuestProgress(argumentCaptor.capture());
+
+        assertThat(argumentCaptor.getValue()).isEmpty();
+
+        assertThat(response.getItems()).extracting(IncreaseQuestProgressBatchResponseItem::getResult)
+                .containsOnly(IncreaseQuestProgressResult.INVALID_PROGRESS);
+    }
+
+    @Test
+    public void givenNullItems_whenIncreaseQuestProgressBatch_thenReturnsEmptyResponse() {
+        // GIVEN
+        IncreaseQuestProgressBatchRequest request = new IncreaseQuestProgressBatchRequest();
+        request.setItems(null);
+
+        // WHEN
+        IncreaseQuestProgressBatchResponse response = questService.increaseQuestProgressBatch(request);
+
+        // THEN
+        assertThat(response).isNotNull();
+        assertThat(response.getItems()).isEmpty();
+    }
+
+    @Test
+    public void givenInvalidItems_whenIncreaseQuestProgressBatch_thenReportsErrors() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String knownQuestDefinitionId = "testQuestDefinition";
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questCatalog.getDefinition(knownQuestDefinitionId)).thenReturn(questDefinition);
+
+        IncreaseQuestProgressBatchRequest request = new IncreaseQuestProgressBatchRequest();
+        request.getItems().add(createBatchRequestItem("", knownQuestDefinitionId, 1));
+        request.getItems().add(createBatchRequestItem(playerId, "unknownQuestDefinition", 1));
+        request.getItems().add(createBatchRequestItem(playerId, knownQuestDefinitionId, 1));
+
+        // WHEN
+        IncreaseQuestProgressBatchResponse response = questService.increaseQuestProgressBatch(request);
+
+        // THEN
+        assertThat(response).isNotNull();
+        assertThat(response.getItems()).hasSize(3);
+        assertThat(response.getItems().get(0).getResult()).isEqualTo(IncreaseQuestProgressResult.MISSING_PLAYER_ID);
+        assertThat(response.getItems().get(1).getResult()).isEqualTo(IncreaseQuestProgressResult.UNKNOWN_QUEST_DEFINITION);
+        assertThat(response.getItems().get(2).getResult()).isEqualTo(IncreaseQuestProgressResult.QUEST_NOT_FOUND);
     }
 
     @Test
     public void givenMissingPlayerId_whenFinishQuest_thenThrowException() {
         // WHEN & THEN
         assertThatExceptionOfType(ApiException.class)
-                .isThrownBy(() -> questService.finishQuest("", null))
+                .isThrownBy(() -> questService.finishQuest("", null, null))
                 .withMessage(ApiErrors.MISSING_PLAYER_ID_MESSAGE);
     }
 
@@ -711,7 +1469,7 @@ public class QuestServiceTests {
 
         // WHEN & THEN
         assertThatExceptionOfType(ApiException.class)
-                .isThrownBy(() -> questService.finishQuest("testPlayer", questDefinitionId))
+                .isThrownBy(() -> questService.finishQuest("testPlayer", questDefinitionId, null))
                 .withMessage(ApiErrors.UNKNOWN_QUEST_DEFINITION_MESSAGE + questDefinitionId);
     }
 
@@ -721,11 +1479,11 @@ public class QuestServiceTests {
         final String questDefinitionId = "testQuestDefinition";
 
         QuestDefinition questDefinition = mock(QuestDefinition.class);
-        when(questDefinitionRepository.findById(questDefinitionId)).thenReturn(Optional.of(questDefinition));
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
 
         // WHEN & THEN
         assertThatExceptionOfType(ApiException.class)
-                .isThrownBy(() -> questService.finishQuest("testPlayer", questDefinitionId))
+                .isThrownBy(() -> questService.finishQuest("testPlayer", questDefinitionId, null))
                 .withMessage(ApiErrors.QUEST_NOT_FOUND_MESSAGE);
     }
 
@@ -737,17 +1495,39 @@ public class QuestServiceTests {
 
         QuestDefinition questDefinition = mock(QuestDefinition.class);
         when(questDefinition.getRequiredProgress()).thenReturn(1);
-        when(questDefinitionRepository.findById(questDefinitionId)).thenReturn(Optional.of(questDefinition));
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
 
         PlayerQuest playerQuest = mock(PlayerQuest.class);
-        when(playerQuestRepository.findByPlayerIdAndDefinition(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
+        when(playerQuestRepository.findByPlayerIdAndDefinitionAndCompletedAtIsNull(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
 
         // WHEN & THEN
         assertThatExceptionOfType(ApiException.class)
-                .isThrownBy(() -> questService.finishQuest(playerId, questDefinitionId))
+                .isThrownBy(() -> questService.finishQuest(playerId, questDefinitionId, null))
                 .withMessage(ApiErrors.INSUFFICIENT_QUEST_PROGRESS_MESSAGE);
     }
 
+    @Test
+    public void givenBufferedProgress_whenFinishQuest_thenLocksAndFlushesPlayerFirst() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        // WHEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.finishQuest(playerId, questDefinitionId, null));
+
+        // THEN
+        InOrder inOrder = inOrder(playerLocks, questProgressBuffer, playerQuestRepository);
+        inOrder.verify(playerLocks).lockUntilCompletion(playerId);
+        inOrder.verify(questProgressBuffer).flush(playerId);
+        inOrder.verify(playerQuestRepository).findByPlayerIdAndDefinitionAndCompletedAtIsNull(playerId,
+                questDefinition);
+    }
+
     @Test
     public void givenSufficientQuestProgress_whenFinishQuest_thenGrantRewards() throws ApiException {
         // GIVEN
@@ -759,23 +1539,30 @@ public class QuestServiceTests {
         when(questDefinition.getRequiredProgress()).thenReturn(requiredProgress);
         when(questDefinition.getRewardItemDefinitionId()).thenReturn("testReward");
         when(questDefinition.getRewardItemCount()).thenReturn(2);
-        when(questDefinitionRepository.findById(questDefinitionId)).thenReturn(Optional.of(questDefinition));
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
 
         PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
         when(playerQuest.getCurrentProgress()).thenReturn(requiredProgress);
-        when(playerQuestRepository.findByPlayerIdAndDefinition(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuestRepository.findByPlayerIdAndDefinitionAndCompletedAtIsNull(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuestRepository.complete(anyLong(), anyInt(), any(), any(), any(), anyInt())).thenReturn(1);
 
         // WHEN
-        questService.finishQuest(playerId, questDefinitionId);
+        questService.finishQuest(playerId, questDefinitionId, null);
 
         // THEN
-        ArgumentCaptor<AddCollectionItemsRequest> argumentCaptor = ArgumentCaptor.forClass(AddCollectionItemsRequest.class);
-        verify(collectionService).addCollectionItems(eq(playerId), argumentCaptor.capture());
-        AddCollectionItemsRequest request = argumentCaptor.getValue();
-
-        assertThat(request).isNotNull();
-        assertThat(request.getItemDefinitionId()).isEqualTo(questDefinition.getRewardItemDefinitionId());
-        assertThat(request.getItemCount()).isEqualTo(questDefinition.getRewardItemCount());
+        ArgumentCaptor<RewardGrant> argumentCaptor = ArgumentCaptor.forClass(RewardGrant.class);
+        verify(rewardGrantRepository).save(argumentCaptor.capture());
+        RewardGrant rewardGrant = argumentCaptor.getValue();
+
+        assertThat(rewardGrant).isNotNull();
+        assertThat(rewardGrant.getPlayerId()).isEqualTo(playerId);
+        assertThat(rewardGrant.getItemDefinitionId()).isEqualTo(questDefinition.getRewardItemDefinitionId());
+        assertThat(rewardGrant.getItemCount()).isEqualTo(questDefinition.getRewardItemCount());
+        assertThat(rewardGrant.getIdempotencyKey()).isNotEmpty();
+        assertThat(rewardGrant.getNextAttemptAt()).isNotNull();
+
+        verify(rewardGrantDispatcher).dispatchAfterCommit();
     }
 
     @Test
@@ -787,18 +1574,214 @@ public class QuestServiceTests {
 
         QuestDefinition questDefinition = mock(QuestDefinition.class);
         when(questDefinition.getRequiredProgress()).thenReturn(requiredProgress);
-        when(questDefinitionRepository.findById(questDefinitionId)).thenReturn(Optional.of(questDefinition));
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
+        when(playerQuest.getCurrentProgress()).thenReturn(requiredProgress);
+        when(playerQuestRepository.findByPlayerIdAndDefinitionAndCompletedAtIsNull(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuestRepository.complete(anyLong(), anyInt(), any(), any(), any(), anyInt())).thenReturn(1);
+
+        // WHEN
+        questService.finishQuest(playerId, questDefinitionId, null);
+
+        // THEN
+        verify(playerQuestRepository).complete(eq(playerQuest.getId()), eq(requiredProgress), any(), isNull(), any(), anyInt());
+        verify(playerQuestRepository, never()).save(any());
+    }
+
+    @Test
+    public void givenQuestCompletedConcurrently_whenFinishQuest_thenThrowException() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+        final int requiredProgress = 1;
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getRequiredProgress()).thenReturn(requiredProgress);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
+        when(playerQuest.getCurrentProgress()).thenReturn(requiredProgress);
+        when(playerQuestRepository.findByPlayerIdAndDefinitionAndCompletedAtIsNull(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuestRepository.complete(anyLong(), anyInt(), any(), any(), any(), anyInt())).thenReturn(0);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.finishQuest(playerId, questDefinitionId, null))
+                .withMessage(ApiErrors.QUEST_NOT_FOUND_MESSAGE);
+
+        verify(rewardGrantRepository, never()).save(any());
+        verify(rewardGrantDispatcher, never()).dispatchAfterCommit();
+    }
+
+    @Test
+    public void givenIdempotencyKey_whenFinishQuest_thenStoresKey() throws ApiException {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+        final String idempotencyKey = "testIdempotencyKey";
+        final int requiredProgress = 1;
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getRequiredProgress()).thenReturn(requiredProgress);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
+        when(playerQuest.getCurrentProgress()).thenReturn(requiredProgress);
+        when(playerQuestRepository.findByPlayerIdAndDefinitionAndCompletedAtIsNull(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuestRepository.complete(anyLong(), anyInt(), any(), any(), any(), anyInt())).thenReturn(1);
+
+        // WHEN
+        questService.finishQuest(playerId, questDefinitionId, idempotencyKey);
+
+        // THEN
+        verify(playerQuestRepository).complete(eq(playerQuest.getId()), eq(requiredProgress), any(), eq(idempotencyKey), any(), anyInt());
+    }
+
+    @Test
+    public void givenFinishedWithIdempotencyKey_whenFinishQuest_thenReturnsOriginalResponseWithoutGrantingRewards()
+            throws ApiException {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+        final String idempotencyKey = "testIdempotencyKey";
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn(questDefinitionId);
+        when(questDefinition.getRewardItemDefinitionId()).thenReturn("testReward");
+        when(questDefinition.getRewardItemCount()).thenReturn(2);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
 
         PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getDefinition()).thenReturn(questDefinition);
+        when(playerQuest.getRewardItemDefinitionId()).thenReturn("claimedReward");
+        when(playerQuest.getRewardItemCount()).thenReturn(1);
+        when(playerQuestRepository.findByPlayerIdAndFinishIdempotencyKey(playerId, idempotencyKey)).thenReturn(Lists.list(playerQuest));
+
+        // WHEN
+        FinishQuestResponse response = questService.finishQuest(playerId, questDefinitionId, idempotencyKey);
+
+        // THEN
+        assertThat(response.getRewardItemDefinitionId()).isEqualTo("claimedReward");
+        assertThat(response.getRewardItemCount()).isEqualTo(1);
+
+        verify(playerQuestRepository, never()).complete(anyLong(), anyInt(), any(), any(), any(), anyInt());
+        verify(rewardGrantRepository, never()).save(any());
+        verify(rewardGrantDispatcher, never()).dispatchAfterCommit();
+    }
+
+    @Test
+    public void givenQuestCompletedConcurrentlyWithSameIdempotencyKey_whenFinishQuest_thenReturnsOriginalResponse()
+            throws ApiException {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+        final String idempotencyKey = "testIdempotencyKey";
+        final int requiredProgress = 1;
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn(questDefinitionId);
+        when(questDefinition.getRequiredProgress()).thenReturn(requiredProgress);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getDefinition()).thenReturn(questDefinition);
+        when(playerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
         when(playerQuest.getCurrentProgress()).thenReturn(requiredProgress);
-        when(playerQuestRepository.findByPlayerIdAndDefinition(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuest.getRewardItemDefinitionId()).thenReturn("testReward");
+        when(playerQuest.getRewardItemCount()).thenReturn(2);
+        when(playerQuestRepository.findByPlayerIdAndDefinitionAndCompletedAtIsNull(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuestRepository.complete(anyLong(), anyInt(), any(), any(), any(), anyInt())).thenReturn(0);
+        when(playerQuestRepository.findLockedByPlayerIdAndFinishIdempotencyKey(playerId, idempotencyKey)).thenReturn(Lists.list(playerQuest));
 
         // WHEN
-        questService.finishQuest(playerId, questDefinitionId);
+        FinishQuestResponse response = questService.finishQuest(playerId, questDefinitionId, idempotencyKey);
 
         // THEN
-        verify(playerQuest).setCompletedAt(any());
-        verify(playerQuestRepository).save(playerQuest);
+        assertThat(response.getRewardItemDefinitionId()).isEqualTo("testReward");
+        assertThat(response.getRewardItemCount()).isEqualTo(2);
+
+        verify(rewardGrantRepository, never()).save(any());
+    }
+
+    @Test
+    public void givenOtherQuestFinishedConcurrentlyWithSameIdempotencyKey_whenFinishQuest_thenThrowException() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+        final String idempotencyKey = "testIdempotencyKey";
+        final int requiredProgress = 1;
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questDefinition.getId()).thenReturn(questDefinitionId);
+        when(questDefinition.getRequiredProgress()).thenReturn(requiredProgress);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getDefinition()).thenReturn(questDefinition);
+        when(playerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
+        when(playerQuest.getCurrentProgress()).thenReturn(requiredProgress);
+        when(playerQuestRepository.findByPlayerIdAndDefinitionAndCompletedAtIsNull(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuestRepository.complete(anyLong(), anyInt(), any(), any(), any(), anyInt()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        QuestDefinition otherQuestDefinition = mock(QuestDefinition.class);
+        when(otherQuestDefinition.getId()).thenReturn("otherQuestDefinition");
+
+        PlayerQuest otherPlayerQuest = mock(PlayerQuest.class);
+        when(otherPlayerQuest.getDefinition()).thenReturn(otherQuestDefinition);
+        when(playerQuestRepository.findLockedByPlayerIdAndFinishIdempotencyKey(playerId, idempotencyKey)).thenReturn(Lists.list(otherPlayerQuest));
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.finishQuest(playerId, questDefinitionId, idempotencyKey))
+                .withMessage(ApiErrors.QUEST_NOT_FOUND_MESSAGE);
+
+        verify(rewardGrantRepository, never()).save(any());
+    }
+
+    @Test
+    public void givenTooLongIdempotencyKey_whenFinishQuest_thenThrowException() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+        final String idempotencyKey = Strings.repeat("x", 101);
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.finishQuest(playerId, questDefinitionId, idempotencyKey))
+                .withMessage(QuestsApiErrors.IDEMPOTENCY_KEY_TOO_LONG_MESSAGE);
+
+        verify(playerQuestRepository, never()).findByPlayerIdAndFinishIdempotencyKey(any(), any());
+    }
+
+    @Test
+    public void givenIdempotencyKeyOfOtherQuest_whenFinishQuest_thenThrowException() {
+        // GIVEN
+        final String playerId = "testPlayer";
+        final String questDefinitionId = "testQuestDefinition";
+        final String idempotencyKey = "testIdempotencyKey";
+
+        QuestDefinition questDefinition = mock(QuestDefinition.class);
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
+
+        QuestDefinition otherQuestDefinition = mock(QuestDefinition.class);
+        when(otherQuestDefinition.getId()).thenReturn("otherQuestDefinition");
+
+        PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getDefinition()).thenReturn(otherQuestDefinition);
+        when(playerQuestRepository.findByPlayerIdAndFinishIdempotencyKey(playerId, idempotencyKey)).thenReturn(Lists.list(playerQuest));
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> questService.finishQuest(playerId, questDefinitionId, idempotencyKey))
+                .withMessage(ApiErrors.QUEST_NOT_FOUND_MESSAGE);
     }
 
     @Test
@@ -812,18 +1795,38 @@ public class QuestServiceTests {
         when(questDefinition.getRequiredProgress()).thenReturn(requiredProgress);
         when(questDefinition.getRewardItemDefinitionId()).thenReturn("testReward");
         when(questDefinition.getRewardItemCount()).thenReturn(2);
-        when(questDefinitionRepository.findById(questDefinitionId)).thenReturn(Optional.of(questDefinition));
+        when(questCatalog.getDefinition(questDefinitionId)).thenReturn(questDefinition);
 
         PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
         when(playerQuest.getCurrentProgress()).thenReturn(requiredProgress);
-        when(playerQuestRepository.findByPlayerIdAndDefinition(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuestRepository.findByPlayerIdAndDefinitionAndCompletedAtIsNull(playerId, questDefinition)).thenReturn(Lists.list(playerQuest));
+        when(playerQuestRepository.complete(anyLong(), anyInt(), any(), any(), any(), anyInt())).thenReturn(1);
 
         // WHEN
-        FinishQuestResponse response = questService.finishQuest(playerId, questDefinitionId);
+        FinishQuestResponse response = questService.finishQuest(playerId, questDefinitionId, null);
 
         // THEN
         assertThat(response).isNotNull();
         assertThat(response.getRewardItemDefinitionId()).isEqualTo(questDefinition.getRewardItemDefinitionId());
         assertThat(response.getRewardItemCount()).isEqualTo(questDefinition.getRewardItemCount());
     }
+
+    private PlayerQuest mockActivePlayerQuest(String playerId, QuestDefinition questDefinition, int currentProgress) {
+        PlayerQuest playerQuest = mock(PlayerQuest.class);
+        when(playerQuest.getGeneratedAt()).thenReturn(OffsetDateTime.now().minusDays(1));
+        when(playerQuest.getPlayerId()).thenReturn(playerId);
+        when(playerQuest.getDefinition()).thenReturn(questDefinition);
+        when(playerQuest.getCurrentProgress()).thenReturn(currentProgress);
+        return playerQuest;
+    }
+
+    private IncreaseQuestProgressBatchRequestItem createBatchRequestItem(String playerId, String questDefinitionId,
+                                                                        int progressMade) {
+        IncreaseQuestProgressBatchRequestItem item = new IncreaseQuestProgressBatchRequestItem();
+        item.setPlayerId(playerId);
+        item.setQuestDefinitionId(questDefinitionId);
+        item.setProgressMade(progressMade);
+        return item;
+    }
 }
@@ -0,0 +1,213 @@
+package de.opengamebackend.quests.controller;
+
+import de.opengamebackend.collection.model.requests.AddCollectionItemsRequest;
+import de.opengamebackend.net.ApiErrors;
+import de.opengamebackend.net.ApiException;
+import de.opengamebackend.quests.config.CollectionServiceConfig;
+import de.opengamebackend.quests.config.RewardGrantConfig;
+import de.opengamebackend.quests.model.entities.RewardGrant;
+import de.opengamebackend.quests.model.repositories.RewardGrantRepository;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RewardGrantDispatcherTests {
+    private RewardGrantConfig rewardGrantConfig;
+    private CollectionServiceConfig collectionServiceConfig;
+    private RewardGrantRepository rewardGrantRepository;
+    private CollectionService collectionService;
+
+    private RewardGrantDispatcher rewardGrantDispatcher;
+
+    private RewardGrant rewardGrant;
+
+    @BeforeEach
+    public void beforeEach() {
+        rewardGrantConfig = new RewardGrantConfig();
+        collectionServiceConfig = new CollectionServiceConfig();
+        rewardGrantRepository = mock(RewardGrantRepository.class);
+        collectionService = mock(CollectionService.class);
+
+        rewardGrantDispatcher = new RewardGrantDispatcher(rewardGrantConfig, collectionServiceConfig,
+                rewardGrantRepository, collectionService);
+
+        rewardGrant = mockRewardGrant(2L, "testPlayer", "testItemDefinition", 3);
+        when(rewardGrant.getDeliveryKey()).thenReturn("testDeliveryKey");
+        when(rewardGrant.getAttempts()).thenReturn(1);
+
+        when(rewardGrantRepository.findByFailedAtIsNullAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(), any()))
+                .thenReturn(Lists.list(rewardGrant));
+        when(rewardGrantRepository.claim(eq("testDeliveryKey"), any(), any())).thenReturn(1);
+        when(rewardGrantRepository.findByDeliveryKey("testDeliveryKey")).thenReturn(Lists.list(rewardGrant));
+    }
+
+    @Test
+    public void givenPendingGrant_whenDispatch_thenDeliversAndRemovesGrant() throws ApiException {
+        // WHEN
+        int deliveredGrants = rewardGrantDispatcher.dispatch();
+
+        // THEN
+        assertThat(deliveredGrants).isEqualTo(1);
+
+        ArgumentCaptor<AddCollectionItemsRequest> argumentCaptor =
+                ArgumentCaptor.forClass(AddCollectionItemsRequest.class);
+        verify(collectionService).addCollectionItems(eq("testPlayer"), argumentCaptor.capture(),
+                eq("testDeliveryKey"));
+        AddCollectionItemsRequest request = argumentCaptor.getValue();
+
+        assertThat(request.getItemDefinitionId()).isEqualTo("testItemDefinition");
+        assertThat(request.getItemCount()).isEqualTo(3);
+
+        verify(rewardGrantRepository).deleteByDeliveryKey("testDeliveryKey");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenGrantsOfSamePlayerAndItem_whenDispatch_thenDeliversGrantsTogether() throws ApiException {
+        // GIVEN
+        RewardGrant grant1 = mockRewardGrant(3L, "testPlayer", "testItemDefinition", 2);
+        RewardGrant grant2 = mockRewardGrant(4L, "testPlayer", "testItemDefinition", 5);
+        RewardGrant grant3 = mockRewardGrant(5L, "otherPlayer", "testItemDefinition", 1);
+
+        when(rewardGrantRepository.findByFailedAtIsNullAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(), any()))
+                .thenReturn(Lists.list(grant1, grant2, grant3));
+        when(rewardGrantRepository.assignDeliveryKey(any(), any())).thenReturn(1);
+        when(rewardGrantRepository.claim(any(), any(), any())).thenReturn(1);
+        when(rewardGrantRepository.findByDeliveryKey(any())).thenReturn(Lists.list(grant1, grant2));
+
+        // WHEN
+        rewardGrantDispatcher.dispatch();
+
+        // THEN
+        ArgumentCaptor<Collection<Long>> idsCaptor = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<String> keyCaptor = ArgumentCaptor.forClass(String.class);
+        verify(rewardGrantRepository, times(2)).assignDeliveryKey(idsCaptor.capture(), keyCaptor.capture());
+
+        assertThat(idsCaptor.getAllValues().get(0)).containsExactly(3L, 4L);
+        assertThat(idsCaptor.getAllValues().get(1)).containsExactly(5L);
+        assertThat(keyCaptor.getAllValues().get(0)).isNotEqualTo(keyCaptor.getAllValues().get(1));
+
+        String deliveryKey = keyCaptor.getAllValues().get(0);
+
+        ArgumentCaptor<AddCollectionItemsRequest> requestCaptor =
+                ArgumentCaptor.forClass(AddCollectionItemsRequest.class);
+        verify(collectionService).addCollectionItems(eq("testPlayer"), requestCaptor.capture(), eq(deliveryKey));
+        assertThat(requestCaptor.getValue().getItemCount()).isEqualTo(7);
+    }
+
+    @Test
+    public void givenTooManyGrantsOfSamePlayerAndItem_whenDispatch_thenSplitsDeliveries() {
+        // GIVEN
+        rewardGrantConfig.setMaxGrantsPerDelivery(1);
+
+        RewardGrant grant1 = mockRewardGrant(3L, "testPlayer", "testItemDefinition", 2);
+        RewardGrant grant2 = mockRewardGrant(4L, "testPlayer", "testItemDefinition", 5);
+
+        when(rewardGrantRepository.findByFailedAtIsNullAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(), any()))
+                .thenReturn(Lists.list(grant1, grant2));
+
+        // WHEN
+        rewardGrantDispatcher.dispatch();
+
+        // THEN
+        verify(rewardGrantRepository).assignDeliveryKey(eq(Lists.list(3L)), any());
+        verify(rewardGrantRepository).assignDeliveryKey(eq(Lists.list(4L)), any());
+    }
+
+    @Test
+    public void givenGrantClaimedElsewhere_whenDispatch_thenSkipsGrant() throws ApiException {
+        // GIVEN
+        when(rewardGrantRepository.claim(eq("testDeliveryKey"), any(), any())).thenReturn(0);
+
+        // WHEN
+        int deliveredGrants = rewardGrantDispatcher.dispatch();
+
+        // THEN
+        assertThat(deliveredGrants).isZero();
+        verify(collectionService, never()).addCollectionItems(any(), any(), any());
+    }
+
+    @Test
+    public void givenFailingCollectionService_whenDispatch_thenRetriesLater() throws ApiException {
+        // GIVEN
+        doThrow(new IllegalStateException("testError"))
+                .when(collectionService).addCollectionItems(any(), any(), any());
+
+        // WHEN
+        OffsetDateTime before = OffsetDateTime.now();
+        int deliveredGrants = rewardGrantDispatcher.dispatch();
+
+        // THEN
+        assertThat(deliveredGrants).isZero();
+
+        ArgumentCaptor<OffsetDateTime> argumentCaptor = ArgumentCaptor.forClass(OffsetDateTime.class);
+        verify(rewardGrantRepository).reschedule(eq("testDeliveryKey"), argumentCaptor.capture(), isNull(),
+                eq("testError"));
+        assertThat(argumentCaptor.getValue()).isAfterOrEqualTo(before.plus(rewardGrantConfig.getInitialBackoff()));
+
+        verify(rewardGrantRepository, never()).deleteByDeliveryKey(any());
+    }
+
+    @Test
+    public void givenRejectedCall_whenDispatch_thenReleasesGrantWithoutCountingAttempt() throws ApiException {
+        // GIVEN
+        rewardGrantConfig.setBatchSize(1);
+
+        doThrow(new ApiException(ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_CODE,
+                ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_MESSAGE))
+                .when(collectionService).addCollectionItems(any(), any(), any());
+
+        // WHEN
+        OffsetDateTime before = OffsetDateTime.now();
+        int deliveredGrants = rewardGrantDispatcher.dispatch();
+
+        // THEN
+        assertThat(deliveredGrants).isZero();
+
+        ArgumentCaptor<OffsetDateTime> argumentCaptor = ArgumentCaptor.forClass(OffsetDateTime.class);
+        verify(rewardGrantRepository).release(eq("testDeliveryKey"), argumentCaptor.capture(),
+                eq(ApiErrors.COLLECTION_SERVICE_UNAVAILABLE_MESSAGE));
+        assertThat(argumentCaptor.getValue())
+                .isAfterOrEqualTo(before.plus(collectionServiceConfig.getWaitDurationInOpenState()));
+
+        verify(rewardGrantRepository, never()).reschedule(any(), any(), any(), any());
+
+        // Don't go on with the next batch while the collection service rejects calls.
+        verify(rewardGrantRepository, times(1))
+                .findByFailedAtIsNullAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(), any());
+    }
+
+    @Test
+    public void givenLastAttemptFails_whenDispatch_thenGivesUp() throws ApiException {
+        // GIVEN
+        when(rewardGrant.getAttempts()).thenReturn(rewardGrantConfig.getMaxAttempts());
+
+        doThrow(new IllegalStateException("testError"))
+                .when(collectionService).addCollectionItems(any(), any(), any());
+
+        // WHEN
+        rewardGrantDispatcher.dispatch();
+
+        // THEN
+        verify(rewardGrantRepository).reschedule(eq("testDeliveryKey"), any(), notNull(), eq("testError"));
+    }
+
+    private RewardGrant mockRewardGrant(long id, String playerId, String itemDefinitionId, int itemCount) {
+        RewardGrant grant = mock(RewardGrant.class);
+        when(grant.getId()).thenReturn(id);
+        when(grant.getIdempotencyKey()).thenReturn("testIdempotencyKey" + id);
+        when(grant.getPlayerId()).thenReturn(playerId);
+        when(grant.getItemDefinitionId()).thenReturn(itemDefinitionId);
+        when(grant.getItemCount()).thenReturn(itemCount);
+        when(grant.getNextAttemptAt()).thenReturn(OffsetDateTime.now().minusSeconds(1));
+        return grant;
+    }
+}
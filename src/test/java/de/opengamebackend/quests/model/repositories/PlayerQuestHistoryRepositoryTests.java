@@ -0,0 +1,83 @@
+package de.opengamebackend.quests.model.repositories;
+
+import de.opengamebackend.quests.model.entities.PlayerQuest;
+import de.opengamebackend.quests.model.entities.PlayerQuestHistory;
+import de.opengamebackend.quests.model.entities.QuestCategory;
+import de.opengamebackend.quests.model.entities.QuestDefinition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class PlayerQuestHistoryRepositoryTests {
+    private TestEntityManager entityManager;
+    private PlayerQuestHistoryRepository playerQuestHistoryRepository;
+
+    @Autowired
+    public PlayerQuestHistoryRepositoryTests(TestEntityManager entityManager,
+                                             PlayerQuestHistoryRepository playerQuestHistoryRepository) {
+        this.entityManager = entityManager;
+        this.playerQuestHistoryRepository = playerQuestHistoryRepository;
+    }
+
+    @Test
+    public void givenActiveAndArchivedQuests_whenFindAllQuestIdsByPlayerId_thenReturnPageOfLatestQuests() {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        QuestDefinition questDefinition = new QuestDefinition();
+        questDefinition.setId("testQuestDefinition");
+        questDefinition.setCategory(questCategory);
+        questDefinition.setRewardItemDefinitionId("testItemDefinition");
+        entityManager.persist(questDefinition);
+
+        PlayerQuest activeQuest = new PlayerQuest();
+        activeQuest.setPlayerId("testPlayer");
+        activeQuest.setDefinition(questDefinition);
+        activeQuest.setGeneratedAt(OffsetDateTime.now());
+        entityManager.persist(activeQuest);
+
+        PlayerQuestHistory newerArchivedQuest = new PlayerQuestHistory();
+        newerArchivedQuest.setId(activeQuest.getId() + 100);
+        newerArchivedQuest.setPlayerId("testPlayer");
+        newerArchivedQuest.setDefinition(questDefinition);
+        newerArchivedQuest.setGeneratedAt(OffsetDateTime.now().minusDays(40));
+        newerArchivedQuest.setCompletedAt(OffsetDateTime.now().minusDays(40));
+        newerArchivedQuest.setArchivedAt(OffsetDateTime.now());
+        entityManager.persist(newerArchivedQuest);
+
+        PlayerQuestHistory olderArchivedQuest = new PlayerQuestHistory();
+        olderArchivedQuest.setId(activeQuest.getId() + 101);
+        olderArchivedQuest.setPlayerId("testPlayer");
+        olderArchivedQuest.setDefinition(questDefinition);
+        olderArchivedQuest.setGeneratedAt(OffsetDateTime.now().minusDays(50));
+        olderArchivedQuest.setCompletedAt(OffsetDateTime.now().minusDays(50));
+        olderArchivedQuest.setArchivedAt(OffsetDateTime.now());
+        entityManager.persist(olderArchivedQuest);
+
+        entityManager.flush();
+
+        // WHEN
+        List<Number> firstPage = playerQuestHistoryRepository.findAllQuestIdsByPlayerId("testPlayer",
+                PageRequest.of(0, 2));
+        List<Number> secondPage = playerQuestHistoryRepository.findAllQuestIdsByPlayerId("testPlayer",
+                PageRequest.of(1, 2));
+
+        // THEN
+        assertThat(firstPage).extracting(Number::longValue)
+                .containsExactly(activeQuest.getId(), newerArchivedQuest.getId());
+        assertThat(secondPage).extracting(Number::longValue)
+                .containsExactly(olderArchivedQuest.getId());
+    }
+}
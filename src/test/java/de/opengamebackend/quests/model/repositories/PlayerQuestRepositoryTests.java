@@ -3,6 +3,7 @@ package de.opengamebackend.quests.model.repositories;
 import de.opengamebackend.quests.model.entities.PlayerQuest;
 import de.opengamebackend.quests.model.entities.QuestCategory;
 import de.opengamebackend.quests.model.entities.QuestDefinition;
+import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -13,6 +14,7 @@ import java.time.OffsetDateTime;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @DataJpaTest
 @ActiveProfiles("test")
@@ -86,4 +88,208 @@ public class PlayerQuestRepositoryTests {
         assertThat(playerQuests).hasSize(1);
         assertThat(playerQuests.get(0)).isEqualTo(playerQuest);
     }
+
+    @Test
+    public void givenPlayerQuests_whenFindByPlayerIdAndDefinitionAndCompletedAtIsNull_thenReturnActiveQuests() {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        QuestDefinition questDefinition = new QuestDefinition();
+        questDefinition.setId("testQuestDefinition");
+        questDefinition.setCategory(questCategory);
+        questDefinition.setRewardItemDefinitionId("testItemDefinition");
+        entityManager.persist(questDefinition);
+
+        PlayerQuest completedQuest = new PlayerQuest();
+        completedQuest.setPlayerId("testPlayer");
+        completedQuest.setDefinition(questDefinition);
+        completedQuest.setGeneratedAt(OffsetDateTime.now().minusDays(1));
+        completedQuest.setCompletedAt(OffsetDateTime.now().minusDays(1));
+        entityManager.persist(completedQuest);
+
+        PlayerQuest activeQuest = new PlayerQuest();
+        activeQuest.setPlayerId("testPlayer");
+        activeQuest.setDefinition(questDefinition);
+        activeQuest.setGeneratedAt(OffsetDateTime.now());
+        entityManager.persist(activeQuest);
+
+        entityManager.flush();
+
+        // WHEN
+        List<PlayerQuest> playerQuests = playerQuestRepository
+                .findByPlayerIdAndDefinitionAndCompletedAtIsNull("testPlayer", questDefinition);
+
+        // THEN
+        assertThat(playerQuests).containsExactly(activeQuest);
+    }
+
+    @Test
+    public void givenPlayerQuests_whenFindByPlayerIdAndCompletedAtIsNull_thenReturnActiveQuests() {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        QuestDefinition questDefinition = new QuestDefinition();
+        questDefinition.setId("testQuestDefinition");
+        questDefinition.setCategory(questCategory);
+        questDefinition.setRewardItemDefinitionId("testItemDefinition");
+        entityManager.persist(questDefinition);
+
+        PlayerQuest activeQuest = new PlayerQuest();
+        activeQuest.setPlayerId("testPlayer");
+        activeQuest.setDefinition(questDefinition);
+        activeQuest.setGeneratedAt(OffsetDateTime.now());
+        entityManager.persist(activeQuest);
+
+        PlayerQuest completedQuest = new PlayerQuest();
+        completedQuest.setPlayerId("testPlayer");
+        completedQuest.setDefinition(questDefinition);
+        completedQuest.setGeneratedAt(OffsetDateTime.now().minusDays(1));
+        completedQuest.setCompletedAt(OffsetDateTime.now().minusDays(1));
+        entityManager.persist(completedQuest);
+
+        entityManager.flush();
+
+        // WHEN
+        List<PlayerQuest> playerQuests = playerQuestRepository.findByPlayerIdAndCompletedAtIsNull("testPlayer");
+
+        // THEN
+        assertThat(playerQuests).isNotNull();
+        assertThat(playerQuests).hasSize(1);
+        assertThat(playerQuests.get(0)).isEqualTo(activeQuest);
+    }
+
+    @Test
+    public void givenPlayerQuests_whenFindLockedByPlayerIdInAndDefinitionIdInAndCompletedAtIsNull_thenReturnActiveQuests() {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        QuestDefinition questDefinition = new QuestDefinition();
+        questDefinition.setId("testQuestDefinition");
+        questDefinition.setCategory(questCategory);
+        questDefinition.setRewardItemDefinitionId("testItemDefinition");
+        entityManager.persist(questDefinition);
+
+        PlayerQuest activeQuest = new PlayerQuest();
+        activeQuest.setPlayerId("testPlayer");
+        activeQuest.setDefinition(questDefinition);
+        activeQuest.setGeneratedAt(OffsetDateTime.now());
+        entityManager.persist(activeQuest);
+
+        PlayerQuest completedQuest = new PlayerQuest();
+        completedQuest.setPlayerId("testPlayer");
+        completedQuest.setDefinition(questDefinition);
+        completedQuest.setGeneratedAt(OffsetDateTime.now().minusDays(1));
+        completedQuest.setCompletedAt(OffsetDateTime.now());
+        entityManager.persist(completedQuest);
+
+        entityManager.flush();
+
+        // WHEN
+        List<PlayerQuest> playerQuests = playerQuestRepository
+                .findLockedByPlayerIdInAndDefinitionIdInAndCompletedAtIsNull(
+                        Lists.list("testPlayer", "otherPlayer"), Lists.list(questDefinition.getId()));
+
+        // THEN
+        assertThat(playerQuests).isNotNull();
+        assertThat(playerQuests).hasSize(1);
+        assertThat(playerQuests.get(0)).isEqualTo(activeQuest);
+    }
+
+    @Test
+    public void givenActiveQuest_whenIncreaseProgress_thenCapsProgress() {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        QuestDefinition questDefinition = new QuestDefinition();
+        questDefinition.setId("testQuestDefinition");
+        questDefinition.setCategory(questCategory);
+        questDefinition.setRequiredProgress(5);
+        questDefinition.setRewardItemDefinitionId("testItemDefinition");
+        entityManager.persist(questDefinition);
+
+        PlayerQuest activeQuest = new PlayerQuest();
+        activeQuest.setPlayerId("testPlayer");
+        activeQuest.setDefinition(questDefinition);
+        activeQuest.setCurrentProgress(3);
+        activeQuest.setGeneratedAt(OffsetDateTime.now());
+        entityManager.persist(activeQuest);
+
+        PlayerQuest completedQuest = new PlayerQuest();
+        completedQuest.setPlayerId("testPlayer");
+        completedQuest.setDefinition(questDefinition);
+        completedQuest.setCurrentProgress(5);
+        completedQuest.setGeneratedAt(OffsetDateTime.now().minusDays(1));
+        completedQuest.setCompletedAt(OffsetDateTime.now());
+        entityManager.persist(completedQuest);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        // WHEN
+        int updatedQuests = playerQuestRepository.increaseProgress(activeQuest.getPlayerId(), questDefinition.getId(),
+                4, questDefinition.getRequiredProgress(), OffsetDateTime.now());
+
+        // THEN
+        assertThat(updatedQuests).isEqualTo(1);
+        assertThat(entityManager.find(PlayerQuest.class, activeQuest.getId()).getCurrentProgress()).isEqualTo(5);
+    }
+
+    @Test
+    public void givenQuests_whenComplete_thenCompletesOnlyActiveQuestsWithSufficientProgress() {
+        // GIVEN
+        QuestCategory questCategory = new QuestCategory();
+        questCategory.setId("testQuestCategory");
+        entityManager.persist(questCategory);
+
+        QuestDefinition questDefinition = new QuestDefinition();
+        questDefinition.setId("testQuestDefinition");
+        questDefinition.setCategory(questCategory);
+        questDefinition.setRequiredProgress(5);
+        questDefinition.setRewardItemDefinitionId("testItemDefinition");
+        entityManager.persist(questDefinition);
+
+        PlayerQuest finishableQuest = new PlayerQuest();
+        finishableQuest.setPlayerId("testPlayer");
+        finishableQuest.setDefinition(questDefinition);
+        finishableQuest.setCurrentProgress(5);
+        finishableQuest.setGeneratedAt(OffsetDateTime.now());
+        entityManager.persist(finishableQuest);
+
+        PlayerQuest unfinishedQuest = new PlayerQuest();
+        unfinishedQuest.setPlayerId("otherPlayer");
+        unfinishedQuest.setDefinition(questDefinition);
+        unfinishedQuest.setCurrentProgress(4);
+        unfinishedQuest.setGeneratedAt(OffsetDateTime.now());
+        entityManager.persist(unfinishedQuest);
+
+        entityManager.flush();
+
+        OffsetDateTime now = OffsetDateTime.now();
+
+        // WHEN
+        int completedFinishableQuests = playerQuestRepository.complete(finishableQuest.getId(),
+                questDefinition.getRequiredProgress(), now, "testIdempotencyKey", "testItemDefinition", 2);
+        int completedFinishableQuestsAgain = playerQuestRepository.complete(finishableQuest.getId(),
+                questDefinition.getRequiredProgress(), now, "otherIdempotencyKey", "otherItemDefinition", 3);
+        int completedUnfinishedQuests = playerQuestRepository.complete(unfinishedQuest.getId(),
+                questDefinition.getRequiredProgress(), now, null, "testItemDefinition", 2);
+
+        // THEN
+        assertThat(completedFinishableQuests).isEqualTo(1);
+        assertThat(completedFinishableQuestsAgain).isZero();
+        assertThat(completedUnfinishedQuests).isZero();
+
+        assertThat(playerQuestRepository.findByPlayerIdAndFinishIdempotencyKey("testPlayer", "testIdempotencyKey"))
+                .extracting(PlayerQuest::getId, PlayerQuest::getRewardItemDefinitionId, PlayerQuest::getRewardItemCount)
+                .containsExactly(tuple(finishableQuest.getId(), "testItemDefinition", 2));
+        assertThat(entityManager.find(PlayerQuest.class, unfinishedQuest.getId()).getCompletedAt()).isNull();
+    }
 }